@@ -0,0 +1,90 @@
+package com.checkstyleplus.benchmarks;
+
+import com.checkstyleplus.utils.AstUtils;
+import com.checkstyleplus.utils.PositionIndex;
+import com.checkstyleplus.utils.ReplyUtils;
+import com.puppycrawl.tools.checkstyle.JavaParser;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Anchoring the findings of a recorded reply on the parsed tree: one {@link AstUtils} walk per finding,
+ * against one {@link PositionIndex} built for the file, and the enclosing declarations of the reported lines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class AstBenchmark {
+
+    private static final Pattern QUOTED_IDENTIFIER = Pattern.compile("'([A-Za-z_][A-Za-z0-9_]*)'");
+
+    @Param({Corpus.SMALL, Corpus.MEDIUM, Corpus.LARGE})
+    public String size;
+
+    private DetailAST root;
+    private List<String> lines;
+    private int[] findingLines;
+    private String[] findingNames;
+    private BitSet reportedLines;
+
+    @Setup
+    public void setUp() throws Exception {
+        Corpus corpus = Corpus.load(size);
+        Path dir = Files.createTempDirectory("checkstyle-plus-bench");
+        try {
+            Path file = corpus.writeTo(dir);
+            root = JavaParser.parseFile(file.toFile(), JavaParser.Options.WITHOUT_COMMENTS);
+            lines = Files.readAllLines(file);
+            Files.delete(file);
+        } finally {
+            Files.delete(dir);
+        }
+
+        List<Integer> lineNumbers = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (String line : corpus.reply().split("\\R")) {
+            Integer n = ReplyUtils.lineNumberOf(line);
+            Matcher m = QUOTED_IDENTIFIER.matcher(line);
+            if (n == null || !m.find()) continue;
+            lineNumbers.add(n);
+            names.add(m.group(1));
+        }
+        findingLines = lineNumbers.stream().mapToInt(Integer::intValue).toArray();
+        findingNames = names.toArray(new String[0]);
+        reportedLines = new BitSet();
+        for (int n : findingLines) reportedLines.set(n);
+    }
+
+    @Benchmark
+    public void findIdentPerFinding(Blackhole bh) {
+        for (int i = 0; i < findingLines.length; i++) {
+            bh.consume(AstUtils.findIdentAtLineWithText(root, findingLines[i], findingNames[i]));
+        }
+    }
+
+    @Benchmark
+    public void positionIndex(Blackhole bh) {
+        PositionIndex positions = new PositionIndex(root, lines);
+        for (int i = 0; i < findingLines.length; i++) {
+            bh.consume(positions.identAt(findingLines[i], findingNames[i]));
+        }
+    }
+
+    @Benchmark
+    public BitSet enclosingDeclarationLines() {
+        return AstUtils.enclosingDeclarationLines(root, reportedLines);
+    }
+}
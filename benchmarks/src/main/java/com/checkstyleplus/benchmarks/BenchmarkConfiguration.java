@@ -0,0 +1,42 @@
+package com.checkstyleplus.benchmarks;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The configuration bundled with Checkstyle+ ({@code checkstyle.xml}), with LlmStyleCheck pointed at a stub
+ * server, so benchmarks and load tests always run the checks users get.
+ */
+final class BenchmarkConfiguration {
+
+    private static final Pattern LLM_MODULE =
+        Pattern.compile("(<module name=\"com\\.checkstyleplus\\.LlmStyleCheck\">)(.*?)(\\s*</module>)", Pattern.DOTALL);
+
+    private BenchmarkConfiguration() { }
+
+    /**
+     * The bundled configuration with LlmStyleCheck sending to {@code endpoint} and the given properties set,
+     * replacing the ones of the same name.
+     */
+    static String bundled(String endpoint, Map<String, String> properties) {
+        Map<String, String> set = new LinkedHashMap<>();
+        set.put("apiKey", "benchmark");
+        set.put("endpoint", endpoint);
+        set.putAll(properties);
+
+        String config = Corpus.resource("checkstyle-plus/checkstyle.xml");
+        Matcher m = LLM_MODULE.matcher(config);
+        if (!m.find()) throw new IllegalStateException("checkstyle.xml has no LlmStyleCheck module");
+        String body = m.group(2);
+        StringBuilder added = new StringBuilder();
+        set.forEach((name, value) -> added.append("\n      <property name=\"").append(name)
+            .append("\" value=\"").append(value.replace("&", "&amp;").replace("\"", "&quot;")
+                .replace("<", "&lt;")).append("\"/>"));
+        for (String name : set.keySet()) {
+            body = body.replaceAll("\\s*<property name=\"" + Pattern.quote(name) + "\"[^>]*/>", "");
+        }
+        return config.substring(0, m.start()) + m.group(1) + added + body + m.group(3) + config.substring(m.end());
+    }
+}
@@ -0,0 +1,69 @@
+package com.checkstyleplus.benchmarks;
+
+import com.checkstyleplus.utils.CacheUtils;
+import com.checkstyleplus.utils.PromptUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashing prompts into cache keys, and reading and writing recorded replies through each cache backend.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CacheBenchmark {
+
+    @Param({Corpus.SMALL, Corpus.MEDIUM, Corpus.LARGE})
+    public String size;
+
+    @Param({"directory", "segment"})
+    public String backend;
+
+    private Sandbox sandbox;
+    private String prompt;
+    private String reply;
+    private String storedKey;
+    private String missingKey;
+
+    @Setup
+    public void setUp() throws Exception {
+        sandbox = new Sandbox();
+        CacheUtils.configure(backend, 256L << 20, "", 2000);
+        Corpus corpus = Corpus.load(size);
+        prompt = PromptUtils.buildPrompt(corpus.source());
+        reply = corpus.reply();
+        storedKey = CacheUtils.sha256(prompt);
+        missingKey = CacheUtils.sha256(prompt + "\nmissing");
+        CacheUtils.writeCache(storedKey, reply);
+    }
+
+    @TearDown
+    public void tearDown() {
+        sandbox.close();
+    }
+
+    @Benchmark
+    public String sha256() throws Exception {
+        return CacheUtils.sha256(prompt);
+    }
+
+    @Benchmark
+    public Optional<String> readCacheHit() {
+        return CacheUtils.readCache(storedKey);
+    }
+
+    @Benchmark
+    public Optional<String> readCacheMiss() {
+        return CacheUtils.readCache(missingKey);
+    }
+
+    @Benchmark
+    public void writeCache() {
+        CacheUtils.writeCache(storedKey, reply);
+    }
+}
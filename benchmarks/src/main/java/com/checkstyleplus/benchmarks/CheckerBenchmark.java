@@ -0,0 +1,68 @@
+package com.checkstyleplus.benchmarks;
+
+import com.checkstyleplus.CheckSession;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end: the bundled Google-style configuration, with LlmStyleCheck answered by a {@link StubLlmServer}
+ * on loopback without added latency, run over all three corpora as one CheckstylePlus invocation would.
+ * With a {@code warm} cache every reply is read from disk; with a {@code cold} one the cache is emptied
+ * before each run, so every file goes through prefetch, the HTTP client and the (instant) model.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CheckerBenchmark {
+
+    @Param({"warm", "cold"})
+    public String cache;
+
+    @Param({"1", "3"})
+    public int threads;
+
+    private Sandbox sandbox;
+    private StubLlmServer server;
+    private CheckSession session;
+    private List<File> files;
+
+    @Setup
+    public void setUp() throws Exception {
+        sandbox = new Sandbox();
+        server = StubLlmServer.start(0, StubLlmServer.Settings.instant());
+        Path config = Files.writeString(sandbox.home().resolve("checkstyle.xml"),
+            BenchmarkConfiguration.bundled(server.endpoint(StubLlmServer.Provider.OPENAI), Map.of()));
+        files = new ArrayList<>();
+        for (Path file : Corpus.writeAll(sandbox.home())) files.add(file.toFile());
+        session = CheckSession.open(config);
+        session.check(files, threads, OutputStream.nullOutputStream(), OutputStream.nullOutputStream());
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyCache() throws Exception {
+        if ("cold".equals(cache)) sandbox.clearCache();
+    }
+
+    @TearDown
+    public void tearDown() {
+        session.close();
+        server.close();
+        sandbox.close();
+    }
+
+    @Benchmark
+    public int checkCorpora() throws Exception {
+        return session.check(files, threads, OutputStream.nullOutputStream(), OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,66 @@
+package com.checkstyleplus.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files written with {@code -rf json}, e.g. from the previous release and this one.
+ * Prints every benchmark found in both with its score in each, and the change. Lower is better for every
+ * benchmark in this module (they report average time), so a positive change is a slowdown.
+ * A change smaller than the combined error margins of the two scores is marked "~" (noise).
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar com.checkstyleplus.benchmarks.CompareResults base.json new.json}
+ */
+public class CompareResults {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: CompareResults <baseline.json> <candidate.json>");
+            System.exit(2);
+        }
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> candidate = read(new File(args[1]));
+
+        System.out.printf("%-80s %14s %14s %9s%n", "Benchmark", "Baseline", "Candidate", "Change");
+        for (Map.Entry<String, JsonNode> entry : baseline.entrySet()) {
+            JsonNode after = candidate.get(entry.getKey());
+            if (after == null) continue;
+            JsonNode before = entry.getValue();
+            double base = before.path("score").asDouble();
+            double cand = after.path("score").asDouble();
+            double change = (base == 0) ? 0 : (cand - base) / base * 100;
+            boolean noise = Math.abs(cand - base) <= errorOf(before) + errorOf(after);
+            String unit = before.path("scoreUnit").asText();
+            System.out.printf("%-80s %10.3f %-3s %10.3f %-3s %+8.1f%%%s%n", entry.getKey(), base, shortUnit(unit),
+                cand, shortUnit(unit), change, noise ? " ~" : "");
+        }
+    }
+
+    /**
+     * The primary metric of every benchmark in the file, keyed by benchmark name and parameters.
+     */
+    private static Map<String, JsonNode> read(File file) throws Exception {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder name = new StringBuilder(run.path("benchmark").asText()
+                .replace("com.checkstyleplus.benchmarks.", ""));
+            run.path("params").properties().forEach(p ->
+                name.append(' ').append(p.getKey()).append('=').append(p.getValue().asText()));
+            results.put(name.toString(), run.path("primaryMetric"));
+        }
+        return results;
+    }
+
+    private static double errorOf(JsonNode metric) {
+        double error = metric.path("scoreError").asDouble();
+        return Double.isNaN(error) ? 0 : error;
+    }
+
+    private static String shortUnit(String unit) {
+        return unit.replace("/op", "");
+    }
+}
@@ -0,0 +1,92 @@
+package com.checkstyleplus.benchmarks;
+
+import com.checkstyleplus.utils.PromptUtils;
+import com.checkstyleplus.utils.StructuredReply;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Java source file used as benchmark input, with the reply {@link StubLlmServer} gives for it.
+ * The files come from {@link CorpusGenerator} with a fixed seed per size, so results stay comparable
+ * between versions and do not move when Checkstyle+'s own sources change:
+ * <ul>
+ *   <li>{@code small}  — 3 methods, about 140 lines</li>
+ *   <li>{@code medium} — 15 methods, about 530 lines</li>
+ *   <li>{@code large}  — 60 methods, about 1670 lines</li>
+ * </ul>
+ */
+public record Corpus(String name, String className, String source, List<String> lines, String reply) {
+
+    // The sizes accepted by load()
+    public static final String SMALL = "small";
+    public static final String MEDIUM = "medium";
+    public static final String LARGE = "large";
+
+    private static final String PACKAGE = "com.example.bench";
+
+    /**
+     * The corpus of the given size, with the naming and Javadoc violations the stub server reports.
+     */
+    public static Corpus load(String size) {
+        return load(size, true);
+    }
+
+    /**
+     * The corpus of the given size; without planted violations the stub server finds nothing to report.
+     */
+    public static Corpus load(String size, boolean plantViolations) {
+        int methods = switch (size) {
+            case SMALL -> 3;
+            case MEDIUM -> 15;
+            case LARGE -> 60;
+            default -> throw new IllegalArgumentException("Unknown corpus size: " + size);
+        };
+        String className = Character.toUpperCase(size.charAt(0)) + size.substring(1) + "CorpusService";
+        String source = new CorpusGenerator(methods, plantViolations).javaClass(PACKAGE, className, methods);
+        return new Corpus(size, className, source, List.of(source.split("\\R", -1)),
+            StubLlmServer.replyText(PromptUtils.buildPrompt(source)));
+    }
+
+    /**
+     * The stub server's reply in structured-output form: one JSON finding per line.
+     */
+    public String structuredReply() {
+        try {
+            return StructuredReply.toLines(StubLlmServer.replyDocument(PromptUtils.buildPrompt(source)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the source to {@code dir} under its class name, for benchmarks that check files on disk.
+     */
+    public Path writeTo(Path dir) throws IOException {
+        return Files.writeString(dir.resolve(className + ".java"), source);
+    }
+
+    /**
+     * Write every corpus to {@code dir}.
+     */
+    public static List<Path> writeAll(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String size : List.of(SMALL, MEDIUM, LARGE)) files.add(load(size).writeTo(dir));
+        return files;
+    }
+
+    static String resource(String name) {
+        try (InputStream is = Corpus.class.getClassLoader().getResourceAsStream(name)) {
+            if (is == null) throw new IllegalStateException(name + " not found in classpath");
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
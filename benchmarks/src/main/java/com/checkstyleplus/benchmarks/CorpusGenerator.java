@@ -0,0 +1,197 @@
+package com.checkstyleplus.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a tree of compilable-looking Java classes for load tests: package and imports, Javadoc,
+ * constants and fields, constructors and methods with parameters, locals, loops and comments.
+ * File sizes follow a long-tailed distribution (most files a few dozen to a few hundred lines,
+ * some over a thousand), like a real code base. A few naming and Javadoc violations are planted
+ * in each file, matching what {@link StubLlmServer} reports, unless the generator is told not to.
+ * The same seed always generates the same files.
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar com.checkstyleplus.benchmarks.CorpusGenerator <dir> <files> [seed]}
+ */
+public class CorpusGenerator {
+
+    private static final String[] NOUNS = {
+        "order", "customer", "invoice", "account", "payment", "shipment", "product", "report", "session", "ticket",
+        "message", "channel", "record", "entry", "batch", "schedule", "policy", "request", "profile", "document"
+    };
+    private static final String[] VERBS = {
+        "load", "save", "validate", "compute", "update", "find", "merge", "resolve", "render", "publish",
+        "apply", "collect", "build", "parse", "format", "refresh", "track", "register", "archive", "notify"
+    };
+    private static final String[] TYPES = {"int", "long", "String", "boolean", "double"};
+
+    private final Random random;
+    private final boolean plantViolations;
+
+    public CorpusGenerator(long seed) {
+        this(seed, true);
+    }
+
+    /**
+     * @param plantViolations false for files of the same shape with nothing for the stub server to report
+     */
+    public CorpusGenerator(long seed, boolean plantViolations) {
+        this.random = new Random(seed);
+        this.plantViolations = plantViolations;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CorpusGenerator <dir> <files> [seed]");
+            System.exit(2);
+        }
+        List<Path> files = new CorpusGenerator(args.length > 2 ? Long.parseLong(args[2]) : 42)
+            .generate(Path.of(args[0]), Integer.parseInt(args[1]));
+        System.out.println("CorpusGenerator: wrote " + files.size() + " files to " + args[0]);
+    }
+
+    /**
+     * Write {@code count} files under {@code dir}, spread over packages of about 25 files each.
+     *
+     * @return the files, in the order they were written
+     */
+    public List<Path> generate(Path dir, int count) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String pkg = "com.example." + pick(NOUNS) + (i / 25);
+            String className = cap(pick(NOUNS)) + cap(pick(VERBS)) + "Service" + i;
+            Path pkgDir = Files.createDirectories(dir.resolve(pkg.replace('.', '/')));
+            files.add(Files.writeString(pkgDir.resolve(className + ".java"), javaClass(pkg, className)));
+        }
+        return files;
+    }
+
+    private String javaClass(String pkg, String className) {
+        // Long tail: median around 8 methods, some files with 80+
+        return javaClass(pkg, className, 1 + (int) Math.min(120, Math.exp(random.nextGaussian() * 0.9 + 2.0)));
+    }
+
+    /**
+     * One class with the given number of methods (each about 25 lines).
+     */
+    public String javaClass(String pkg, String className, int methods) {
+        int fields = 2 + random.nextInt(6);
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(pkg).append(";\n\n")
+          .append("import java.util.ArrayList;\n")
+          .append("import java.util.List;\n")
+          .append("import java.util.Map;\n\n")
+          .append("/**\n * Handles the ").append(pick(NOUNS)).append(" workflow for ").append(pick(NOUNS))
+          .append(" records.\n */\n")
+          .append("public class ").append(className).append(" {\n\n");
+
+        sb.append("    private static final int MAX_").append(pick(NOUNS).toUpperCase()).append("S = ")
+          .append(10 + random.nextInt(990)).append(";\n");
+        if (random.nextInt(3) == 0) {
+            // planted: 2.3.1
+            String noun = pick(NOUNS);
+            sb.append("    private static final String ")
+              .append(plantViolations ? "default" + cap(noun) : "DEFAULT_" + noun.toUpperCase()).append(" = \"")
+              .append(pick(NOUNS)).append("\";\n");
+        }
+        // The first field is the int every method stores its count in
+        List<String> fieldNames = new ArrayList<>();
+        for (int f = 0; f < fields; f++) {
+            String name = pick(NOUNS) + cap(pick(NOUNS)) + f;
+            fieldNames.add(name);
+            sb.append("    private ").append(f == 0 ? "int" : pick(TYPES)).append(' ').append(name).append(";\n");
+        }
+        sb.append('\n');
+
+        sb.append("    /**\n     * Creates an empty ").append(className).append(".\n     */\n")
+          .append("    public ").append(className).append("() {\n")
+          .append("        this.").append(fieldNames.get(0)).append(" = 0;\n")
+          .append("    }\n\n");
+
+        for (int m = 0; m < methods; m++) {
+            method(sb, m, fieldNames.get(0));
+        }
+        sb.append("}\n");
+        return googleIndentation(sb.toString());
+    }
+
+    /**
+     * The bundled configuration follows Google style, which indents by two spaces instead of four.
+     */
+    private static String googleIndentation(String code) {
+        StringBuilder sb = new StringBuilder(code.length());
+        for (String line : code.split("\n", -1)) {
+            int n = 0;
+            while (n < line.length() && line.charAt(n) == ' ') n++;
+            sb.append(" ".repeat(n / 4 * 2 + n % 4)).append(line, n, line.length()).append('\n');
+        }
+        sb.setLength(sb.length() - 1);
+        return sb.toString();
+    }
+
+    private void method(StringBuilder sb, int index, String countField) {
+        String noun = pick(NOUNS);
+        String verb = pick(VERBS);
+        boolean snake = random.nextInt(12) == 0 && plantViolations; // planted: 2.2.1
+        String name = snake ? verb + "_" + noun + "_" + index : verb + cap(noun) + index;
+        String param = noun + "Id";
+
+        if (random.nextInt(10) == 0) {
+            // planted: 1.1.2 (a one-line Javadoc comment in its place keeps the file the same length)
+            sb.append(plantViolations ? "    // " : "    /** ").append(cap(verb)).append("s the ").append(noun)
+              .append(" and returns the count.").append(plantViolations ? "\n" : " */\n");
+        } else {
+            sb.append("    /**\n     * ").append(cap(verb)).append("s the ").append(noun).append(".\n     *\n")
+              .append("     * @param ").append(param).append(" the ").append(noun).append(" to ").append(verb)
+              .append("\n     * @return the number of ").append(noun).append("s processed\n     */\n");
+        }
+        sb.append("    public int ").append(name).append("(long ").append(param).append(", List<String> ")
+          .append(noun).append("Names) {\n");
+
+        int statements = 2 + random.nextInt(12);
+        boolean shortLocal = false;
+        sb.append("        int count = 0;\n");
+        for (int s = 0; s < statements; s++) {
+            switch (random.nextInt(5)) {
+                case 0 -> sb.append("        for (String ").append(noun).append("Name : ").append(noun)
+                    .append("Names) {\n")
+                    .append("            if (").append(noun).append("Name.startsWith(\"").append(pick(VERBS))
+                    .append("\")) {\n")
+                    .append("                count++;\n")
+                    .append("            }\n")
+                    .append("        }\n");
+                case 1 -> {
+                    boolean shortName = !shortLocal && random.nextInt(6) == 0; // planted: 2.5.1 warning
+                    shortLocal |= shortName;
+                    String local = shortName
+                        ? (plantViolations ? "x" : "stepTotal" + s)
+                        : pick(NOUNS) + "Total" + s;
+                    sb.append("        long ").append(local).append(" = ").append(param).append(" * ")
+                      .append(1 + random.nextInt(97)).append(";\n")
+                      .append("        count += (int) (").append(local).append(" % 7);\n");
+                }
+                case 2 -> sb.append("        // keep the running total within bounds\n")
+                    .append("        if (count > ").append(100 + random.nextInt(900)).append(") {\n")
+                    .append("            count = 0;\n")
+                    .append("        }\n");
+                case 3 -> sb.append("        List<String> ").append(pick(NOUNS)).append("List").append(s)
+                    .append(" = new ArrayList<>(").append(noun).append("Names);\n");
+                default -> sb.append("        this.").append(countField).append(" += count;\n");
+            }
+        }
+        sb.append("        return count;\n    }\n\n");
+    }
+
+    private String pick(String[] words) {
+        return words[random.nextInt(words.length)];
+    }
+
+    private static String cap(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
@@ -0,0 +1,71 @@
+package com.checkstyleplus.benchmarks;
+
+import java.util.Random;
+import java.util.function.ToLongFunction;
+
+/**
+ * How long the stub server takes to answer, in milliseconds, drawn per request from one of:
+ * <ul>
+ *   <li>{@code fixed:MS}</li>
+ *   <li>{@code uniform:MIN-MAX}</li>
+ *   <li>{@code normal:MEAN,SD} (cut off at 0)</li>
+ *   <li>{@code lognormal:MEDIAN,SIGMA} (long tail, like real model latency)</li>
+ *   <li>{@code exp:MEAN}</li>
+ * </ul>
+ */
+public final class LatencyDistribution {
+
+    private final String spec;
+    private final ToLongFunction<Random> sampler;
+
+    private LatencyDistribution(String spec, ToLongFunction<Random> sampler) {
+        this.spec = spec;
+        this.sampler = sampler;
+    }
+
+    public long sampleMillis(Random random) {
+        return sampler.applyAsLong(random);
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+
+    public static LatencyDistribution parse(String spec) {
+        int colon = spec.indexOf(':');
+        String kind = (colon < 0) ? spec : spec.substring(0, colon);
+        String[] args = (colon < 0) ? new String[0] : spec.substring(colon + 1).split("[,-]");
+        try {
+            ToLongFunction<Random> sampler = switch (kind.trim().toLowerCase()) {
+                case "fixed" -> {
+                    long ms = Long.parseLong(args[0].trim());
+                    yield random -> ms;
+                }
+                case "uniform" -> {
+                    long min = Long.parseLong(args[0].trim());
+                    long max = Long.parseLong(args[1].trim());
+                    yield random -> min + (long) (random.nextDouble() * (max - min));
+                }
+                case "normal" -> {
+                    double mean = Double.parseDouble(args[0].trim());
+                    double sd = Double.parseDouble(args[1].trim());
+                    yield random -> Math.max(0, Math.round(mean + sd * random.nextGaussian()));
+                }
+                case "lognormal" -> {
+                    double median = Double.parseDouble(args[0].trim());
+                    double sigma = Double.parseDouble(args[1].trim());
+                    yield random -> Math.round(median * Math.exp(sigma * random.nextGaussian()));
+                }
+                case "exp" -> {
+                    double mean = Double.parseDouble(args[0].trim());
+                    yield random -> Math.round(-mean * Math.log(1 - random.nextDouble()));
+                }
+                default -> throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+            };
+            return new LatencyDistribution(spec, sampler);
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed latency distribution: " + spec, e);
+        }
+    }
+}
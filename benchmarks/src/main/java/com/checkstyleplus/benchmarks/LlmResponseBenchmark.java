@@ -0,0 +1,83 @@
+package com.checkstyleplus.benchmarks;
+
+import com.checkstyleplus.CheckSession;
+import com.checkstyleplus.utils.CacheUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One Checker pass over a file with only LlmStyleCheck configured, its reply already cached in memory,
+ * so the time goes to parsing the file and handling the stub server's reply (text or structured).
+ * The {@code EMPTY} replies give the same pass over a file of the same shape without planted violations,
+ * so there are no findings to handle, as a baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class LlmResponseBenchmark {
+
+    /** The form of the replies. */
+    public enum Replies { TEXT, STRUCTURED, EMPTY }
+
+    private static final String CONFIG = """
+        <?xml version="1.0"?>
+        <!DOCTYPE module PUBLIC
+                  "-//Checkstyle//DTD Checkstyle Configuration 1.3//EN"
+                  "https://checkstyle.org/dtds/configuration_1_3.dtd">
+        <module name="Checker">
+          <module name="TreeWalker">
+            <module name="com.checkstyleplus.LlmStyleCheck">
+              <property name="apiKey" value="benchmark"/>
+              <property name="endpoint" value="%s"/>
+              <property name="showWarnings" value="true"/>
+              <property name="structuredOutput" value="%s"/>
+              <property name="fallbackToBuiltInChecks" value="false"/>
+            </module>
+          </module>
+        </module>
+        """;
+
+    @Param({Corpus.SMALL, Corpus.MEDIUM, Corpus.LARGE})
+    public String size;
+
+    @Param({"TEXT", "STRUCTURED", "EMPTY"})
+    public Replies replies;
+
+    private Sandbox sandbox;
+    private StubLlmServer server;
+    private CheckSession session;
+    private List<File> files;
+
+    @Setup
+    public void setUp() throws Exception {
+        sandbox = new Sandbox();
+        CacheUtils.keepInMemory(1024);
+        server = StubLlmServer.start(0, StubLlmServer.Settings.instant());
+        Path config = Files.writeString(sandbox.home().resolve("checkstyle.xml"),
+            CONFIG.formatted(server.endpoint(StubLlmServer.Provider.OPENAI), replies == Replies.STRUCTURED));
+        files = List.of(Corpus.load(size, replies != Replies.EMPTY).writeTo(sandbox.home()).toFile());
+        session = CheckSession.open(config);
+        session.check(files, OutputStream.nullOutputStream(), OutputStream.nullOutputStream()); // fills the cache
+    }
+
+    @TearDown
+    public void tearDown() {
+        session.close();
+        server.close();
+        sandbox.close();
+    }
+
+    @Benchmark
+    public int handleRecordedReply() throws Exception {
+        return session.check(files, OutputStream.nullOutputStream(), OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,276 @@
+package com.checkstyleplus.benchmarks;
+
+import com.checkstyleplus.CheckSession;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end load test: checks a generated (or given) Java tree with the Google-style configuration and
+ * LlmStyleCheck talking over HTTP to a local {@link StubLlmServer}, and reports files/sec, per-file latency
+ * percentiles and peak heap. The cache starts empty in a throwaway home directory unless {@code --warm}
+ * runs the tree once first, so concurrency, caching and retry changes can be compared offline.
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar com.checkstyleplus.benchmarks.LoadTest [options]}
+ * <pre>
+ *   --files N              files to generate (default 500)
+ *   --corpus DIR           check the .java files under DIR instead of generating them
+ *   --seed N               seed of the generated files and of the server's random draws (default 42)
+ *   --provider NAME        openai, anthropic or gemini (default openai)
+ *   --latency SPEC         server latency, see {@link LatencyDistribution} (default lognormal:800,0.5)
+ *   --error-rate R         share of requests failing with a 500 (default 0)
+ *   --throttle-rate R      share of requests throttled with a 429 (default 0)
+ *   --retry-after S        Retry-After of a 429, in seconds (default 1)
+ *   --threads N            Checkers running in parallel, as CheckstylePlus --threads (default 1)
+ *   --set NAME=VALUE       extra LlmStyleCheck property, e.g. concurrency=32 or streaming=true (repeatable)
+ *   --warm                 run once before measuring, so the measured run is served from the cache
+ *   --report FILE          also write the results as JSON
+ * </pre>
+ */
+public class LoadTest {
+
+    private int files = 500;
+    private Path corpus;
+    private long seed = 42;
+    private StubLlmServer.Provider provider = StubLlmServer.Provider.OPENAI;
+    private String latency = "lognormal:800,0.5";
+    private double errorRate;
+    private double throttleRate;
+    private int retryAfterSeconds = 1;
+    private int threads = 1;
+    private final Map<String, String> properties = new LinkedHashMap<>();
+    private boolean warm;
+    private Path report;
+
+    public static void main(String[] args) throws Exception {
+        LoadTest test = parse(args);
+        Map<String, Object> results = test.run();
+        print(results);
+        if (test.report != null) {
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(test.report.toFile(), results);
+        }
+        System.exit(0); // HTTP and prefetch pools are not daemon threads
+    }
+
+    private static LoadTest parse(String[] args) {
+        LoadTest test = new LoadTest();
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            switch (a) {
+                case "--files" -> test.files = Integer.parseInt(requireValue(args, ++i, a));
+                case "--corpus" -> test.corpus = Path.of(requireValue(args, ++i, a));
+                case "--seed" -> test.seed = Long.parseLong(requireValue(args, ++i, a));
+                case "--provider" -> test.provider =
+                    StubLlmServer.Provider.valueOf(requireValue(args, ++i, a).toUpperCase(Locale.ROOT));
+                case "--latency" -> test.latency = requireValue(args, ++i, a);
+                case "--error-rate" -> test.errorRate = Double.parseDouble(requireValue(args, ++i, a));
+                case "--throttle-rate" -> test.throttleRate = Double.parseDouble(requireValue(args, ++i, a));
+                case "--retry-after" -> test.retryAfterSeconds = Integer.parseInt(requireValue(args, ++i, a));
+                case "--threads" -> test.threads = Math.max(1, Integer.parseInt(requireValue(args, ++i, a)));
+                case "--set" -> {
+                    String[] kv = requireValue(args, ++i, a).split("=", 2);
+                    if (kv.length != 2 || !kv[0].matches("[A-Za-z]+")) {
+                        throw new IllegalArgumentException("Expected --set name=value, got " + args[i]);
+                    }
+                    test.properties.put(kv[0], kv[1]);
+                }
+                case "--warm" -> test.warm = true;
+                case "--report" -> test.report = Path.of(requireValue(args, ++i, a));
+                default -> throw new IllegalArgumentException("Unknown option: " + a);
+            }
+        }
+        return test;
+    }
+
+    private Map<String, Object> run() throws Exception {
+        StubLlmServer.Settings settings = new StubLlmServer.Settings(LatencyDistribution.parse(latency),
+            errorRate, throttleRate, retryAfterSeconds, seed);
+        try (Sandbox sandbox = new Sandbox(); StubLlmServer server = StubLlmServer.start(0, settings)) {
+            List<File> toCheck = new ArrayList<>();
+            List<Path> paths = (corpus != null)
+                ? javaFilesUnder(corpus)
+                : new CorpusGenerator(seed).generate(sandbox.home().resolve("corpus"), files);
+            for (Path path : paths) toCheck.add(path.toFile());
+
+            Path config = Files.writeString(sandbox.home().resolve("checkstyle.xml"),
+                BenchmarkConfiguration.bundled(server.endpoint(provider), properties));
+            try (CheckSession session = CheckSession.open(config)) {
+                if (warm) {
+                    session.check(toCheck, threads, OutputStream.nullOutputStream(), OutputStream.nullOutputStream());
+                }
+                long requestsBefore = server.requests();
+                long failedBefore = server.failed();
+                long throttledBefore = server.throttled();
+                long promptTokensBefore = server.promptTokens();
+                long completionTokensBefore = server.completionTokens();
+
+                FileTimer timer = new FileTimer();
+                session.addFileListener(timer);
+                HeapSampler heap = HeapSampler.start();
+                long start = System.nanoTime();
+                int errors = session.check(toCheck, threads,
+                    OutputStream.nullOutputStream(), OutputStream.nullOutputStream());
+                double seconds = (System.nanoTime() - start) / 1e9;
+                long peakHeap = heap.stop();
+
+                Map<String, Object> results = new LinkedHashMap<>();
+                results.put("provider", provider.name().toLowerCase(Locale.ROOT));
+                results.put("latency", latency);
+                results.put("errorRate", errorRate);
+                results.put("throttleRate", throttleRate);
+                results.put("threads", threads);
+                results.put("properties", properties);
+                results.put("warm", warm);
+                results.put("files", toCheck.size());
+                results.put("seconds", seconds);
+                results.put("filesPerSecond", toCheck.size() / seconds);
+                results.put("fileLatencyMillis", timer.percentiles());
+                results.put("peakHeapMb", peakHeap / (1024.0 * 1024.0));
+                results.put("errors", errors);
+                results.put("violations", timer.violations.get());
+                results.put("llmViolations", timer.llmViolations.get());
+                results.put("requests", server.requests() - requestsBefore);
+                results.put("serverErrors", server.failed() - failedBefore);
+                results.put("throttled", server.throttled() - throttledBefore);
+                results.put("promptTokens", server.promptTokens() - promptTokensBefore);
+                results.put("completionTokens", server.completionTokens() - completionTokensBefore);
+                return results;
+            }
+        }
+    }
+
+    private static List<Path> javaFilesUnder(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(p -> p.toString().endsWith(".java")).sorted().toList();
+        }
+    }
+
+    private static void print(Map<String, Object> results) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> latency = (Map<String, Object>) results.get("fileLatencyMillis");
+        System.out.printf(Locale.ROOT, "files          %d in %.2f s%n", results.get("files"), results.get("seconds"));
+        System.out.printf(Locale.ROOT, "throughput     %.1f files/s%n", results.get("filesPerSecond"));
+        System.out.printf(Locale.ROOT, "file latency   p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+            latency.get("p50"), latency.get("p90"), latency.get("p99"), latency.get("max"));
+        System.out.printf(Locale.ROOT, "peak heap      %.1f MB%n", results.get("peakHeapMb"));
+        System.out.printf(Locale.ROOT, "requests       %d (%d failed, %d throttled)%n",
+            results.get("requests"), results.get("serverErrors"), results.get("throttled"));
+        System.out.printf(Locale.ROOT, "violations     %d (%d from LlmStyleCheck, %d errors)%n",
+            results.get("violations"), results.get("llmViolations"), results.get("errors"));
+    }
+
+    private static String requireValue(String[] args, int i, String option) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[i];
+    }
+
+    /**
+     * Times each file from its start to its end on the Checker's thread, including the wait for its LLM reply,
+     * and counts the violations reported.
+     */
+    private static final class FileTimer implements AuditListener {
+
+        private final Map<String, Long> started = new ConcurrentHashMap<>();
+        private final List<Long> durations = new ArrayList<>();
+        private final AtomicLong violations = new AtomicLong();
+        private final AtomicLong llmViolations = new AtomicLong();
+
+        @Override
+        public void fileStarted(AuditEvent event) {
+            started.put(event.getFileName(), System.nanoTime());
+        }
+
+        @Override
+        public void fileFinished(AuditEvent event) {
+            Long start = started.remove(event.getFileName());
+            if (start == null) return;
+            long duration = System.nanoTime() - start;
+            synchronized (durations) {
+                durations.add(duration);
+            }
+        }
+
+        @Override public void auditStarted(AuditEvent event) { /* timed by the caller */ }
+        @Override public void auditFinished(AuditEvent event) { /* timed by the caller */ }
+
+        @Override
+        public void addError(AuditEvent event) {
+            violations.incrementAndGet();
+            if (event.getSourceName().endsWith("LlmStyleCheck")) llmViolations.incrementAndGet();
+        }
+
+        @Override public void addException(AuditEvent event, Throwable throwable) { /* not timed */ }
+
+        Map<String, Object> percentiles() {
+            long[] sorted;
+            synchronized (durations) {
+                sorted = durations.stream().mapToLong(Long::longValue).toArray();
+            }
+            Arrays.sort(sorted);
+            Map<String, Object> p = new LinkedHashMap<>();
+            p.put("p50", percentile(sorted, 50));
+            p.put("p90", percentile(sorted, 90));
+            p.put("p99", percentile(sorted, 99));
+            p.put("max", percentile(sorted, 100));
+            return p;
+        }
+
+        private static double percentile(long[] sorted, double pct) {
+            if (sorted.length == 0) return 0;
+            int index = (int) Math.ceil(pct / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+        }
+    }
+
+    /**
+     * Samples the used heap every 10 ms and keeps the highest value seen.
+     */
+    private static final class HeapSampler {
+
+        private final AtomicLong peak = new AtomicLong();
+        private volatile boolean running = true;
+        private Thread thread;
+
+        static HeapSampler start() {
+            HeapSampler sampler = new HeapSampler();
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            sampler.thread = Thread.ofPlatform().daemon().name("heap-sampler").start(() -> {
+                while (sampler.running) {
+                    sampler.peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+            return sampler;
+        }
+
+        long stop() throws InterruptedException {
+            running = false;
+            thread.join();
+            return peak.get();
+        }
+    }
+}
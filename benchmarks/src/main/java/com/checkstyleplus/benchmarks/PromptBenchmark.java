@@ -0,0 +1,39 @@
+package com.checkstyleplus.benchmarks;
+
+import com.checkstyleplus.utils.PromptUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the whole-file prompt: numbering the source lines and wrapping them in the template.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PromptBenchmark {
+
+    @Param({Corpus.SMALL, Corpus.MEDIUM, Corpus.LARGE})
+    public String size;
+
+    private String source;
+
+    @Setup
+    public void setUp() {
+        source = Corpus.load(size).source();
+        PromptUtils.loadPromptTemplate(); // read once per run, not part of the measurement
+    }
+
+    @Benchmark
+    public String addLineNumbers() {
+        return PromptUtils.addLineNumbers(source);
+    }
+
+    @Benchmark
+    public String buildPrompt() {
+        return PromptUtils.buildPrompt(source);
+    }
+}
@@ -0,0 +1,59 @@
+package com.checkstyleplus.benchmarks;
+
+import com.checkstyleplus.utils.CacheUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * A throwaway home directory for one benchmark fork, so the LLM cache under ~/.llm-checks-cache
+ * starts empty and the user's real cache is never read or written.
+ * The cache is opened once per JVM, so the sandbox has to be created before anything touches it
+ * (JMH runs every benchmark and parameter combination in a fresh fork).
+ */
+public class Sandbox implements AutoCloseable {
+
+    private final Path home;
+    private final String previousHome;
+
+    public Sandbox() throws IOException {
+        this.home = Files.createTempDirectory("checkstyle-plus-bench");
+        this.previousHome = System.getProperty("user.home");
+        System.setProperty("user.home", home.toString());
+    }
+
+    public Path home() {
+        return home;
+    }
+
+    public Path cacheDir() {
+        return home.resolve(".llm-checks-cache");
+    }
+
+    /**
+     * Delete the cached replies, so the next run has to ask the model again.
+     */
+    public void clearCache() throws IOException {
+        if (!Files.isDirectory(cacheDir())) return;
+        try (Stream<Path> entries = Files.list(cacheDir())) {
+            for (Path entry : (Iterable<Path>) entries::iterator) Files.deleteIfExists(entry);
+        }
+    }
+
+    @Override
+    public void close() {
+        CacheUtils.close();
+        System.setProperty("user.home", previousHome);
+        try (Stream<Path> paths = Files.walk(home)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
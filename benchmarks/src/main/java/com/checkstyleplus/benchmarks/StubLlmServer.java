@@ -0,0 +1,649 @@
+package com.checkstyleplus.benchmarks;
+
+import com.checkstyleplus.utils.StructuredReply;
+import com.checkstyleplus.utils.TokenEstimator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A local HTTP server that answers like the providers the adapters talk to, for load tests without API costs:
+ * OpenAI chat completions ({@code /v1/chat/completions}), Anthropic messages ({@code /v1/messages}) and
+ * Gemini ({@code /v1beta/models/<model>:generateContent} and {@code :streamGenerateContent}).
+ * Streaming, structured output, batch prompts and identifier-list prompts are answered in each provider's format,
+ * with its {@code usage} fields filled from estimated token counts.
+ * The batch APIs are served too: OpenAI file uploads and batches ({@code /v1/files}, {@code /v1/batches})
+ * and Anthropic Message Batches ({@code /v1/messages/batches}). A job is answered as soon as it is
+ * created, but reports itself running until its status has been asked once, so clients go through a poll.
+ * <p>
+ * Every model request waits for a delay drawn from a {@link LatencyDistribution}, then fails with a 500 or is throttled
+ * with a 429 (and a {@code Retry-After}) at the configured rates. The others get canned findings: the server
+ * reports the code lines that match a few fixed patterns (snake_case methods, lowercase constants and classes,
+ * one-letter locals, line comments above members), such as the ones {@link CorpusGenerator} plants.
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar com.checkstyleplus.benchmarks.StubLlmServer <port> [latency] [errorRate]
+ * [throttleRate]}
+ */
+public class StubLlmServer implements AutoCloseable {
+
+    /**
+     * @param latency           delay before each answer (for streams, half before the first event, the rest spread
+     *                          over the lines)
+     * @param errorRate         share of requests answered with a 500
+     * @param throttleRate      share of requests answered with a 429
+     * @param retryAfterSeconds the {@code Retry-After} of a 429
+     * @param seed              seed of the random draws, so runs with the same settings see the same sequence
+     */
+    public record Settings(LatencyDistribution latency, double errorRate, double throttleRate, int retryAfterSeconds,
+                           long seed) {
+
+        /**
+         * Answer at once and never fail, for benchmarks that measure Checkstyle+ rather than the model.
+         */
+        public static Settings instant() {
+            return new Settings(LatencyDistribution.parse("fixed:0"), 0, 0, 1, 42);
+        }
+    }
+
+    /** The wire format of a provider. */
+    public enum Provider { OPENAI, ANTHROPIC, GEMINI }
+
+    private static final ObjectMapper M = new ObjectMapper();
+    private static final Pattern NUMBERED_LINE = Pattern.compile("^\\s*(\\d+)\\.(.*)$");
+    private static final Pattern NAMED_LINE = Pattern.compile("^(\\d+)\\. (.+) (\\S+)$");
+    private static final Pattern BATCH_HEADER = Pattern.compile("^=== FILE (\\d+)\\b.*$");
+    private static final Pattern SNAKE_METHOD = Pattern.compile("[\\w>\\]]\\s+([a-z][a-z0-9]*_[a-z0-9_]+)\\s*\\(");
+    private static final Pattern LOWER_CONSTANT =
+        Pattern.compile("\\bstatic\\s+final\\s+(?:int|long|double|boolean|String)\\s+([a-z][A-Za-z0-9]*)\\s*=");
+    private static final Pattern LOWER_CLASS = Pattern.compile("\\bclass\\s+([a-z]\\w*)");
+    private static final Pattern SHORT_LOCAL = Pattern.compile("\\b(?:int|long|double|String|var)\\s+([a-z])\\s*[=:]");
+    private static final Pattern MEMBER_START = Pattern.compile("^\\s*(?:public|protected|private|static)\\b");
+
+    private final HttpServer server;
+    private final Settings settings;
+    private final Random random;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong promptTokens = new AtomicLong();
+    private final AtomicLong completionTokens = new AtomicLong();
+    private final AtomicLong batchedRequests = new AtomicLong();
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<String, String> files = new ConcurrentHashMap<>();
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * A batch job, already answered: its output is a JSONL file (OpenAI) or the results (Anthropic).
+     */
+    private static final class Job {
+        final String output;
+        final int requests;
+        final AtomicInteger polls = new AtomicInteger();
+
+        Job(String output, int requests) {
+            this.output = output;
+            this.requests = requests;
+        }
+
+        /** Whether the job reports itself finished to this status request. */
+        boolean poll() {
+            return polls.incrementAndGet() > 1;
+        }
+    }
+
+    private StubLlmServer(HttpServer server, Settings settings) {
+        this.server = server;
+        this.settings = settings;
+        this.random = new Random(settings.seed());
+    }
+
+    /**
+     * Start the server on a loopback port ({@code 0} for any free one).
+     */
+    public static StubLlmServer start(int port, Settings settings) throws IOException {
+        HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        StubLlmServer stub = new StubLlmServer(http, settings);
+        http.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        http.createContext("/", stub::handle);
+        http.start();
+        return stub;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: StubLlmServer <port> [latency] [errorRate] [throttleRate]");
+            System.exit(2);
+        }
+        Settings settings = new Settings(
+            LatencyDistribution.parse(args.length > 1 ? args[1] : "lognormal:800,0.5"),
+            args.length > 2 ? Double.parseDouble(args[2]) : 0,
+            args.length > 3 ? Double.parseDouble(args[3]) : 0,
+            1, 42);
+        StubLlmServer stub = start(Integer.parseInt(args[0]), settings);
+        for (Provider provider : Provider.values()) {
+            System.out.println("StubLlmServer: " + provider + " at " + stub.endpoint(provider));
+        }
+    }
+
+    /**
+     * The endpoint to configure as LlmStyleCheck's {@code endpoint} for the given format.
+     */
+    public String endpoint(Provider provider) {
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        return switch (provider) {
+            case OPENAI -> base + "/v1/chat/completions";
+            case ANTHROPIC -> base + "/v1/messages";
+            case GEMINI -> base + "/v1beta/models/stub:generateContent";
+        };
+    }
+
+    public long requests() { return requests.get(); }
+    public long failed() { return failed.get(); }
+    public long throttled() { return throttled.get(); }
+    public long promptTokens() { return promptTokens.get(); }
+    public long completionTokens() { return completionTokens.get(); }
+    public long batchedRequests() { return batchedRequests.get(); }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    // ========================== Requests ==========================
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            String path = exchange.getRequestURI().getPath();
+            if (path.startsWith("/v1/files") || path.startsWith("/v1/batches")
+                    || path.startsWith("/v1/messages/batches")) {
+                handleBatchApi(exchange, path);
+                return;
+            }
+            Provider provider = path.contains(":generateContent") || path.contains(":streamGenerateContent")
+                ? Provider.GEMINI
+                : path.endsWith("/messages") ? Provider.ANTHROPIC : Provider.OPENAI;
+
+            JsonNode body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = M.readTree(in);
+            }
+            String prompt = promptOf(provider, body);
+            boolean stream = (provider == Provider.GEMINI)
+                ? path.contains(":streamGenerateContent")
+                : body.path("stream").asBoolean(false);
+            boolean structured = isStructured(body);
+
+            long delay = settings.latency().sampleMillis(random);
+            double roll = random.nextDouble();
+            sleep(stream ? delay / 2 : delay);
+            if (roll < settings.errorRate()) {
+                failed.incrementAndGet();
+                sendError(exchange, provider, 500, "stub server error");
+                return;
+            }
+            if (roll < settings.errorRate() + settings.throttleRate()) {
+                throttled.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(settings.retryAfterSeconds()));
+                sendError(exchange, provider, 429, "stub rate limit reached");
+                return;
+            }
+
+            Reply reply = findings(prompt);
+            String text = structured ? reply.document() : reply.text();
+            int inTokens = TokenEstimator.estimate(prompt);
+            int outTokens = TokenEstimator.estimate(text);
+            promptTokens.addAndGet(inTokens);
+            completionTokens.addAndGet(outTokens);
+
+            if (stream) {
+                sendStream(exchange, provider, text, inTokens, outTokens, delay - delay / 2);
+            } else {
+                sendJson(exchange, 200, message(provider, text, structured, inTokens, outTokens));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String promptOf(Provider provider, JsonNode body) {
+        return switch (provider) {
+            case OPENAI, ANTHROPIC -> body.path("messages").path(0).path("content").asText("");
+            case GEMINI -> body.path("contents").path(0).path("parts").path(0).path("text").asText("");
+        };
+    }
+
+    private static boolean isStructured(JsonNode body) {
+        return body.has("response_format") || body.has("tools")
+            || body.path("generationConfig").has("responseSchema");
+    }
+
+    // ========================== Batch APIs ==========================
+    private void handleBatchApi(HttpExchange exchange, String path) throws IOException {
+        boolean post = exchange.getRequestMethod().equals("POST");
+        byte[] raw;
+        try (InputStream in = exchange.getRequestBody()) {
+            raw = in.readAllBytes();
+        }
+        String[] parts = path.split("/");
+        String last = parts[parts.length - 1];
+
+        if (post && path.equals("/v1/files")) {
+            String id = "file-" + ids.incrementAndGet();
+            files.put(id, uploadedFile(exchange, raw));
+            sendJson(exchange, 200, Map.of("id", id, "object", "file", "purpose", "batch"));
+
+        } else if (post && path.equals("/v1/batches")) {
+            String input = files.get(M.readTree(raw).path("input_file_id").asText());
+            if (input == null) {
+                sendError(exchange, Provider.OPENAI, 404, "no such input file");
+                return;
+            }
+            StringBuilder output = new StringBuilder();
+            int count = 0;
+            for (String line : input.split("\n")) {
+                if (line.isBlank()) continue;
+                JsonNode request = M.readTree(line);
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("id", "batch_req_" + ids.incrementAndGet());
+                result.put("custom_id", request.path("custom_id").asText());
+                result.put("response", Map.of("status_code", 200, "request_id", "req_stub",
+                    "body", answer(Provider.OPENAI, request.path("body"))));
+                result.put("error", null);
+                output.append(M.writeValueAsString(result)).append('\n');
+                count++;
+            }
+            String outputFile = "file-" + ids.incrementAndGet();
+            files.put(outputFile, output.toString());
+            String id = "batch_" + ids.incrementAndGet();
+            Job job = new Job(outputFile, count);
+            jobs.put(id, job);
+            sendJson(exchange, 200, openAiBatch(id, job, false));
+
+        } else if (!post && path.startsWith("/v1/batches/") && jobs.containsKey(last)) {
+            Job job = jobs.get(last);
+            sendJson(exchange, 200, openAiBatch(last, job, job.poll()));
+
+        } else if (!post && path.startsWith("/v1/files/") && path.endsWith("/content")
+                && files.containsKey(parts[parts.length - 2])) {
+            sendText(exchange, files.get(parts[parts.length - 2]));
+
+        } else if (post && path.equals("/v1/messages/batches")) {
+            StringBuilder results = new StringBuilder();
+            int count = 0;
+            for (JsonNode request : M.readTree(raw).path("requests")) {
+                results.append(M.writeValueAsString(Map.of(
+                    "custom_id", request.path("custom_id").asText(),
+                    "result", Map.of("type", "succeeded",
+                        "message", answer(Provider.ANTHROPIC, request.path("params"))))))
+                    .append('\n');
+                count++;
+            }
+            String id = "msgbatch_stub" + ids.incrementAndGet();
+            Job job = new Job(results.toString(), count);
+            jobs.put(id, job);
+            sendJson(exchange, 200, anthropicBatch(exchange, id, job, false));
+
+        } else if (!post && path.startsWith("/v1/messages/batches/") && jobs.containsKey(last)) {
+            Job job = jobs.get(last);
+            sendJson(exchange, 200, anthropicBatch(exchange, last, job, job.poll()));
+
+        } else if (!post && path.endsWith("/results") && jobs.containsKey(parts[parts.length - 2])) {
+            sendText(exchange, jobs.get(parts[parts.length - 2]).output);
+
+        } else {
+            sendError(exchange, path.startsWith("/v1/messages") ? Provider.ANTHROPIC : Provider.OPENAI, 404,
+                "no such batch resource: " + path);
+        }
+    }
+
+    /**
+     * The reply to one request of a batch, as the provider's message.
+     */
+    private Map<String, Object> answer(Provider provider, JsonNode body) throws IOException {
+        String prompt = promptOf(provider, body);
+        boolean structured = isStructured(body);
+        Reply reply = findings(prompt);
+        String text = structured ? reply.document() : reply.text();
+        int inTokens = TokenEstimator.estimate(prompt);
+        int outTokens = TokenEstimator.estimate(text);
+        promptTokens.addAndGet(inTokens);
+        completionTokens.addAndGet(outTokens);
+        batchedRequests.incrementAndGet();
+        return message(provider, text, structured, inTokens, outTokens);
+    }
+
+    private static Map<String, Object> openAiBatch(String id, Job job, boolean done) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", id);
+        m.put("object", "batch");
+        m.put("endpoint", "/v1/chat/completions");
+        m.put("completion_window", "24h");
+        m.put("status", done ? "completed" : "in_progress");
+        m.put("output_file_id", done ? job.output : null);
+        m.put("request_counts", Map.of("total", job.requests, "completed", done ? job.requests : 0, "failed", 0));
+        return m;
+    }
+
+    private static Map<String, Object> anthropicBatch(HttpExchange exchange, String id, Job job, boolean done) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", id);
+        m.put("type", "message_batch");
+        m.put("processing_status", done ? "ended" : "in_progress");
+        m.put("request_counts", Map.of("processing", done ? 0 : job.requests, "succeeded", done ? job.requests : 0,
+            "errored", 0, "canceled", 0, "expired", 0));
+        m.put("results_url", done
+            ? "http://" + exchange.getRequestHeaders().getFirst("Host") + "/v1/messages/batches/" + id + "/results"
+            : null);
+        return m;
+    }
+
+    /**
+     * The content of the {@code file} part of a multipart upload.
+     */
+    private static String uploadedFile(HttpExchange exchange, byte[] raw) {
+        String contentType = String.valueOf(exchange.getRequestHeaders().getFirst("Content-Type"));
+        String boundary = "--" + contentType.substring(contentType.indexOf("boundary=") + 9);
+        String body = new String(raw, StandardCharsets.UTF_8);
+        int part = body.indexOf("name=\"file\"");
+        if (part < 0) return "";
+        int start = body.indexOf("\r\n\r\n", part) + 4;
+        int end = body.indexOf("\r\n" + boundary, start);
+        return body.substring(start, end < 0 ? body.length() : end);
+    }
+
+    private static void sendText(HttpExchange exchange, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/jsonl");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, Object> message(Provider provider, String text, boolean structured,
+                                               int inTokens, int outTokens) throws IOException {
+        Map<String, Object> m = new LinkedHashMap<>();
+        switch (provider) {
+            case OPENAI -> {
+                m.put("id", "chatcmpl-stub");
+                m.put("object", "chat.completion");
+                m.put("choices", List.of(Map.of("index", 0, "finish_reason", "stop",
+                    "message", Map.of("role", "assistant", "content", text))));
+                m.put("usage", Map.of("prompt_tokens", inTokens, "completion_tokens", outTokens,
+                    "total_tokens", inTokens + outTokens));
+            }
+            case ANTHROPIC -> {
+                m.put("id", "msg_stub");
+                m.put("type", "message");
+                m.put("role", "assistant");
+                m.put("content", List.of(structured
+                    ? Map.of("type", "tool_use", "id", "toolu_stub", "name", "report_violations",
+                        "input", M.readTree(text))
+                    : Map.of("type", "text", "text", text)));
+                m.put("stop_reason", structured ? "tool_use" : "end_turn");
+                m.put("usage", Map.of("input_tokens", inTokens, "output_tokens", outTokens));
+            }
+            case GEMINI -> {
+                m.put("candidates", List.of(Map.of("finishReason", "STOP",
+                    "content", Map.of("role", "model", "parts", List.of(Map.of("text", text))))));
+                m.put("usageMetadata", Map.of("promptTokenCount", inTokens, "candidatesTokenCount", outTokens,
+                    "totalTokenCount", inTokens + outTokens));
+            }
+        }
+        return m;
+    }
+
+    /**
+     * Send the reply line by line as server-sent events, in the provider's streaming format.
+     */
+    private void sendStream(HttpExchange exchange, Provider provider, String text, int inTokens, int outTokens,
+                            long spreadMillis) throws IOException, InterruptedException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        List<String> chunks = new ArrayList<>();
+        for (String line : text.split("(?<=\n)")) chunks.add(line);
+        long pause = chunks.isEmpty() ? 0 : spreadMillis / chunks.size();
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (provider == Provider.ANTHROPIC) {
+                event(out, "message_start", Map.of("type", "message_start", "message", Map.of("id", "msg_stub",
+                    "type", "message", "role", "assistant", "usage", Map.of("input_tokens", inTokens,
+                        "output_tokens", 0))));
+                event(out, "content_block_start", Map.of("type", "content_block_start", "index", 0,
+                    "content_block", Map.of("type", "text", "text", "")));
+            }
+            for (String chunk : chunks) {
+                sleep(pause);
+                switch (provider) {
+                    case OPENAI -> event(out, null, Map.of("choices", List.of(Map.of("index", 0,
+                        "delta", Map.of("content", chunk)))));
+                    case ANTHROPIC -> event(out, "content_block_delta", Map.of("type", "content_block_delta",
+                        "index", 0, "delta", Map.of("type", "text_delta", "text", chunk)));
+                    case GEMINI -> event(out, null, Map.of("candidates", List.of(Map.of(
+                        "content", Map.of("role", "model", "parts", List.of(Map.of("text", chunk)))))));
+                }
+            }
+            switch (provider) {
+                case OPENAI -> {
+                    event(out, null, Map.of("choices", List.of(Map.of("index", 0, "delta", Map.of(),
+                        "finish_reason", "stop")), "usage", Map.of("prompt_tokens", inTokens,
+                        "completion_tokens", outTokens, "total_tokens", inTokens + outTokens)));
+                    out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+                }
+                case ANTHROPIC -> {
+                    event(out, "content_block_stop", Map.of("type", "content_block_stop", "index", 0));
+                    event(out, "message_delta", Map.of("type", "message_delta",
+                        "delta", Map.of("stop_reason", "end_turn"), "usage", Map.of("output_tokens", outTokens)));
+                    event(out, "message_stop", Map.of("type", "message_stop"));
+                }
+                case GEMINI -> event(out, null, Map.of("candidates", List.of(Map.of("finishReason", "STOP",
+                    "content", Map.of("role", "model", "parts", List.of(Map.of("text", ""))))),
+                    "usageMetadata", Map.of("promptTokenCount", inTokens, "candidatesTokenCount", outTokens,
+                        "totalTokenCount", inTokens + outTokens)));
+            }
+        }
+    }
+
+    private static void event(OutputStream out, String name, Object data) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        if (name != null) sb.append("event: ").append(name).append('\n');
+        sb.append("data: ").append(M.writeValueAsString(data)).append("\n\n");
+        out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void sendError(HttpExchange exchange, Provider provider, int status, String message)
+            throws IOException {
+        String type = (status == 429) ? "rate_limit_error" : "api_error";
+        Object body = switch (provider) {
+            case OPENAI -> Map.of("error", Map.of("message", message, "type", type));
+            case ANTHROPIC -> Map.of("type", "error", "error", Map.of("type", type, "message", message));
+            case GEMINI -> Map.of("error", Map.of("code", status, "message", message,
+                "status", (status == 429) ? "RESOURCE_EXHAUSTED" : "INTERNAL"));
+        };
+        sendJson(exchange, status, body);
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = M.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) Thread.sleep(millis);
+    }
+
+    // ========================== Canned findings ==========================
+    /**
+     * The findings of one prompt, grouped per file of a batch prompt (a single group otherwise).
+     */
+    private record Reply(boolean batch, List<List<StructuredReply.Finding>> files) {
+
+        String text() {
+            StringBuilder sb = new StringBuilder();
+            for (int f = 0; f < files.size(); f++) {
+                if (batch) sb.append("=== FILE ").append(f + 1).append(" ===\n");
+                for (StructuredReply.Finding finding : files.get(f)) {
+                    sb.append(finding.isWarning() ? "[WARNING](" : "[ERROR](").append(finding.line()).append(") (")
+                      .append(finding.section()).append(") (").append(finding.suggestion()).append(")\n");
+                }
+            }
+            return sb.isEmpty() ? " " : sb.toString();
+        }
+
+        String document() throws IOException {
+            List<Map<String, Object>> violations = new ArrayList<>();
+            for (int f = 0; f < files.size(); f++) {
+                for (StructuredReply.Finding finding : files.get(f)) {
+                    Map<String, Object> v = new LinkedHashMap<>();
+                    v.put("file", f + 1);
+                    v.put("line", finding.line());
+                    v.put("section", finding.section());
+                    v.put("identifier", finding.identifier());
+                    v.put("severity", finding.severity());
+                    v.put("suggestion", finding.suggestion());
+                    violations.add(v);
+                }
+            }
+            return M.writeValueAsString(Map.of("violations", violations));
+        }
+    }
+
+    /**
+     * The text reply to the prompt, as the server would send it (for benchmarks without the HTTP round trip).
+     */
+    static String replyText(String prompt) {
+        return findings(prompt).text();
+    }
+
+    /**
+     * The structured-output document the server would send in reply to the prompt.
+     */
+    static String replyDocument(String prompt) throws IOException {
+        return findings(prompt).document();
+    }
+
+    private static Reply findings(String prompt) {
+        String[] lines = prompt.split("\\R");
+        List<List<StructuredReply.Finding>> files = new ArrayList<>();
+        List<StructuredReply.Finding> current = null;
+        boolean batch = false;
+        boolean code = false;
+        boolean names = false;
+
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            Matcher header = BATCH_HEADER.matcher(line);
+            if (header.matches()) {
+                batch = true;
+                current = new ArrayList<>();
+                files.add(current);
+                code = false;
+                continue;
+            }
+            if (line.equals("Code:") || line.equals("Identifiers:")) {
+                code = line.equals("Code:");
+                names = !code;
+                if (current == null) {
+                    current = new ArrayList<>();
+                    files.add(current);
+                }
+                continue;
+            }
+            if (names) {
+                Matcher m = NAMED_LINE.matcher(line);
+                if (m.matches()) nameFinding(current, Integer.parseInt(m.group(1)), m.group(2), m.group(3));
+            } else if (code) {
+                Matcher m = NUMBERED_LINE.matcher(line);
+                if (m.matches()) codeFindings(current, Integer.parseInt(m.group(1)), m.group(2), next(lines, i));
+            }
+        }
+        if (files.isEmpty()) files.add(List.of());
+        return new Reply(batch, files);
+    }
+
+    private static String next(String[] lines, int i) {
+        if (i + 1 >= lines.length) return "";
+        Matcher m = NUMBERED_LINE.matcher(lines[i + 1]);
+        return m.matches() ? m.group(2) : "";
+    }
+
+    private static void codeFindings(List<StructuredReply.Finding> out, int n, String text, String nextText) {
+        Matcher m = SNAKE_METHOD.matcher(text);
+        if (m.find()) out.add(error(n, "2.2.1", m.group(1), "Method name '" + m.group(1)
+            + "' uses underscores; rename it to '" + camel(m.group(1), false) + "'."));
+        m = LOWER_CONSTANT.matcher(text);
+        if (m.find()) out.add(error(n, "2.3.1", m.group(1), "'" + m.group(1)
+            + "' is a constant and should be named '" + upperSnake(m.group(1)) + "'."));
+        m = LOWER_CLASS.matcher(text);
+        if (m.find()) out.add(error(n, "2.1.1", m.group(1), "Class name '" + m.group(1)
+            + "' should be UpperCamelCase, e.g. '" + camel(m.group(1), true) + "'."));
+        m = SHORT_LOCAL.matcher(text);
+        if (m.find()) out.add(new StructuredReply.Finding(0, n, "2.5.1", m.group(1), "warning", "Local variable '"
+            + m.group(1) + "' is a single character; a descriptive name would read better."));
+        if (text.strip().startsWith("//") && MEMBER_START.matcher(nextText).find()) {
+            out.add(error(n, "1.1.2", null, "The comment '" + text.strip().substring(2).strip()
+                + "' describes the member below; write it as a Javadoc comment starting with '/**'."));
+        }
+    }
+
+    private static void nameFinding(List<StructuredReply.Finding> out, int n, String kind, String name) {
+        if (kind.equals("method") && name.contains("_")) {
+            out.add(error(n, "2.2.1", name, "Method name '" + name + "' uses underscores; rename it to '"
+                + camel(name, false) + "'."));
+        } else if (kind.startsWith("static final field") && Character.isLowerCase(name.charAt(0))) {
+            out.add(error(n, "2.3.1", name, "'" + name + "' is a constant and should be named '"
+                + upperSnake(name) + "'."));
+        } else if (kind.equals("class") && Character.isLowerCase(name.charAt(0))) {
+            out.add(error(n, "2.1.1", name, "Class name '" + name + "' should be UpperCamelCase."));
+        } else if (kind.equals("local variable") && name.length() == 1) {
+            out.add(new StructuredReply.Finding(0, n, "2.5.1", name, "warning", "Local variable '" + name
+                + "' is a single character; a descriptive name would read better."));
+        }
+    }
+
+    private static StructuredReply.Finding error(int line, String section, String identifier, String suggestion) {
+        return new StructuredReply.Finding(0, line, section, identifier, "error", suggestion);
+    }
+
+    private static String camel(String name, boolean upperFirst) {
+        StringBuilder sb = new StringBuilder();
+        boolean up = upperFirst;
+        for (char c : name.toCharArray()) {
+            if (c == '_') {
+                up = true;
+            } else {
+                sb.append(up ? Character.toUpperCase(c) : c);
+                up = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String upperSnake(String name) {
+        return name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+    }
+}
@@ -0,0 +1,306 @@
+package com.checkstyleplus;
+
+import com.checkstyleplus.adapters.BatchApi;
+import com.checkstyleplus.utils.CacheUtils;
+import com.checkstyleplus.utils.ReplyUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * BatchScan — the {@code --batch-submit} / {@code --batch-collect} workflow for full scans that can wait
+ * for their replies, through the provider's batch API (see {@link BatchApi}) instead of one request per file.
+ * <p>
+ * Submitting plans every file like a normal run and sends the prompts that miss the reply cache as batch
+ * jobs, all prompts of a file in the same job, each job kept under the providers' request and size limits.
+ * Collecting waits for each job to finish, plans the files again and caches the replies of the ones whose
+ * prompts are unchanged, so the normal pass that follows finds them all in the cache. Identifier names
+ * ({@code nameVerdicts}) are still asked in that pass.
+ * <p>
+ * The submitted jobs are kept in {@link #STATE_FILE} in the working directory, written after each job,
+ * so an interrupted submit or collect picks up where it stopped when run again; the file is removed
+ * once every job is collected.
+ */
+class BatchScan {
+
+    static final String STATE_FILE = ".checkstyle-plus-batch.json";
+
+    /** Bump when the stored format changes. */
+    private static final int FORMAT_VERSION = 1;
+    /** Well under the limits of both providers (50,000 and 100,000 requests per job). */
+    static final int MAX_JOB_REQUESTS = 10_000;
+    /**
+     * Prompt bytes per job, well under the limits of both providers (a 200 MB input file, 256 MB per batch)
+     * once the prompts are JSON-escaped and wrapped in their request fields.
+     */
+    static final long MAX_JOB_BYTES = 100L * 1024 * 1024;
+    private static final long FIRST_POLL_MILLIS = 5_000;
+    private static final long MAX_POLL_MILLIS = 60_000;
+
+    private static final ObjectMapper M = new ObjectMapper();
+
+    private final LlmStyleCheck settings;
+    private final BatchApi api;
+    private final Path stateFile;
+    private final PrintStream err;
+    private final String settingsKey;
+    private ObjectNode state;
+
+    private BatchScan(LlmStyleCheck settings, BatchApi api, Path stateFile, PrintStream err) throws Exception {
+        this.settings = settings;
+        this.api = api;
+        this.stateFile = stateFile;
+        this.err = err;
+        this.settingsKey = CacheUtils.sha256(settings.cacheSettings());
+    }
+
+    /**
+     * The workflow for the session's LlmStyleCheck, or null (with the reason printed) if it cannot batch.
+     */
+    static BatchScan open(CheckSession session, Path workDir, PrintStream err) throws Exception {
+        LlmStyleCheck settings = session.llmSettings();
+        if (settings == null || !settings.isActive()) {
+            err.println("BatchScan: LlmStyleCheck is not enabled with an endpoint");
+            return null;
+        }
+        BatchApi api = settings.createBatchApi();
+        if (api == null) {
+            err.println("BatchScan: no batch API for " + settings.getEndpoint()
+                + " (OpenAI and Anthropic endpoints have one)");
+            return null;
+        }
+        BatchScan scan = new BatchScan(settings, api, workDir.resolve(STATE_FILE), err);
+        return scan.loadState() ? scan : null;
+    }
+
+    /**
+     * Send the cache-missing prompts of the files as batch jobs, skipping the ones an earlier,
+     * interrupted submit already sent.
+     *
+     * @return whether every job was submitted
+     */
+    boolean submit(List<File> files) throws InterruptedException {
+        Set<String> submitted = new HashSet<>();
+        for (JsonNode job : state.path("jobs")) {
+            for (JsonNode id : job.path("requests")) submitted.add(id.asText());
+        }
+
+        List<BatchApi.Request> requests = new ArrayList<>();
+        List<String> jobFiles = new ArrayList<>();
+        long jobBytes = 0;
+        int planned = 0;
+        int jobs = 0;
+        for (File file : files) {
+            if (!file.getName().endsWith(".java")) continue;
+            List<String> prompts = cacheMissingPrompts(file);
+            List<BatchApi.Request> fileRequests = new ArrayList<>();
+            long fileBytes = 0;
+            for (String prompt : prompts) {
+                String id = idOf(prompt);
+                if (submitted.add(id)) {
+                    fileRequests.add(new BatchApi.Request(id, prompt));
+                    fileBytes += prompt.getBytes(StandardCharsets.UTF_8).length;
+                }
+            }
+            if (fileRequests.isEmpty()) continue;
+            planned++;
+
+            if (!fitsInJob(requests.size(), jobBytes, fileRequests.size(), fileBytes)) {
+                if (!submitJob(requests, jobFiles)) return false;
+                jobs++;
+                requests.clear();
+                jobFiles.clear();
+                jobBytes = 0;
+            }
+            requests.addAll(fileRequests);
+            jobFiles.add(file.getAbsolutePath());
+            jobBytes += fileBytes;
+        }
+        if (!requests.isEmpty()) {
+            if (!submitJob(requests, jobFiles)) return false;
+            jobs++;
+        }
+        err.println("BatchScan: " + planned + " file(s) sent in " + jobs + " batch job(s), "
+            + state.path("jobs").size() + " job(s) to collect with --batch-collect");
+        return true;
+    }
+
+    /**
+     * Wait for every submitted job to finish and cache its replies.
+     *
+     * @return whether every file got its replies (the others are left to the normal pass); false also
+     *         when a job could not be checked, which is kept for the next collect
+     */
+    boolean collect() throws InterruptedException {
+        if (state.path("jobs").isEmpty()) err.println("BatchScan: no batch jobs to collect in " + stateFile);
+        boolean complete = true;
+        for (JsonNode job : state.path("jobs")) {
+            if (job.path("collected").asBoolean()) continue;
+            String id = job.path("id").asText();
+            Map<String, String> replies = awaitJob(id, job.path("requests").size());
+            if (replies == null) return false; // the job stays in the state file for the next collect
+
+            int filled = 0;
+            for (JsonNode path : job.path("files")) {
+                if (cacheReplies(new File(path.asText()), replies)) filled++;
+            }
+            err.println("BatchScan: job " + id + " cached the replies of " + filled + " of "
+                + job.path("files").size() + " file(s)");
+            complete &= filled == job.path("files").size();
+            ((ObjectNode) job).put("collected", true);
+            if (!saveState()) return false;
+        }
+        try {
+            Files.deleteIfExists(stateFile);
+        } catch (IOException e) {
+            err.println("BatchScan: could not remove " + stateFile + " - " + e.getMessage());
+        }
+        return complete;
+    }
+
+    /**
+     * Poll the job until it finishes, backing off up to a minute between checks.
+     *
+     * @return its replies, or null if the provider could not be asked
+     */
+    private Map<String, String> awaitJob(String id, int requests) throws InterruptedException {
+        long pause = FIRST_POLL_MILLIS;
+        while (true) {
+            try {
+                Map<String, String> replies = api.batchResults(id);
+                if (replies != null) return replies;
+            } catch (IOException e) {
+                err.println("BatchScan: could not check job " + id + ", run --batch-collect again - "
+                    + e.getMessage());
+                return null;
+            }
+            err.println("BatchScan: job " + id + " (" + requests + " request(s)) still running, checking again in "
+                + pause / 1000 + "s");
+            Thread.sleep(pause);
+            pause = Math.min(MAX_POLL_MILLIS, pause * 2);
+        }
+    }
+
+    private List<String> cacheMissingPrompts(File file) {
+        try {
+            LlmPlan plan = settings.planFor(file, false);
+            if (plan.prompt() == null || plan.cachedReply().isPresent()) return List.of();
+            return plan.prompts();
+        } catch (Exception e) {
+            err.println("BatchScan: skipped " + file + " - " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Cache the file's reply if the job answered every prompt it has now.
+     */
+    private boolean cacheReplies(File file, Map<String, String> replies) {
+        try {
+            LlmPlan plan = settings.planFor(file, false);
+            if (plan.prompt() == null) return false;
+            List<String> windowReplies = new ArrayList<>();
+            for (String prompt : plan.prompts()) {
+                String reply = replies.get(idOf(prompt));
+                if (reply == null) return false; // changed since submitted, or the request failed
+                windowReplies.add(reply);
+            }
+            String reply = plan.isSplit() ? ReplyUtils.mergeReplies(windowReplies) : windowReplies.get(0);
+            plan.cacheReply(reply);
+            plan.complete(reply);
+            return true;
+        } catch (Exception e) {
+            err.println("BatchScan: could not cache " + file + " - " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Whether a file's requests can join the job being filled without taking it over the limits. An empty
+     * job takes any file, so a file over the limits on its own still gets a job to itself.
+     */
+    static boolean fitsInJob(int jobRequests, long jobBytes, int fileRequests, long fileBytes) {
+        return jobRequests == 0
+            || jobRequests + fileRequests <= MAX_JOB_REQUESTS && jobBytes + fileBytes <= MAX_JOB_BYTES;
+    }
+
+    private boolean submitJob(List<BatchApi.Request> requests, List<String> files) throws InterruptedException {
+        String id;
+        try {
+            id = api.submitBatch(requests);
+        } catch (IOException e) {
+            err.println("BatchScan: could not submit a job of " + requests.size() + " request(s) - "
+                + e.getMessage());
+            return false;
+        }
+        ObjectNode job = ((ArrayNode) state.get("jobs")).addObject();
+        job.put("id", id);
+        job.put("submitted", System.currentTimeMillis());
+        job.put("collected", false);
+        ArrayNode ids = job.putArray("requests");
+        requests.forEach(r -> ids.add(r.id()));
+        ArrayNode paths = job.putArray("files");
+        files.forEach(paths::add);
+        err.println("BatchScan: submitted job " + id + " with " + requests.size() + " request(s)");
+        return saveState();
+    }
+
+    /**
+     * The custom id of a prompt: its hash, so the same prompt planned again finds its reply.
+     */
+    private String idOf(String prompt) {
+        try {
+            return CacheUtils.sha256(settingsKey + "\n" + prompt);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean loadState() {
+        try {
+            if (Files.exists(stateFile)) {
+                JsonNode stored = M.readTree(stateFile.toFile());
+                if (stored.path("version").asInt() != FORMAT_VERSION
+                        || !settingsKey.equals(stored.path("settings").asText())) {
+                    err.println("BatchScan: " + stateFile + " holds jobs of other model settings;"
+                        + " collect them with those settings or delete the file");
+                    return false;
+                }
+                state = (ObjectNode) stored;
+                return true;
+            }
+        } catch (IOException e) {
+            err.println("BatchScan: could not read " + stateFile + " - " + e.getMessage());
+            return false;
+        }
+        state = M.createObjectNode();
+        state.put("version", FORMAT_VERSION);
+        state.put("settings", settingsKey);
+        state.put("endpoint", settings.getEndpoint());
+        state.putArray("jobs");
+        return true;
+    }
+
+    private boolean saveState() {
+        try {
+            // Written aside and moved, so an interruption never leaves half a file
+            Path tmp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+            M.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), state);
+            Files.move(tmp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            err.println("BatchScan: could not write " + stateFile + " - " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.checkstyleplus;
+
+import com.checkstyleplus.utils.CacheUtils;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * CheckDaemon — a long-lived CheckstylePlus process serving checks over a Unix domain socket.
+ * It keeps the configured Checker, the HTTP connections to the model and recently used cache
+ * entries warm between runs, and reloads a configuration when its checkstyle.xml changes.
+ * <p>
+ * The protocol is line based (UTF-8), so any client can speak it. A request is
+ * <pre>
+ * checkstyleplus/1
+ * cwd &lt;working directory&gt;
+ * arg &lt;argument&gt;        (once per command-line argument)
+ * end
+ * </pre>
+ * and the reply streams {@code o <line>} (stdout) and {@code e <line>} (stderr) lines,
+ * ending with {@code x <exit code>}. Diagnostics printed to System.err by any thread while a run is in
+ * progress (API errors, budget reports, truncation warnings) are relayed to that run's client.
+ */
+public class CheckDaemon {
+
+    private static final String HELLO = "checkstyleplus/1";
+    private static final int MEMORY_CACHE_ENTRIES = 4096;
+
+    private static final Map<Path, CheckSession> SESSIONS = new HashMap<>();
+    private static final RelayedErr RELAYED_ERR = new RelayedErr(System.err);
+
+    public static Path defaultSocket() {
+        return Paths.get(System.getProperty("user.home"), ".llm-checks-cache", "daemon.sock");
+    }
+
+    /**
+     * Serve check requests on the socket until the process is stopped.
+     */
+    public static void serve(Path socket) throws IOException {
+        Files.createDirectories(socket.toAbsolutePath().getParent());
+        if (Files.exists(socket)) {
+            if (isListening(socket)) {
+                System.err.println("CheckDaemon: a daemon is already listening on " + socket);
+                return;
+            }
+            Files.delete(socket); // left behind by a daemon that was killed
+        }
+
+        CacheUtils.keepInMemory(MEMORY_CACHE_ENTRIES);
+        System.setErr(new PrintStream(RELAYED_ERR, true, StandardCharsets.UTF_8));
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            socket.toFile().deleteOnExit();
+            System.out.println("CheckDaemon: listening on " + socket);
+            while (true) {
+                SocketChannel channel = server.accept();
+                Thread.ofVirtual().name("checkstyleplus-client").start(() -> handle(channel));
+            }
+        }
+    }
+
+    /**
+     * Run the command line on a daemon and relay its output.
+     *
+     * @return the daemon's exit code, or -1 if no daemon could be reached
+     */
+    public static int forward(Path socket, String[] args) {
+        if (!Files.exists(socket)) return -1;
+        for (String a : args) {
+            if (a.indexOf('\n') >= 0 || a.indexOf('\r') >= 0) return -1;
+        }
+
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            Writer request = new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8);
+            request.write(HELLO + "\n");
+            request.write("cwd " + Paths.get("").toAbsolutePath() + "\n");
+            for (String a : args) request.write("arg " + a + "\n");
+            request.write("end\n");
+            request.flush();
+
+            BufferedReader reply = new BufferedReader(
+                new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reply.readLine()) != null) {
+                if (line.startsWith("o ")) {
+                    System.out.println(line.substring(2));
+                } else if (line.startsWith("e ")) {
+                    System.err.println(line.substring(2));
+                } else if (line.startsWith("x ")) {
+                    return Integer.parseInt(line.substring(2).trim());
+                }
+            }
+            // Part of the output may already be printed, so do not fall back to a local run
+            System.err.println("CheckDaemon: connection closed before the check finished");
+            return 1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static void handle(SocketChannel channel) {
+        try (channel) {
+            BufferedReader request = new BufferedReader(
+                new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            OutputStream raw = new BufferedOutputStream(Channels.newOutputStream(channel));
+            PrintStream out = new PrintStream(new FramedOutputStream(raw, 'o'), true, StandardCharsets.UTF_8);
+            PrintStream err = new PrintStream(new FramedOutputStream(raw, 'e'), true, StandardCharsets.UTF_8);
+
+            int exitCode;
+            if (!HELLO.equals(request.readLine())) {
+                err.println("CheckDaemon: unsupported client");
+                exitCode = 2;
+            } else {
+                Path cwd = null;
+                List<String> args = new ArrayList<>();
+                String line;
+                while ((line = request.readLine()) != null && !line.equals("end")) {
+                    if (line.startsWith("cwd ")) cwd = Paths.get(line.substring(4));
+                    else if (line.startsWith("arg ")) args.add(line.substring(4));
+                }
+                exitCode = (cwd != null) ? run(cwd, args.toArray(String[]::new), out, err) : 2;
+            }
+
+            out.close();
+            err.close();
+            synchronized (raw) {
+                raw.write(("x " + exitCode + "\n").getBytes(StandardCharsets.UTF_8));
+                raw.flush();
+            }
+        } catch (IOException e) {
+            RELAYED_ERR.daemon.println("CheckDaemon: client error - " + e.getMessage());
+        }
+    }
+
+    private static int run(Path cwd, String[] args, PrintStream out, PrintStream err) {
+        try {
+            CliOptions options = CliOptions.parse(args);
+            options.resolveAgainst(cwd);
+            if (options.delegateToCheckstyle || options.daemon) {
+                err.println("CheckDaemon: option not supported through the daemon: " + String.join(" ", args));
+                return 2;
+            }
+            Path cfg = options.config.normalize();
+            if (!Files.exists(cfg)) {
+                CheckstylePlus.printMissingConfigHelp(err);
+                return 2;
+            }
+
+            // One Checker serves one run at a time
+            synchronized (SESSIONS) {
+                RELAYED_ERR.run = err;
+                try {
+                    return check(cfg, options, out, err);
+                } finally {
+                    RELAYED_ERR.run = null;
+                }
+            }
+        } catch (Exception e) {
+            err.println("CheckDaemon: " + e);
+            return 1;
+        }
+    }
+
+    private static int check(Path cfg, CliOptions options, PrintStream out, PrintStream err) throws Exception {
+        CheckSession session = SESSIONS.get(cfg);
+        if (session != null && session.isStale()) {
+            System.out.println("CheckDaemon: reloading " + cfg);
+            SESSIONS.remove(cfg).close();
+            CacheUtils.close(); // picks up changed cache settings
+            session = null;
+        }
+        if (session == null) {
+            session = CheckSession.open(cfg);
+            SESSIONS.put(cfg, session);
+        }
+        RunBudget.setDeadline(options.llmDeadlineSeconds);
+        int errors = session.check(CheckstylePlus.filesToCheck(options), options.threads, out, err);
+        RunBudget.report(err);
+        CheckstylePlus.writeMetrics(options, err);
+        return (errors > 0) ? 1 : 0;
+    }
+
+    private static boolean isListening(Path socket) {
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(socket)).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stands in for System.err in the daemon: output goes to the client of the run in progress, if any,
+     * and otherwise to the daemon's own stderr.
+     */
+    private static final class RelayedErr extends OutputStream {
+
+        private final PrintStream daemon;
+        private volatile OutputStream run;
+
+        RelayedErr(PrintStream daemon) {
+            this.daemon = daemon;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target().flush();
+        }
+
+        private OutputStream target() {
+            OutputStream r = run;
+            return (r != null) ? r : daemon;
+        }
+    }
+
+    /**
+     * Writes every line as {@code <tag> <line>} to the shared connection.
+     */
+    private static final class FramedOutputStream extends OutputStream {
+
+        private final OutputStream raw;
+        private final char tag;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        FramedOutputStream(OutputStream raw, char tag) {
+            this.raw = raw;
+            this.tag = tag;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (b == '\n') {
+                emit();
+            } else if (b != '\r') {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (raw) {
+                raw.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (line.size() > 0) emit();
+            flush();
+        }
+
+        private void emit() throws IOException {
+            synchronized (raw) {
+                raw.write(tag);
+                raw.write(' ');
+                line.writeTo(raw);
+                raw.write('\n');
+            }
+            line.reset();
+        }
+    }
+}
@@ -0,0 +1,532 @@
+package com.checkstyleplus;
+
+import com.checkstyleplus.utils.RunMetrics;
+import com.puppycrawl.tools.checkstyle.AbstractAutomaticBean;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.ConfigurationLoader;
+import com.puppycrawl.tools.checkstyle.DefaultLogger;
+import com.puppycrawl.tools.checkstyle.PropertiesExpander;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+import org.xml.sax.InputSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * CheckSession — a Checker configured from one checkstyle.xml, reusable for several runs.
+ * Each run reports to its own output streams, so the daemon can keep one session per
+ * configuration and answer every client from it.
+ * <p>
+ * Files LlmStyleCheck could not get an answer for are checked again right after, by a second
+ * Checker running only the built-in checks LlmStyleCheck replaces, so they are never left
+ * without naming and Javadoc checks.
+ * <p>
+ * A run can be spread over several threads, each with its own Checker (and its own LlmStyleCheck)
+ * working through every n-th file. Their events are merged back into file order, so the output
+ * and the error count are those of a single-threaded run. Checks that compare several files
+ * (e.g. TranslationCheck) only see the files of their own thread.
+ * <p>
+ * With LlmStyleCheck's {@code resultCache} on, unchanged files are not checked at all: the violations
+ * stored for them by an earlier run are replayed (see {@link ResultCache}).
+ * <p>
+ * When a run has a {@code --llm-deadline} or a {@link RunBudget} limit, files are checked in the order of
+ * {@link FileSchedule}, most valuable first, so a run stopped by it has used its model time well;
+ * the output still follows the file list.
+ */
+public class CheckSession implements AutoCloseable {
+
+    private static final Set<String> LLM_FAILED = ConcurrentHashMap.newKeySet();
+    private static final Set<String> INCOMPLETE = ConcurrentHashMap.newKeySet();
+
+    private final Path configPath;
+    private final FileTime loadedVersion;
+    private final Configuration configuration;
+    private final Configuration effectiveConfiguration;
+    private final List<Shard> shards = new ArrayList<>();
+    private ResultCache resultCache;
+    private final Map<String, String> resultKeys = new ConcurrentHashMap<>();
+    private final List<AuditListener> fileListeners = new CopyOnWriteArrayList<>();
+
+    private CheckSession(Path configPath, FileTime loadedVersion, Configuration configuration,
+                         Configuration effectiveConfiguration) {
+        this.configPath = configPath;
+        this.loadedVersion = loadedVersion;
+        this.configuration = configuration;
+        this.effectiveConfiguration = effectiveConfiguration;
+    }
+
+    public static CheckSession open(Path configPath) throws CheckstyleException, IOException {
+        FileTime version = Files.getLastModifiedTime(configPath);
+        Configuration configuration = ConfigurationLoader.loadConfiguration(
+            new InputSource(configPath.toUri().toString()),
+            new PropertiesExpander(System.getProperties()),
+            ConfigurationLoader.IgnoredModulesOptions.EXECUTE
+        );
+
+        // Apply filtering if LlmStyleCheck is enabled
+        Configuration effectiveConfig = CheckstylePlus.maybeFilterChecks(configuration);
+
+        CheckSession session = new CheckSession(configPath, version, configuration, effectiveConfig);
+        session.addShard();
+        if (CheckstylePlus.isResultCacheEnabled(configuration)) {
+            try {
+                session.resultCache = new ResultCache(effectiveConfig);
+            } catch (Exception e) {
+                System.err.println("CheckSession: result cache disabled - " + e.getMessage());
+            }
+        }
+        return session;
+    }
+
+    /**
+     * An LlmStyleCheck configured like the session's, or null if it has none enabled.
+     */
+    LlmStyleCheck llmSettings() throws CheckstyleException {
+        return CheckstylePlus.llmSettings(configuration);
+    }
+
+    /**
+     * Have the built-in checks replaced by LlmStyleCheck run on this file, because the LLM gave no answer.
+     */
+    static void fallBackFor(String filePath) {
+        LLM_FAILED.add(filePath);
+    }
+
+    /**
+     * The LLM findings of this file are missing or partial: do not store its results in the result cache.
+     */
+    static void incompleteResults(String filePath) {
+        INCOMPLETE.add(filePath);
+    }
+
+    /**
+     * Also pass the file events of every Checker to {@code listener} as they happen, on the Checker's thread
+     * and before they are put in file order (e.g. to time each file). Replayed files are not reported.
+     */
+    public void addFileListener(AuditListener listener) {
+        fileListeners.add(listener);
+    }
+
+    /**
+     * True when checkstyle.xml changed (or disappeared) since this session was configured.
+     */
+    public boolean isStale() {
+        try {
+            return !Files.getLastModifiedTime(configPath).equals(loadedVersion);
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Check the files on one thread and report to the given streams, which are left open.
+     *
+     * @return the number of errors
+     */
+    public int check(List<File> files, OutputStream out, OutputStream err) throws CheckstyleException {
+        return check(files, 1, out, err);
+    }
+
+    /**
+     * Check the files on up to {@code threads} threads and report to the given streams in file order.
+     *
+     * @return the number of errors
+     */
+    public synchronized int check(List<File> files, int threads, OutputStream out, OutputStream err)
+            throws CheckstyleException {
+        AuditListener logger = new DefaultLogger(
+            out, AbstractAutomaticBean.OutputStreamOptions.NONE,
+            err, AbstractAutomaticBean.OutputStreamOptions.NONE
+        );
+        OrderedOutput output = new OrderedOutput(logger, files);
+        RunMetrics.reset();
+        RunBudget.reset();
+        resultKeys.clear();
+        int replayedErrors = 0;
+        List<Integer> toCheck = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            List<Violation> stored = replayable(files.get(i));
+            if (stored == null) {
+                toCheck.add(i);
+                continue;
+            }
+            output.replay(i, shards.get(0).checker, files.get(i).getAbsolutePath(), stored);
+            for (Violation v : stored) {
+                if (v.getSeverityLevel() == SeverityLevel.ERROR) replayedErrors++;
+            }
+        }
+
+        if (RunBudget.isLimited() && CheckstylePlus.containsEnabledLlmStyleCheck(configuration)) {
+            toCheck = FileSchedule.rank(files, toCheck);
+        }
+
+        int shardCount = Math.max(1, Math.min(threads, toCheck.size()));
+        while (shards.size() < shardCount) addShard();
+        List<List<File>> shares = new ArrayList<>();
+        for (int s = 0; s < shardCount; s++) shares.add(new ArrayList<>());
+        for (int k = 0; k < toCheck.size(); k++) {
+            output.assign(toCheck.get(k), k % shardCount);
+            shares.get(k % shardCount).add(files.get(toCheck.get(k)));
+        }
+
+        LLM_FAILED.clear();
+        INCOMPLETE.clear();
+        List<File> remaining = new ArrayList<>();
+        for (int index : toCheck) remaining.add(files.get(index));
+        CheckstylePlus.startPrefetch(configuration, remaining);
+        output.expectShards(shardCount);
+        try {
+            if (shardCount == 1) {
+                return replayedErrors + shards.get(0).run(output, shares.get(0));
+            }
+            return replayedErrors + runInParallel(output, shares);
+        } finally {
+            LlmPrefetcher.shutdown();
+            for (Shard shard : shards) shard.output = null;
+        }
+    }
+
+    /**
+     * The stored violations of the file when the result cache holds them, otherwise null.
+     */
+    private List<Violation> replayable(File file) {
+        if (resultCache == null) return null;
+        String key = resultCache.keyOf(file);
+        if (key == null) return null;
+        List<Violation> stored = resultCache.lookup(key);
+        if (stored == null) resultKeys.put(file.getAbsolutePath(), key);
+        return stored;
+    }
+
+    @Override
+    public void close() {
+        for (Shard shard : shards) shard.destroy();
+    }
+
+    private int runInParallel(OrderedOutput output, List<List<File>> shares) throws CheckstyleException {
+        int shardCount = shares.size();
+        int[] errors = new int[shardCount];
+        CheckstyleException[] failures = new CheckstyleException[shardCount];
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            int index = i;
+            threads.add(Thread.ofPlatform().name("checker-" + i).start(() -> {
+                try {
+                    errors[index] = shards.get(index).run(output, shares.get(index));
+                } catch (CheckstyleException e) {
+                    failures[index] = e;
+                }
+            }));
+        }
+
+        int total = 0;
+        for (int i = 0; i < shardCount; i++) {
+            try {
+                threads.get(i).join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CheckstyleException("Interrupted while waiting for checker-" + i, e);
+            }
+            total += errors[i];
+        }
+        for (CheckstyleException failure : failures) {
+            if (failure != null) throw failure;
+        }
+        return total;
+    }
+
+    private void addShard() throws CheckstyleException {
+        int index = shards.size();
+        Configuration config = (index == 0)
+            ? effectiveConfiguration
+            : FilteredConfiguration.withCacheFileSuffix(effectiveConfiguration, "." + index);
+        Shard shard = new Shard(index);
+        shard.checker.setModuleClassLoader(Checker.class.getClassLoader());
+        shard.checker.addListener(shard.new ShardListener());
+        shard.checker.configure(config);
+        shards.add(shard);
+    }
+
+    /**
+     * One Checker and the thread-confined state of the run it is part of.
+     */
+    private final class Shard {
+
+        private final int index;
+        private final Checker checker = new Checker();
+        private Checker fallbackChecker;
+        private int fallbackErrors;
+        private volatile OrderedOutput output;
+        private List<Violation> recorded;
+
+        private Shard(int index) {
+            this.index = index;
+        }
+
+        int run(OrderedOutput output, List<File> files) throws CheckstyleException {
+            this.output = output;
+            fallbackErrors = 0;
+            try {
+                return checker.process(files) + fallbackErrors;
+            } finally {
+                output.shardFinished(index);
+            }
+        }
+
+        void destroy() {
+            checker.destroy();
+            if (fallbackChecker != null) fallbackChecker.destroy();
+        }
+
+        private void runFallback(String fileName) {
+            try {
+                if (fallbackChecker == null) {
+                    fallbackChecker = new Checker();
+                    fallbackChecker.setModuleClassLoader(Checker.class.getClassLoader());
+                    fallbackChecker.addListener(new FallbackListener());
+                    fallbackChecker.configure(
+                        FilteredConfiguration.onlyModules(configuration, CheckstylePlus.LLM_HANDLED_CHECKS));
+                }
+                fallbackErrors += fallbackChecker.process(List.of(new File(fileName)));
+            } catch (CheckstyleException e) {
+                System.err.println("CheckSession: built-in fallback checks failed - " + e.getMessage());
+            }
+        }
+
+        /**
+         * Passes audit events to the merged output of the run in progress.
+         */
+        private final class ShardListener implements AuditListener {
+
+            @Override
+            public void auditStarted(AuditEvent event) {
+                OrderedOutput o = output;
+                if (o != null) o.auditStarted(event);
+            }
+
+            @Override
+            public void auditFinished(AuditEvent event) {
+                OrderedOutput o = output;
+                if (o != null) o.auditFinished(event);
+            }
+
+            @Override
+            public void fileStarted(AuditEvent event) {
+                recorded = resultKeys.containsKey(event.getFileName()) ? new ArrayList<>() : null;
+                fileListeners.forEach(l -> l.fileStarted(event));
+                OrderedOutput o = output;
+                if (o != null) o.fileStarted(index, event);
+            }
+
+            @Override
+            public void fileFinished(AuditEvent event) {
+                String fileName = event.getFileName();
+                if (LLM_FAILED.remove(fileName)) runFallback(fileName);
+                if (recorded != null && !INCOMPLETE.remove(fileName)) {
+                    resultCache.store(resultKeys.get(fileName), recorded);
+                }
+                recorded = null;
+                fileListeners.forEach(l -> l.fileFinished(event));
+                OrderedOutput o = output;
+                if (o != null) o.fileFinished(index, event);
+            }
+
+            @Override
+            public void addError(AuditEvent event) {
+                if (recorded != null) recorded.add(event.getViolation());
+                fileListeners.forEach(l -> l.addError(event));
+                OrderedOutput o = output;
+                if (o != null) o.add(index, event, l -> l.addError(event));
+            }
+
+            @Override
+            public void addException(AuditEvent event, Throwable throwable) {
+                recorded = null; // the file may have more to report once the error is fixed
+                OrderedOutput o = output;
+                if (o != null) o.add(index, event, l -> l.addException(event, throwable));
+            }
+        }
+
+        /**
+         * Reports the fallback Checker's violations into the file being finished, without its own audit events.
+         */
+        private final class FallbackListener implements AuditListener {
+
+            @Override public void auditStarted(AuditEvent event) { /* part of the main run */ }
+            @Override public void auditFinished(AuditEvent event) { /* part of the main run */ }
+            @Override public void fileStarted(AuditEvent event) { /* part of the main run */ }
+            @Override public void fileFinished(AuditEvent event) { /* part of the main run */ }
+
+            @Override
+            public void addError(AuditEvent event) {
+                OrderedOutput o = output;
+                if (o != null) o.add(index, event, l -> l.addError(event));
+            }
+
+            @Override
+            public void addException(AuditEvent event, Throwable throwable) {
+                OrderedOutput o = output;
+                if (o != null) o.add(index, event, l -> l.addException(event, throwable));
+            }
+        }
+    }
+
+    /**
+     * Replays the events of all shards to the logger in the order of the file list.
+     * A file's events are held until every file before it is finished, replayed from the result cache,
+     * or skipped (its shard moved past it without starting it, e.g. because of its extension).
+     * Each shard goes through its files in the order they were assigned, which need not be list order.
+     */
+    private static final class OrderedOutput {
+
+        private final AuditListener logger;
+        private final List<String> paths = new ArrayList<>();
+        private final List<List<Consumer<AuditListener>>> held = new ArrayList<>();
+        private final boolean[] done;
+        private final int[] shardOf;
+        private final List<List<Integer>> shardFiles = new ArrayList<>();
+        private final List<Consumer<AuditListener>> unplaced = new ArrayList<>();
+        private int[] current;
+        private int[] reached; // position in the shard's files of the last file it started
+        private int shardCount;
+        private int nextToEmit;
+        private boolean started;
+        private int finishedShards;
+        private AuditEvent lastAuditFinished;
+
+        OrderedOutput(AuditListener logger, List<File> files) {
+            this.logger = logger;
+            for (int i = 0; i < files.size(); i++) {
+                paths.add(files.get(i).getAbsolutePath());
+                held.add(new ArrayList<>());
+            }
+            this.done = new boolean[files.size()];
+            this.shardOf = new int[files.size()];
+            Arrays.fill(shardOf, -1);
+        }
+
+        /**
+         * The file at {@code index} is checked by {@code shard}, after the files assigned to it before.
+         */
+        void assign(int index, int shard) {
+            while (shardFiles.size() <= shard) shardFiles.add(new ArrayList<>());
+            shardOf[index] = shard;
+            shardFiles.get(shard).add(index);
+        }
+
+        void expectShards(int count) {
+            shardCount = count;
+            current = new int[count];
+            Arrays.fill(current, -1);
+            reached = new int[count];
+            Arrays.fill(reached, -1);
+        }
+
+        /**
+         * Report stored violations as the file's events, without checking it.
+         */
+        synchronized void replay(int index, Object source, String fileName, List<Violation> violations) {
+            List<Consumer<AuditListener>> events = held.get(index);
+            events.add(l -> l.fileStarted(new AuditEvent(source, fileName)));
+            for (Violation v : violations) {
+                AuditEvent event = new AuditEvent(source, fileName, v);
+                events.add(l -> l.addError(event));
+            }
+            events.add(l -> l.fileFinished(new AuditEvent(source, fileName)));
+            done[index] = true;
+        }
+
+        synchronized void auditStarted(AuditEvent event) {
+            if (started) return;
+            started = true;
+            logger.auditStarted(event);
+            emitReady();
+        }
+
+        synchronized void auditFinished(AuditEvent event) {
+            lastAuditFinished = event;
+        }
+
+        synchronized void fileStarted(int shard, AuditEvent event) {
+            // The shard's next file of that name: a file listed twice is checked twice
+            List<Integer> own = shardFiles.get(shard);
+            int position = reached[shard] + 1;
+            while (position < own.size() && !paths.get(own.get(position)).equals(event.getFileName())) position++;
+            if (position == own.size()) {
+                current[shard] = -1;
+                unplaced.add(l -> l.fileStarted(event));
+                return;
+            }
+            // Files of this shard before this one were not started, so they have nothing to report
+            for (int p = reached[shard] + 1; p < position; p++) finish(own.get(p));
+            reached[shard] = position;
+            int index = own.get(position);
+            current[shard] = index;
+            held.get(index).add(l -> l.fileStarted(event));
+        }
+
+        synchronized void add(int shard, AuditEvent event, Consumer<AuditListener> replay) {
+            int index = current[shard];
+            if (index >= 0 && paths.get(index).equals(event.getFileName())) {
+                held.get(index).add(replay);
+            } else {
+                unplaced.add(replay);
+            }
+            emitReady();
+        }
+
+        synchronized void fileFinished(int shard, AuditEvent event) {
+            int index = current[shard];
+            if (index >= 0 && paths.get(index).equals(event.getFileName())) {
+                held.get(index).add(l -> l.fileFinished(event));
+                finish(index);
+            } else {
+                unplaced.add(l -> l.fileFinished(event));
+            }
+            emitReady();
+        }
+
+        synchronized void shardFinished(int shard) {
+            for (int i = 0; i < done.length; i++) {
+                if (shardOf[i] == shard && !done[i]) finish(i);
+            }
+            emitReady();
+            if (++finishedShards < shardCount) return;
+
+            // Events outside the file list (e.g. from checks that run at the end of the audit) come last
+            unplaced.forEach(replay -> replay.accept(logger));
+            unplaced.clear();
+            if (lastAuditFinished != null) logger.auditFinished(lastAuditFinished);
+        }
+
+        /**
+         * The shard is done with the file, whether or not LlmStyleCheck got to see it.
+         */
+        private void finish(int index) {
+            done[index] = true;
+            LlmPrefetcher.release(paths.get(index));
+        }
+
+        private void emitReady() {
+            if (!started) return;
+            while (nextToEmit < done.length && done[nextToEmit]) {
+                held.get(nextToEmit).forEach(replay -> replay.accept(logger));
+                held.set(nextToEmit, List.of());
+                nextToEmit++;
+            }
+        }
+    }
+}
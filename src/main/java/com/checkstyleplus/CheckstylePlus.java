@@ -1,18 +1,16 @@
 package com.checkstyleplus;
 
-import com.puppycrawl.tools.checkstyle.AbstractAutomaticBean;
-import com.puppycrawl.tools.checkstyle.Checker;
-import com.puppycrawl.tools.checkstyle.ConfigurationLoader;
-import com.puppycrawl.tools.checkstyle.DefaultLogger;
+import com.checkstyleplus.utils.CacheUtils;
+import com.checkstyleplus.utils.RunMetrics;
 import com.puppycrawl.tools.checkstyle.Main;
-import com.puppycrawl.tools.checkstyle.PropertiesExpander;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
 import com.puppycrawl.tools.checkstyle.api.Configuration;
-import org.xml.sax.InputSource;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
 
 /**
@@ -23,7 +21,7 @@ import java.util.*;
 public class CheckstylePlus {
 
     // Checkstyle's checks handled by LLM — auto-disabled when the custom module is active
-    private static final Set<String> LLM_HANDLED_CHECKS = Set.of(
+    static final Set<String> LLM_HANDLED_CHECKS = Set.of(
         "TypeName",
         "MethodName",
         "ConstantName",
@@ -45,79 +43,181 @@ public class CheckstylePlus {
             return;
         }
         
-        // If the user explicitly passed a config, delegate to Checkstyle's Main.
-        if (hasConfigFlag(args)) {
+        CliOptions options;
+        try {
+            options = CliOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("CheckstylePlus: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        // Options CheckstylePlus does not know about are handled by Checkstyle's Main.
+        if (options.delegateToCheckstyle) {
             Main.main(args);
             return;
         }
+        if (options.daemon) {
+            CheckDaemon.serve(options.socket);
+            return;
+        }
+        // Batch jobs are submitted and collected by this process, not by a daemon
+        if (options.useDaemon && !options.batchSubmit && !options.batchCollect) {
+            int exitCode = CheckDaemon.forward(options.socket, args);
+            if (exitCode > 0) System.exit(exitCode);
+            if (exitCode == 0) return;
+            // No daemon running: check in this process
+        }
 
-        Path cfg = Paths.get("checkstyle.xml");
+        Path cfg = options.config;
         if (!Files.exists(cfg)) {
-            printMissingConfigHelp();
+            printMissingConfigHelp(System.err);
             System.exit(2);
         }
 
-        Configuration configuration = ConfigurationLoader.loadConfiguration(
-            new InputSource(cfg.toUri().toString()),
-            new PropertiesExpander(System.getProperties()),
-            ConfigurationLoader.IgnoredModulesOptions.EXECUTE
-        );
-
-        // Apply filtering if LlmStyleCheck is enabled
-        Configuration effectiveConfig = maybeFilterChecks(configuration);
-
-        Checker checker = new Checker();
-        checker.setModuleClassLoader(Checker.class.getClassLoader());
-        checker.addListener(new DefaultLogger(
-            System.out, AbstractAutomaticBean.OutputStreamOptions.NONE,
-            System.err, AbstractAutomaticBean.OutputStreamOptions.NONE
-        ));
-
-        checker.configure(effectiveConfig);
-
-        List<File> filesToCheck = collectFileArgs(args);
-        int errors = checker.process(filesToCheck);
-
-        checker.destroy();
+        int errors;
+        RunBudget.setDeadline(options.llmDeadlineSeconds);
+        try (CheckSession session = CheckSession.open(cfg)) {
+            List<File> files = filesToCheck(options);
+            if (options.batchSubmit || options.batchCollect) {
+                int status = runBatch(session, files, options);
+                if (status >= 0) {
+                    CacheUtils.close();
+                    if (status > 0) System.exit(status);
+                    return;
+                }
+            }
+            errors = session.check(files, options.threads, System.out, System.err);
+        }
+        CacheUtils.close();
+        RunBudget.report(System.err);
+        writeMetrics(options, System.err);
 
         if (errors > 0) {
             System.exit(1);
         }
     }
 
-    private static boolean hasConfigFlag(String[] args) {
-        for (String s : args) {
-            if ("-c".equals(s) || "--config".equals(s)) return true;
+    /**
+     * Submit the files' cache-missing prompts as batch jobs and/or collect the replies into the cache
+     * (see {@link BatchScan}).
+     *
+     * @return -1 to go on with the normal pass (after collecting), otherwise the exit code
+     */
+    private static int runBatch(CheckSession session, List<File> files, CliOptions options) throws Exception {
+        BatchScan batch = BatchScan.open(session, options.workDir, System.err);
+        if (batch == null) return 2;
+        if (options.batchSubmit && !batch.submit(files)) return 2;
+        if (!options.batchCollect) return 0;
+        // Files the jobs did not answer are sent to the model as usual
+        batch.collect();
+        return -1;
+    }
+
+    /**
+     * Write the metrics of the run just finished to the {@code --metrics} directory, if one was given.
+     */
+    static void writeMetrics(CliOptions options, PrintStream err) {
+        if (options.metricsDir == null) return;
+        try {
+            RunMetrics.write(options.metricsDir);
+        } catch (IOException e) {
+            err.println("CheckstylePlus: could not write metrics - " + e.getMessage());
+        }
+    }
+
+    /**
+     * The files selected on the command line: the ones changed since {@code --since}, or the given paths.
+     */
+    static List<File> filesToCheck(CliOptions options) throws IOException, InterruptedException {
+        if (options.sinceRef != null) {
+            return GitDiffScope.load(options.workDir, options.sinceRef, options.paths);
         }
-        return false;
+        GitDiffScope.clear();
+        return collectFileArgs(options.paths);
     }
 
-    private static List<File> collectFileArgs(String[] args) {
+    private static List<File> collectFileArgs(List<String> args) {
         List<File> files = new ArrayList<>();
         for (String a : args) {
-            files.add(new File(a));
+            addFiles(new File(a), files);
         }
         return files;
     }
 
-    private static boolean containsEnabledLlmStyleCheck(Configuration config) {
+    // Directories are expanded so the whole file list is known up front for prefetching
+    private static void addFiles(File file, List<File> files) {
+        File[] children = file.listFiles();
+        if (children == null) {
+            files.add(file);
+            return;
+        }
+        Arrays.sort(children);
+        for (File child : children) {
+            if (child.isDirectory() || child.isFile()) addFiles(child, files);
+        }
+    }
+
+    static void startPrefetch(Configuration config, List<File> files) {
+        try {
+            LlmStyleCheck settings = llmSettings(config);
+            if (settings != null) LlmPrefetcher.start(files, settings);
+        } catch (Exception e) {
+            System.err.println("CheckstylePlus: LLM prefetch disabled - " + e.getMessage());
+        }
+    }
+
+    /**
+     * An LlmStyleCheck configured like the one in {@code config}, or null if there is none enabled.
+     */
+    static LlmStyleCheck llmSettings(Configuration config) throws CheckstyleException {
+        Configuration llmConfig = findLlmStyleCheck(config);
+        if (llmConfig == null || !isEnabled(llmConfig)) return null;
+        LlmStyleCheck settings = new LlmStyleCheck();
+        settings.configure(llmConfig);
+        return settings;
+    }
+
+    private static Configuration findLlmStyleCheck(Configuration config) {
         if ("LlmStyleCheck".equals(config.getName()) ||
             "com.checkstyleplus.LlmStyleCheck".equals(config.getName())) {
-            String enabledAttr = null;
-            try {
-                enabledAttr = config.getProperty("enabled");
-            } catch (Exception ignored) {
-                // If property is missing or can't be read, default to enabled
-            }
-            return enabledAttr == null || Boolean.parseBoolean(enabledAttr);
+            return config;
         }
         for (Configuration child : config.getChildren()) {
-            if (containsEnabledLlmStyleCheck(child)) return true;
+            Configuration found = findLlmStyleCheck(child);
+            if (found != null) return found;
         }
-        return false;
+        return null;
+    }
+
+    private static boolean isEnabled(Configuration llmConfig) {
+        String enabledAttr = null;
+        try {
+            enabledAttr = llmConfig.getProperty("enabled");
+        } catch (Exception ignored) {
+            // If property is missing or can't be read, default to enabled
+        }
+        return enabledAttr == null || Boolean.parseBoolean(enabledAttr);
+    }
+
+    /**
+     * True when LlmStyleCheck is enabled with {@code resultCache}, see {@link ResultCache}.
+     */
+    static boolean isResultCacheEnabled(Configuration config) {
+        Configuration llmConfig = findLlmStyleCheck(config);
+        if (llmConfig == null || !isEnabled(llmConfig)) return false;
+        try {
+            return Boolean.parseBoolean(llmConfig.getProperty("resultCache"));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    static boolean containsEnabledLlmStyleCheck(Configuration config) {
+        Configuration llmConfig = findLlmStyleCheck(config);
+        return llmConfig != null && isEnabled(llmConfig);
     }
 
-    private static Configuration maybeFilterChecks(Configuration config) {
+    static Configuration maybeFilterChecks(Configuration config) {
         boolean llmEnabled = containsEnabledLlmStyleCheck(config);
         if (!llmEnabled) {
             return config;
@@ -125,13 +225,19 @@ public class CheckstylePlus {
         return new FilteredConfiguration(config, LLM_HANDLED_CHECKS);
     }
 
-    private static void printMissingConfigHelp() {
-        System.err.println(
+    static void printMissingConfigHelp(PrintStream err) {
+        err.println(
             "Missing checkstyle.xml\n" +
             "Place an external checkstyle.xml next to the JAR or pass it with -c.\n" +
             "\nExamples:\n" +
             "  java -jar checkstyle-plus.jar -c path/to/checkstyle.xml MyFile.java\n" +
             "  java -jar checkstyle-plus.jar MyFile.java\n" +
+            "  java -jar checkstyle-plus.jar --since origin/main src/\n" +
+            "  java -jar checkstyle-plus.jar --threads 8 src/\n" +
+            "  java -jar checkstyle-plus.jar --metrics build/llm-metrics src/\n" +
+            "  java -jar checkstyle-plus.jar --llm-deadline 600 src/\n" +
+            "  java -jar checkstyle-plus.jar --batch-submit src/    (later: --batch-collect src/)\n" +
+            "  java -jar checkstyle-plus.jar --daemon    (then add --use-daemon to later runs)\n" +
             "\nInside your checkstyle.xml, you can configure LLM properties, e.g.:\n" +
             "  <module name=\"com.checkstyleplus.LlmStyleCheck\">\n" +
             "      <property name=\"apiKey\" value=\"YOUR_KEY_HERE\"/>\n" +
@@ -0,0 +1,118 @@
+package com.checkstyleplus;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command-line options understood by CheckstylePlus itself.
+ * {@code -c} is read here too, so the configuration runs through CheckstylePlus (with the checks
+ * LlmStyleCheck replaces disabled). A command line with any other option is left to Checkstyle's own Main
+ * as it is (see {@link #delegateToCheckstyle}); it cannot also hold options only CheckstylePlus knows.
+ */
+public class CliOptions {
+
+    Path config = Paths.get("checkstyle.xml");
+    String sinceRef = null;
+    final List<String> paths = new ArrayList<>();
+    boolean delegateToCheckstyle = false;
+    Path workDir = Paths.get("").toAbsolutePath();
+    boolean daemon = false;
+    boolean useDaemon = false;
+    Path socket = CheckDaemon.defaultSocket();
+    int threads = 1;
+    Path metricsDir = null;
+    long llmDeadlineSeconds = 0;
+    boolean batchSubmit = false;
+    boolean batchCollect = false;
+
+    /**
+     * Parse the command line.
+     *
+     * @throws IllegalArgumentException with a message for the user if it is not a valid one
+     */
+    static CliOptions parse(String[] args) {
+        CliOptions options = new CliOptions();
+        String plusOption = null;
+        String checkstyleOption = null;
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            switch (a) {
+                case "-c", "--config" -> options.config = Paths.get(requireValue(args, ++i, a));
+                case "--since" -> options.sinceRef = requireValue(args, ++i, a);
+                case "--daemon" -> options.daemon = true;
+                case "--use-daemon" -> options.useDaemon = true;
+                case "--socket" -> options.socket = Paths.get(requireValue(args, ++i, a));
+                case "--threads" -> options.threads = Math.max(1, parseCount(requireValue(args, ++i, a), a));
+                case "--metrics" -> options.metricsDir = Paths.get(requireValue(args, ++i, a));
+                case "--llm-deadline" -> options.llmDeadlineSeconds = parseSeconds(requireValue(args, ++i, a), a);
+                case "--batch-submit" -> options.batchSubmit = true;
+                case "--batch-collect" -> options.batchCollect = true;
+                default -> {
+                    if (a.startsWith("-") && a.length() > 1) {
+                        if (checkstyleOption == null) checkstyleOption = a;
+                    } else {
+                        options.paths.add(a);
+                    }
+                }
+            }
+            if (plusOption == null && isPlusOption(a)) plusOption = a;
+        }
+        if (checkstyleOption != null && plusOption != null) {
+            throw new IllegalArgumentException(plusOption + " cannot be combined with " + checkstyleOption
+                + ", which is left to Checkstyle's own command line");
+        }
+        options.delegateToCheckstyle = checkstyleOption != null;
+        return options;
+    }
+
+    private static boolean isPlusOption(String option) {
+        return switch (option) {
+            case "--since", "--daemon", "--use-daemon", "--socket", "--threads", "--metrics", "--llm-deadline",
+                 "--batch-submit", "--batch-collect" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Resolve the config file and paths against another working directory (used by the daemon).
+     */
+    void resolveAgainst(Path dir) {
+        workDir = dir;
+        config = dir.resolve(config);
+        if (metricsDir != null) metricsDir = dir.resolve(metricsDir);
+        paths.replaceAll(p -> dir.resolve(p).toString());
+    }
+
+    /**
+     * Seconds, or minutes or hours with an {@code m} or {@code h} suffix (e.g. {@code 600}, {@code 10m}).
+     */
+    private static long parseSeconds(String value, String option) {
+        String v = value.trim().toLowerCase();
+        try {
+            if (v.endsWith("h")) return Long.parseLong(v.substring(0, v.length() - 1)) * 3600;
+            if (v.endsWith("m")) return Long.parseLong(v.substring(0, v.length() - 1)) * 60;
+            if (v.endsWith("s")) return Long.parseLong(v.substring(0, v.length() - 1));
+            return Long.parseLong(v);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " expects seconds, or minutes/hours with an m/h suffix"
+                + " (e.g. 600, 10m), not '" + value + "'");
+        }
+    }
+
+    private static int parseCount(String value, String option) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " expects a number, not '" + value + "'");
+        }
+    }
+
+    private static String requireValue(String[] args, int i, String option) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[i];
+    }
+}
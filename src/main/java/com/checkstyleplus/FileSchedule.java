@@ -0,0 +1,104 @@
+package com.checkstyleplus;
+
+import com.checkstyleplus.utils.CacheUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * FileSchedule — the order in which files are given to LlmStyleCheck, most valuable first, so a run
+ * cut short by {@code --llm-deadline} or a {@link RunBudget} limit has spent its model time well.
+ * <p>
+ * A file ranks higher when it probably needs a model call (it changed since LlmStyleCheck last saw it,
+ * or was never seen), when it was modified recently, when earlier runs found many LLM violations per
+ * line in it, and when it is small. What LlmStyleCheck saw of each file (modification time, size,
+ * lines and violations) is recorded during limited runs only. It is kept per absolute path in the local
+ * reply cache, never a shared one, and only rewritten when it changed.
+ */
+class FileSchedule {
+
+    /** Bump when the stored format changes. */
+    private static final int FORMAT_VERSION = 1;
+
+    private static final ObjectMapper M = new ObjectMapper();
+    private static final double HOUR_MILLIS = 3_600_000.0;
+
+    private record Ranked(int index, double score) { }
+
+    /**
+     * The indexes of the given files, highest priority first (ties keep their order).
+     */
+    static List<Integer> rank(List<File> files, List<Integer> indexes) {
+        long now = System.currentTimeMillis();
+        List<Ranked> ranked = new ArrayList<>();
+        for (int index : indexes) ranked.add(new Ranked(index, score(files.get(index), now)));
+        ranked.sort(Comparator.comparingDouble(Ranked::score).reversed());
+        List<Integer> order = new ArrayList<>();
+        for (Ranked r : ranked) order.add(r.index());
+        return order;
+    }
+
+    /**
+     * Remember what LlmStyleCheck found in the file, for the next run's ranking.
+     */
+    static void record(String filePath, int lines, int violations) {
+        try {
+            File file = new File(filePath);
+            long modified = file.lastModified();
+            long size = file.length();
+            JsonNode seen = seen(filePath);
+            if (seen != null && seen.path("modified").asLong() == modified && seen.path("size").asLong() == size
+                    && seen.path("lines").asInt() == lines && seen.path("violations").asInt() == violations) {
+                return;
+            }
+            ObjectNode entry = M.createObjectNode();
+            entry.put("modified", modified);
+            entry.put("size", size);
+            entry.put("lines", lines);
+            entry.put("violations", violations);
+            CacheUtils.writeLocalCache(keyOf(filePath), entry.toString());
+        } catch (Exception e) {
+            // Only costs the file its place in the next run's order
+        }
+    }
+
+    /**
+     * Up to 2 for a likely cache miss, plus up to 1 each for recency and violation density,
+     * plus up to 0.5 for being small.
+     */
+    private static double score(File file, long now) {
+        long modified = file.lastModified();
+        long size = file.length();
+        JsonNode seen = seen(file.getAbsolutePath());
+
+        boolean changed = seen == null
+            || seen.path("modified").asLong() != modified
+            || seen.path("size").asLong() != size;
+        double ageHours = Math.max(0, now - modified) / HOUR_MILLIS;
+        double recency = 1 / (1 + ageHours / 24);
+        double density = 0;
+        if (seen != null && seen.path("lines").asInt() > 0) {
+            // Violations per 100 lines, 5 or more counting fully
+            double per100 = 100.0 * seen.path("violations").asInt() / seen.path("lines").asInt();
+            density = Math.min(1, per100 / 5);
+        }
+        double smallness = 1 / (1 + size / 20_000.0);
+        return (changed ? 2 : 0) + recency + density + smallness / 2;
+    }
+
+    private static JsonNode seen(String filePath) {
+        try {
+            Optional<String> stored = CacheUtils.readLocalCache(keyOf(filePath));
+            return stored.isPresent() ? M.readTree(stored.get()) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static String keyOf(String filePath) throws Exception {
+        return CacheUtils.sha256("file history v" + FORMAT_VERSION + "\n" + filePath);
+    }
+}
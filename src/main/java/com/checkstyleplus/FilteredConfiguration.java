@@ -7,12 +7,40 @@ import java.util.*;
 
 public class FilteredConfiguration implements Configuration {
 
+    // Checker's result cache must not be shared with the main run's Checker
+    private static final Set<String> HIDDEN_WHEN_INVERTED = Set.of("cacheFile");
+
     private final Configuration delegate;
     private final Set<String> disabledModules;
+    private final boolean inverted;
+    private final String cacheFileSuffix;
 
     public FilteredConfiguration(Configuration delegate, Set<String> disabledModules) {
+        this(delegate, disabledModules, false, null);
+    }
+
+    private FilteredConfiguration(Configuration delegate, Set<String> modules, boolean inverted,
+                                  String cacheFileSuffix) {
         this.delegate = delegate;
-        this.disabledModules = disabledModules;
+        this.disabledModules = modules;
+        this.inverted = inverted;
+        this.cacheFileSuffix = cacheFileSuffix;
+    }
+
+    /**
+     * The opposite view: only the given checks, plus the containers (Checker, TreeWalker)
+     * and the filters and holders that suppressions depend on.
+     */
+    public static FilteredConfiguration onlyModules(Configuration delegate, Set<String> modules) {
+        return new FilteredConfiguration(delegate, modules, true, null);
+    }
+
+    /**
+     * The same configuration with the suffix appended to the root's {@code cacheFile},
+     * so Checkers running side by side do not overwrite each other's result cache.
+     */
+    public static FilteredConfiguration withCacheFileSuffix(Configuration delegate, String suffix) {
+        return new FilteredConfiguration(delegate, Set.of(), false, suffix);
     }
 
     @Override
@@ -24,8 +52,8 @@ public class FilteredConfiguration implements Configuration {
     public Configuration[] getChildren() {
         List<Configuration> filtered = new ArrayList<>();
         for (Configuration c : delegate.getChildren()) {
-            if (!disabledModules.contains(c.getName())) {
-                filtered.add(new FilteredConfiguration(c, disabledModules));
+            if (inverted ? isKeptWhenInverted(c) : !disabledModules.contains(c.getName())) {
+                filtered.add(new FilteredConfiguration(c, disabledModules, inverted, null));
             }
         }
         return filtered.toArray(new Configuration[0]);
@@ -58,11 +86,29 @@ public class FilteredConfiguration implements Configuration {
 
     @Override
     public String getProperty(String key) throws CheckstyleException {
+        if (inverted && HIDDEN_WHEN_INVERTED.contains(key)) {
+            throw new CheckstyleException("Property '" + key + "' is not available");
+        }
+        if (cacheFileSuffix != null && "cacheFile".equals(key)) {
+            return delegate.getProperty(key) + cacheFileSuffix;
+        }
         return delegate.getProperty(key);
     }
 
     @Override
     public String[] getPropertyNames() {
-        return delegate.getPropertyNames();
+        if (!inverted) return delegate.getPropertyNames();
+        return Arrays.stream(delegate.getPropertyNames())
+            .filter(name -> !HIDDEN_WHEN_INVERTED.contains(name))
+            .toArray(String[]::new);
+    }
+
+    private boolean isKeptWhenInverted(Configuration c) {
+        String name = c.getName();
+        return disabledModules.contains(name)
+            || c.getChildren().length > 0
+            || "TreeWalker".equals(name)
+            || name.endsWith("Filter")
+            || name.endsWith("Holder");
     }
 }
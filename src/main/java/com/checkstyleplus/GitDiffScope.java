@@ -0,0 +1,188 @@
+package com.checkstyleplus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * GitDiffScope — the lines changed since a git ref, used by the {@code --since} mode.
+ * When active, LlmStyleCheck only sends the changed lines (plus their enclosing declarations)
+ * to the model and drops any violation reported outside of them.
+ */
+public class GitDiffScope {
+
+    private static final Pattern HUNK = Pattern.compile("^@@ -\\d+(?:,\\d+)? \\+(\\d+)(?:,(\\d+))? @@");
+
+    private static volatile Map<String, BitSet> changedLines = null;
+
+    /**
+     * Read {@code git diff <ref>} from the repository in the working directory and activate the scope.
+     *
+     * @param paths optional files or folders the scope is restricted to
+     * @return the changed files that still exist, in diff order
+     */
+    public static List<File> load(String ref, List<String> paths) throws IOException, InterruptedException {
+        return load(Paths.get("").toAbsolutePath(), ref, paths);
+    }
+
+    /**
+     * Same as {@link #load(String, List)}, for the repository containing {@code workDir}.
+     * Relative {@code paths} are resolved against {@code workDir}.
+     */
+    public static List<File> load(Path workDir, String ref, List<String> paths)
+            throws IOException, InterruptedException {
+        Path top = Paths.get(git(workDir, "rev-parse", "--show-toplevel").trim());
+        // Fixed prefixes and unescaped non-ASCII names, whatever the user's diff settings
+        String diff = git(workDir, "-c", "core.quotePath=false", "diff", "--unified=0", "--no-color",
+            "--no-ext-diff", "--src-prefix=a/", "--dst-prefix=b/", "--diff-filter=ACMR", ref, "--");
+        Map<String, BitSet> changed = parseDiff(top, diff);
+
+        List<Path> roots = new ArrayList<>();
+        for (String p : paths) roots.add(workDir.resolve(p).toAbsolutePath().normalize());
+
+        List<File> files = new ArrayList<>();
+        for (String name : changed.keySet()) {
+            Path file = Paths.get(name);
+            if (!Files.isRegularFile(file)) continue;
+            if (!roots.isEmpty() && roots.stream().noneMatch(file::startsWith)) continue;
+            files.add(file.toFile());
+        }
+        changedLines = changed;
+        return files;
+    }
+
+    /**
+     * Deactivate the scope, so the next run checks whole files again.
+     */
+    public static void clear() {
+        changedLines = null;
+    }
+
+    public static boolean isActive() {
+        return changedLines != null;
+    }
+
+    /**
+     * The changed lines of the given file (1-based); empty if the file has none.
+     */
+    public static BitSet changedLines(String filePath) {
+        Map<String, BitSet> changed = changedLines;
+        if (changed == null) return null;
+        BitSet lines = changed.get(Paths.get(filePath).toAbsolutePath().normalize().toString());
+        return (lines != null) ? lines : new BitSet();
+    }
+
+    /**
+     * The changed lines per absolute path in the output of {@code git diff --unified=0} run in {@code top},
+     * with {@code b/} as the prefix of new names.
+     */
+    static Map<String, BitSet> parseDiff(Path top, String diff) {
+        Map<String, BitSet> changed = new LinkedHashMap<>();
+        BitSet current = null;
+        // Between "diff --git" and the first hunk; in a hunk, an added line "++ x" also starts with "+++ "
+        boolean inHeader = false;
+        for (String line : diff.split("\\R")) {
+            if (line.startsWith("diff --git ")) {
+                inHeader = true;
+                continue;
+            }
+            if (inHeader && line.startsWith("+++ ")) {
+                String name = pathOf(line.substring(4));
+                current = (name == null) ? null : changed.computeIfAbsent(
+                    top.resolve(name).toAbsolutePath().normalize().toString(), k -> new BitSet());
+                continue;
+            }
+            Matcher m = HUNK.matcher(line);
+            if (!m.find()) continue;
+            inHeader = false;
+            if (current != null) {
+                int start = Integer.parseInt(m.group(1));
+                int count = (m.group(2) != null) ? Integer.parseInt(m.group(2)) : 1;
+                current.set(start, start + count);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * The path in a {@code +++} line, relative to the top of the repository, or null for {@code /dev/null}.
+     * Git quotes names holding special characters C-style, and ends names holding a space with a tab.
+     */
+    private static String pathOf(String name) {
+        if (name.startsWith("\"")) {
+            name = unquote(name);
+        } else if (name.endsWith("\t")) {
+            name = name.substring(0, name.length() - 1);
+        }
+        if (name.equals("/dev/null")) return null;
+        return name.startsWith("b/") ? name.substring(2) : name;
+    }
+
+    /**
+     * A name git quoted: backslash escapes, with octal escapes for the bytes of UTF-8 characters.
+     */
+    private static String unquote(String quoted) {
+        int end = quoted.lastIndexOf('"');
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (int i = 1; i < end; i++) {
+            char c = quoted.charAt(i);
+            if (c != '\\' || i + 1 >= end) {
+                byte[] utf8 = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+                bytes.write(utf8, 0, utf8.length);
+                continue;
+            }
+            char next = quoted.charAt(++i);
+            if (next >= '0' && next <= '7' && i + 2 < end) {
+                bytes.write(Integer.parseInt(quoted.substring(i, i + 3), 8));
+                i += 2;
+                continue;
+            }
+            bytes.write(switch (next) {
+                case 'a' -> 7;
+                case 'b' -> '\b';
+                case 't' -> '\t';
+                case 'n' -> '\n';
+                case 'v' -> 11;
+                case 'f' -> '\f';
+                case 'r' -> '\r';
+                default -> next; // \\ and \"
+            });
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String git(Path workDir, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(Arrays.asList(args));
+        Process process = new ProcessBuilder(command).directory(workDir.toFile()).start();
+        // Read aside, so a full stderr pipe cannot block git, and its messages never mix into the output
+        CompletableFuture<String> errors = CompletableFuture.supplyAsync(() -> {
+            try {
+                return readAll(process.getErrorStream());
+            } catch (IOException e) {
+                return "";
+            }
+        });
+        String output = readAll(process.getInputStream());
+        if (process.waitFor() != 0) {
+            throw new IOException("git " + String.join(" ", args) + " failed: " + errors.join().trim());
+        }
+        return output;
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
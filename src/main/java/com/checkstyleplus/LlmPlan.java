@@ -0,0 +1,315 @@
+package com.checkstyleplus;
+
+import com.checkstyleplus.adapters.LlmClient;
+import com.checkstyleplus.cache.CacheKeys;
+import com.checkstyleplus.utils.AstUtils;
+import com.checkstyleplus.utils.CacheUtils;
+import com.checkstyleplus.utils.MemberSegments;
+import com.checkstyleplus.utils.MemberSegments.Segment;
+import com.checkstyleplus.utils.NormalizedSource;
+import com.checkstyleplus.utils.PromptUtils;
+import com.checkstyleplus.utils.PromptWindows;
+import com.checkstyleplus.utils.ReplyUtils;
+import com.checkstyleplus.utils.SourceSkeleton;
+import com.checkstyleplus.utils.TokenEstimator;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
+
+/**
+ * LlmPlan — what has to be sent to the model for one file.
+ * In whole-file mode this is a single prompt over the full source.
+ * In incremental mode the file is split into member segments, each hashed on its own:
+ * unchanged segments reuse their cached reply (shifted to the segment's current position)
+ * and only the changed ones are put in the prompt.
+ * Cache keys are derived from the normalized source (see {@link NormalizedSource}), so replies
+ * survive reformatting and line shifts and are remapped onto the current line numbers.
+ * In diff-scoped mode ({@code --since}) only the changed lines and their enclosing declarations are sent,
+ * and findings outside the changed lines are dropped.
+ * In skeleton mode only the declaration and comment lines are sent (see {@link SourceSkeleton}),
+ * still under their original line numbers.
+ * Code over the prompt token budget is split into overlapping windows (see {@link PromptWindows})
+ * that are sent in parallel, and their findings merged.
+ * A plan can be limited to some guideline sections, e.g. only the Javadoc ones when names are
+ * judged separately by {@link NameVerdicts}.
+ */
+public class LlmPlan {
+
+    private final List<String> lines;
+    private final BitSet included;
+    private final String sections;
+    private final String code;
+    private final String prompt;
+    private final String cacheKey;
+    private final NormalizedSource normalized;
+    private final List<Segment> changed;
+    private final List<NormalizedSource> changedSources;
+    private final List<String> changedKeys;
+    private final String reused;
+    private final BitSet reportedLines;
+    private List<String> windowPrompts = List.of();
+
+    private LlmPlan(List<String> lines, BitSet included, String code, String sections, String cacheKey,
+                    NormalizedSource normalized, List<Segment> changed, List<NormalizedSource> changedSources,
+                    List<String> changedKeys, String reused, BitSet reportedLines) {
+        this.lines = lines;
+        this.included = included;
+        this.sections = sections;
+        this.code = code;
+        this.prompt = (code != null) ? PromptUtils.wrapCode(code, sections) : null;
+        this.cacheKey = cacheKey;
+        this.normalized = normalized;
+        this.changed = changed;
+        this.changedSources = changedSources;
+        this.changedKeys = changedKeys;
+        this.reused = reused;
+        this.reportedLines = reportedLines;
+    }
+
+    /**
+     * A plan with nothing to ask.
+     */
+    public static LlmPlan none() {
+        return new LlmPlan(List.of(), null, null, null, null, null, List.of(), List.of(), List.of(), "", null);
+    }
+
+    /**
+     * @param settings the model settings fingerprint that goes into every cache key
+     * @param sections the guideline sections to ask about, or null for all of them
+     */
+    public static LlmPlan wholeFile(List<String> lines, String settings, String sections) throws Exception {
+        String code = PromptUtils.addLineNumbers(String.join("\n", lines));
+        NormalizedSource normalized = NormalizedSource.of(lines, null);
+        return new LlmPlan(lines, null, code, sections, CacheKeys.of(kind("file", sections), settings, normalized),
+            normalized, List.of(), List.of(), List.of(), "", null);
+    }
+
+    /**
+     * Plan a prompt over the declaration and comment lines of the file.
+     */
+    public static LlmPlan skeleton(List<String> lines, DetailAST root, String settings, String sections)
+            throws Exception {
+        BitSet included = SourceSkeleton.lines(root, lines);
+        String code = PromptUtils.addLineNumbers(lines, included);
+        NormalizedSource normalized = NormalizedSource.of(lines, included);
+        return new LlmPlan(lines, included, code, sections,
+            CacheKeys.of(kind("skeleton", sections), settings, normalized),
+            normalized, List.of(), List.of(), List.of(), "", null);
+    }
+
+    /**
+     * Plan a prompt covering only the given changed lines (1-based) and the declarations around them.
+     */
+    public static LlmPlan diffScoped(List<String> lines, DetailAST root, BitSet changedLines, String settings,
+                                     String sections) throws Exception {
+        if (changedLines.isEmpty()) {
+            return new LlmPlan(lines, changedLines, null, null, null, null, List.of(), List.of(), List.of(), "",
+                changedLines);
+        }
+        BitSet included = AstUtils.enclosingDeclarationLines(root, changedLines);
+        included.or(changedLines);
+        String code = PromptUtils.addLineNumbers(lines, included);
+        NormalizedSource normalized = NormalizedSource.of(lines, included);
+        return new LlmPlan(lines, included, code, sections, CacheKeys.of(kind("diff", sections), settings, normalized),
+            normalized, List.of(), List.of(), List.of(), "", changedLines);
+    }
+
+    /**
+     * @param skeleton whether to send only the declaration and comment lines of the changed segments
+     */
+    public static LlmPlan incremental(List<String> lines, DetailAST root, String settings, String sections,
+                                      boolean skeleton) throws Exception {
+        BitSet kept = skeleton ? SourceSkeleton.lines(root, lines) : null;
+        List<Segment> changed = new ArrayList<>();
+        List<NormalizedSource> changedSources = new ArrayList<>();
+        List<String> changedKeys = new ArrayList<>();
+        StringBuilder reused = new StringBuilder();
+        BitSet included = new BitSet();
+
+        for (Segment segment : MemberSegments.split(root, lines)) {
+            BitSet range = new BitSet();
+            range.set(segment.startLine(), segment.endLine() + 1);
+            if (kept != null) range.and(kept);
+            NormalizedSource source = NormalizedSource.of(lines, range);
+            if (source.isEmpty()) continue; // only blank lines, imports or the license header
+
+            String key = CacheKeys.of(kind(skeleton ? "skeleton member" : "member", sections), settings, source);
+            Optional<String> cached = CacheUtils.readCache(key);
+            if (cached.isPresent()) {
+                String remapped = source.toOriginal(cached.get());
+                if (!remapped.isBlank()) reused.append(remapped).append('\n');
+            } else {
+                changed.add(segment);
+                changedSources.add(source);
+                changedKeys.add(key);
+                included.or(range);
+            }
+        }
+
+        if (changed.isEmpty()) {
+            return new LlmPlan(lines, included, null, null, null, null, changed, changedSources, changedKeys,
+                reused.toString(), null);
+        }
+        String code = PromptUtils.addLineNumbers(lines, included);
+        NormalizedSource normalized = NormalizedSource.of(lines, included);
+        String kind = kind(skeleton ? "skeleton members" : "members", sections);
+        return new LlmPlan(lines, included, code, sections, CacheKeys.of(kind, settings, normalized),
+            normalized, changed, changedSources, changedKeys, reused.toString(), null);
+    }
+
+    private static String kind(String kind, String sections) {
+        return (sections != null) ? kind + " " + sections : kind;
+    }
+
+    /**
+     * Split the code into windows if it is estimated above {@code maxPromptTokens}.
+     *
+     * @param maxPromptTokens the code tokens one prompt may hold, 0 for no limit
+     */
+    public LlmPlan limitedTo(DetailAST root, int maxPromptTokens) {
+        if (code != null && root != null && maxPromptTokens > 0 && TokenEstimator.estimate(code) > maxPromptTokens) {
+            List<String> prompts = new ArrayList<>();
+            for (BitSet window : PromptWindows.split(root, lines, included, maxPromptTokens)) {
+                prompts.add(PromptUtils.wrapCode(PromptUtils.addLineNumbers(lines, window), sections));
+            }
+            windowPrompts = prompts;
+        }
+        return this;
+    }
+
+    /**
+     * Whether the code is sent as several windows rather than as {@link #prompt()}.
+     */
+    public boolean isSplit() {
+        return !windowPrompts.isEmpty();
+    }
+
+    /**
+     * Ask the model: the windows in parallel if the plan is split, otherwise the prompt,
+     * streamed line by line when {@code onLine} is given (see {@link LlmClient#streamResponse}).
+     *
+     * @return the reply, or null if the model (or any window) gave none
+     */
+    public String ask(LlmClient client, Predicate<String> onLine) throws Exception {
+        if (!isSplit()) {
+            return (onLine != null) ? client.streamResponse(prompt, onLine) : client.generateResponse(prompt);
+        }
+        List<CompletableFuture<String>> pending = new ArrayList<>();
+        for (String windowPrompt : windowPrompts) pending.add(client.generateResponseAsync(windowPrompt));
+
+        List<String> replies = new ArrayList<>();
+        for (CompletableFuture<String> reply : pending) {
+            try {
+                replies.add(reply.join());
+            } catch (CompletionException e) {
+                pending.forEach(p -> p.cancel(true));
+                throw (e.getCause() instanceof Exception cause) ? cause : e;
+            }
+        }
+        // A file missing a window's findings must not be cached as complete
+        if (replies.contains(null)) return null;
+        return ReplyUtils.mergeReplies(replies);
+    }
+
+    /**
+     * The prompt to send, or null when every part of the file is already cached.
+     */
+    public String prompt() {
+        return prompt;
+    }
+
+    /**
+     * The prompts {@link #ask} sends: the windows if the plan is split, otherwise {@link #prompt()} (if any).
+     */
+    public List<String> prompts() {
+        if (isSplit()) return windowPrompts;
+        return (prompt != null) ? List.of(prompt) : List.of();
+    }
+
+    /**
+     * The guideline sections the prompt asks about, or null for all of them.
+     */
+    public String sections() {
+        return sections;
+    }
+
+    /**
+     * The numbered code part of the prompt (without the template), or null when nothing is sent.
+     */
+    public String code() {
+        return code;
+    }
+
+    /**
+     * The cached reply to {@link #prompt()}, mapped onto the current line numbers.
+     */
+    public Optional<String> cachedReply() {
+        if (cacheKey == null) return Optional.empty();
+        return CacheUtils.readCache(cacheKey).map(normalized::toOriginal);
+    }
+
+    /**
+     * Cache the model's reply to {@link #prompt()}.
+     */
+    public void cacheReply(String llmReply) {
+        if (cacheKey != null && llmReply != null) CacheUtils.writeCache(cacheKey, normalized.toNormalized(llmReply));
+    }
+
+    /**
+     * Caches the reply of each changed segment and returns the reply for the whole file.
+     *
+     * @param llmReply the model's answer to {@link #prompt()}, or null if there was none
+     */
+    public String complete(String llmReply) {
+        if (reportedLines != null) return onlyReportedLines(llmReply);
+        if (changed.isEmpty()) return (llmReply != null) ? reused + llmReply : reused;
+        if (llmReply == null) return reused;
+
+        StringBuilder[] perSegment = new StringBuilder[changed.size()];
+        for (int i = 0; i < perSegment.length; i++) perSegment[i] = new StringBuilder();
+
+        for (String line : llmReply.split("\\R")) {
+            Integer n = ReplyUtils.lineNumberOf(line);
+            if (n == null) continue;
+            for (int i = 0; i < changed.size(); i++) {
+                Segment segment = changed.get(i);
+                if (segment.contains(n)) {
+                    perSegment[i].append(line).append('\n');
+                    break;
+                }
+            }
+        }
+        for (int i = 0; i < changed.size(); i++) {
+            CacheUtils.writeCache(changedKeys.get(i), changedSources.get(i).toNormalized(perSegment[i].toString()));
+        }
+        return reused + llmReply;
+    }
+
+    /**
+     * The findings reused from the cache for the parts of the file not in {@link #prompt()}.
+     */
+    public String reusedReply() {
+        return reused;
+    }
+
+    /**
+     * Whether a line of the reply to {@link #prompt()} is reported, i.e. survives {@link #complete(String)}.
+     */
+    public boolean reports(String replyLine) {
+        if (reportedLines == null) return true;
+        Integer n = ReplyUtils.lineNumberOf(replyLine);
+        return n != null && reportedLines.get(n);
+    }
+
+    private String onlyReportedLines(String llmReply) {
+        if (llmReply == null) return null;
+        StringBuilder kept = new StringBuilder();
+        for (String line : llmReply.split("\\R")) {
+            if (reports(line)) kept.append(line).append('\n');
+        }
+        return kept.toString();
+    }
+}
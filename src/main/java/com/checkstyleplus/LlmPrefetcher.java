@@ -0,0 +1,257 @@
+package com.checkstyleplus;
+
+import com.checkstyleplus.adapters.LlmClient;
+import com.checkstyleplus.utils.PromptUtils;
+import com.checkstyleplus.utils.ReplyUtils;
+import com.checkstyleplus.utils.RunMetrics;
+import com.checkstyleplus.utils.StructuredReply;
+import com.checkstyleplus.utils.TokenEstimator;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * LlmPrefetcher — sends the LLM prompts of all files before Checkstyle reaches them.
+ * A producer thread walks the file list and starts each cache-missing prompt on a virtual thread,
+ * so LlmStyleCheck.beginTree usually finds its reply already waiting.
+ * At most {@code maxConcurrency} requests are in flight (the RateLimiter adapts the actual number),
+ * and at most {@code maxPendingPrompts} replies are held, by file path, until LlmStyleCheck claims them
+ * or the session releases the file.
+ * When batching is enabled, small files are packed together into one prompt of at most
+ * {@code batchTokenBudget} code tokens, and the reply is split back per file.
+ * With streaming on, single-file replies are streamed so they can be cut off at the per-file cap.
+ */
+public class LlmPrefetcher {
+
+    /**
+     * The plan computed for a file and the reply to its prompt (null if the LLM call failed).
+     */
+    public record Prefetched(LlmPlan plan, CompletableFuture<String> reply) { }
+
+    private record BatchEntry(String path, String fileName, LlmPlan plan, CompletableFuture<String> reply) { }
+
+    private static final Map<String, Prefetched> PENDING = new ConcurrentHashMap<>();
+    private static final Map<String, CompletableFuture<String>> IN_FLIGHT = new ConcurrentHashMap<>();
+    private static final Set<String> CLAIMED = ConcurrentHashMap.newKeySet();
+
+    private static Semaphore pendingSlots;
+    private static Semaphore inFlight;
+    private static ExecutorService executor;
+    private static Thread producer;
+    private static Supplier<Predicate<String>> replyCap;
+    private static boolean structuredOutput;
+
+    /**
+     * Start prefetching replies for the given files in the background.
+     */
+    public static synchronized void start(List<File> files, LlmStyleCheck settings) {
+        if (producer != null || !settings.isActive()) return;
+
+        pendingSlots = new Semaphore(settings.getMaxPendingPrompts());
+        inFlight = new Semaphore(settings.getMaxConcurrency());
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        LlmClient client = settings.createClient();
+        replyCap = settings.isStreaming() ? settings::replyCap : null;
+        structuredOutput = settings.usesStructuredOutput();
+        int batchBudget = settings.getBatchTokenBudget();
+        int batchMaxFileTokens = Math.min(settings.getBatchMaxFileTokens(), batchBudget);
+
+        producer = Thread.ofVirtual().name("llm-prefetch").start(() -> {
+            List<BatchEntry> batch = new ArrayList<>();
+            int batchTokens = 0;
+            try {
+                for (File file : files) {
+                    if (Thread.currentThread().isInterrupted()) return;
+                    if (RunBudget.isExhausted()) break; // the remaining files get cached or built-in results
+                    if (!file.getName().endsWith(".java")) continue;
+                    String path = file.getAbsolutePath();
+                    try {
+                        if (CLAIMED.contains(path)) continue;
+                        LlmPlan plan = settings.planFor(file);
+                        if (plan.prompt() == null) continue;
+                        long start = System.nanoTime();
+                        boolean cached = plan.cachedReply().isPresent();
+                        RunMetrics.add(path, RunMetrics.Phase.CACHE, start);
+                        if (cached) continue;
+
+                        int tokens = TokenEstimator.estimate(plan.code());
+                        if (tokens > batchMaxFileTokens) {
+                            CompletableFuture<String> reply = register(path, plan, batch, client);
+                            if (batch.isEmpty()) batchTokens = 0;
+                            if (reply != null) send(path, plan, reply, client);
+                            continue;
+                        }
+
+                        if (!batch.isEmpty() && batchTokens + tokens > batchBudget) {
+                            sendBatch(batch, client);
+                            batch.clear();
+                            batchTokens = 0;
+                        }
+                        CompletableFuture<String> reply = register(path, plan, batch, client);
+                        if (batch.isEmpty()) batchTokens = 0;
+                        if (reply != null) {
+                            batch.add(new BatchEntry(path, file.getName(), plan, reply));
+                            batchTokens += tokens;
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    } catch (Exception e) {
+                        System.err.println("LlmPrefetcher: skipped " + file + " - " + e.getMessage());
+                    }
+                }
+                sendBatch(batch, client);
+                if (settings.usesNameVerdicts()) NameVerdicts.flush(client);
+            } catch (RuntimeException e) {
+                System.err.println("LlmPrefetcher: stopped - " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Take the prefetched plan and reply for the given file, or null if it was never prefetched.
+     */
+    public static Prefetched claim(String filePath) {
+        if (producer == null) return null;
+        CLAIMED.add(filePath);
+        Prefetched prefetched = PENDING.remove(filePath);
+        if (prefetched != null) pendingSlots.release();
+        return prefetched;
+    }
+
+    /**
+     * Drop whatever was prefetched for a file Checkstyle is done with, freeing its pending slot.
+     * Needed for files LlmStyleCheck never sees, e.g. when they fail to parse or a file filter excludes them.
+     */
+    public static void release(String filePath) {
+        claim(filePath);
+    }
+
+    /**
+     * Stop the producer and abandon any requests that were not claimed.
+     */
+    public static synchronized void shutdown() {
+        if (producer == null) return;
+        producer.interrupt();
+        executor.shutdownNow();
+        PENDING.clear();
+        IN_FLIGHT.clear();
+        CLAIMED.clear();
+        NameVerdicts.reset();
+        producer = null;
+    }
+
+    /**
+     * Reserve a pending slot for the file and publish its future.
+     * Returns the future the caller has to complete, or null if the file was claimed in the meantime
+     * or an identical prompt is already in flight.
+     */
+    private static CompletableFuture<String> register(String path, LlmPlan plan,
+                                                      List<BatchEntry> batch, LlmClient client)
+            throws InterruptedException {
+        if (!pendingSlots.tryAcquire()) {
+            // Never block while holding batched files LlmStyleCheck may already be waiting for
+            sendBatch(batch, client);
+            batch.clear();
+            pendingSlots.acquire();
+        }
+
+        // Files with identical prompts share one request (the exact prompt, since replies carry line numbers)
+        String prompt = plan.prompt();
+        CompletableFuture<String> reply = new CompletableFuture<>();
+        CompletableFuture<String> existing = IN_FLIGHT.putIfAbsent(prompt, reply);
+        Prefetched prefetched = new Prefetched(plan, (existing != null) ? existing : reply);
+        PENDING.put(path, prefetched);
+
+        // LlmStyleCheck may have reached this file while we were waiting for a slot
+        if (CLAIMED.contains(path) && PENDING.remove(path, prefetched)) {
+            pendingSlots.release();
+            if (existing == null) IN_FLIGHT.remove(prompt, reply);
+            return null;
+        }
+        return (existing != null) ? null : reply;
+    }
+
+    private static void send(String path, LlmPlan plan, CompletableFuture<String> reply, LlmClient client) {
+        executor.submit(() -> {
+            try {
+                Predicate<String> cap = (replyCap != null) ? replyCap.get() : null;
+                long start = System.nanoTime();
+                String resp = call(() -> plan.ask(client, cap));
+                RunMetrics.add(path, RunMetrics.Phase.NETWORK, start);
+                plan.cacheReply(resp);
+                reply.complete(resp);
+            } catch (Exception e) {
+                LlmStyleCheck.reportCallError(e);
+                reply.complete(null);
+            } finally {
+                IN_FLIGHT.remove(plan.prompt(), reply);
+            }
+        });
+    }
+
+    private static void sendBatch(List<BatchEntry> batch, LlmClient client) {
+        if (batch.isEmpty()) return;
+        if (batch.size() == 1) {
+            BatchEntry only = batch.get(0);
+            send(only.path(), only.plan(), only.reply(), client);
+            return;
+        }
+
+        List<BatchEntry> entries = List.copyOf(batch);
+        List<String> names = new ArrayList<>();
+        List<String> codes = new ArrayList<>();
+        List<String> prompts = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        for (BatchEntry entry : entries) {
+            names.add(entry.fileName());
+            codes.add(entry.plan().code());
+            prompts.add(entry.plan().prompt());
+            weights.add(TokenEstimator.estimate(entry.plan().code()));
+        }
+        // Every plan of a run is limited to the same sections, so the batch asks about those alone
+        // and each file's share of the reply fits the cache key of its own plan
+        String prompt = PromptUtils.buildBatchPrompt(names, codes, entries.get(0).plan().sections());
+
+        executor.submit(() -> {
+            String[] replies = null;
+            try {
+                long start = System.nanoTime();
+                String resp = call(() -> client.generateResponse(prompt));
+                for (BatchEntry entry : entries) RunMetrics.add(entry.path(), RunMetrics.Phase.NETWORK, start);
+                // Each file is charged its share of the batch's tokens
+                RunMetrics.splitUsage(prompt, prompts, weights);
+                if (resp != null) {
+                    replies = structuredOutput
+                        ? StructuredReply.splitBatchReply(resp, entries.size())
+                        : ReplyUtils.splitBatchReply(resp, entries.size());
+                }
+            } catch (Exception e) {
+                LlmStyleCheck.reportCallError(e);
+            }
+            for (int i = 0; i < entries.size(); i++) {
+                BatchEntry entry = entries.get(i);
+                if (replies != null && replies[i] != null) {
+                    // Cached as if the file had been asked about on its own
+                    entry.plan().cacheReply(replies[i]);
+                    entry.reply().complete(replies[i]);
+                    IN_FLIGHT.remove(entry.plan().prompt(), entry.reply());
+                } else {
+                    // The model skipped this file (or the batch failed): ask for it alone
+                    send(entry.path(), entry.plan(), entry.reply(), client);
+                }
+            }
+        });
+    }
+
+    private static String call(Callable<String> request) throws Exception {
+        inFlight.acquire();
+        try {
+            return request.call(); // already on a virtual thread
+        } finally {
+            inFlight.release();
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.checkstyleplus;
 
+import com.puppycrawl.tools.checkstyle.JavaParser;
 import com.puppycrawl.tools.checkstyle.api.*;
 import com.checkstyleplus.adapters.*;
 import com.checkstyleplus.utils.*;
+import java.io.File;
 import java.nio.file.*;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.regex.*;
 
 /**
@@ -30,6 +33,9 @@ public class LlmStyleCheck extends AbstractCheck {
         Map.entry("2.6.1", "TypeVariableName")
     );
 
+    // Sections still judged from the full source when names go through NameVerdicts
+    private static final String DOCUMENTATION_SECTIONS = "1.1.1, 1.1.2";
+
     // ========================== Configurable Properties ==========================
     private String apiKey = "";
     private String endpoint = "";
@@ -42,12 +48,53 @@ public class LlmStyleCheck extends AbstractCheck {
     private Integer seed = null;
     private Integer maxOutputTokens = null;
     private Integer thinkingTokens = null;
+    private int concurrency = 4;
+    private int maxConcurrency = 0;
+    private int requestsPerMinute = 0;
+    private int tokensPerMinute = 0;
+    private int maxRetries = 5;
+    private String secondaryEndpoint = "";
+    private String secondaryModel = null;
+    private String secondaryApiKey = null;
+    private int deadlineSeconds = 300;
+    private double hedgePercentile = 0;
+    private int breakerFailureThreshold = 5;
+    private int breakerCooldownSeconds = 30;
+    private boolean fallbackToBuiltInChecks = true;
+    private boolean streaming = false;
+    private int maxViolationsPerFile = 0;
+    private int maxReplyTokensPerFile = 0;
+    private boolean nameVerdicts = false;
+    private boolean skeletonPrompts = false;
+    private int maxPromptTokens = 0;
+    private int maxPendingPrompts = 32;
+    private boolean resultCache = false; // read by CheckSession from the configuration
+    private boolean structuredOutput = false;
+    private int connectTimeoutSeconds = 10;
+    private int requestTimeoutSeconds = 120;
+    private int keepAliveSeconds = 300;
+    private String httpExecutor = "default";
+    private boolean incremental = false;
+    private int batchTokenBudget = 0;
+    private int batchMaxFileTokens = 1000;
+    private String cacheBackend = "directory";
+    private long cacheMaxBytes = 256L << 20;
+    private String remoteCache = "";
+    private long remoteCacheTimeoutMillis = 2000;
+    private long maxTokensPerRun = 0;
+    private int maxRequestsPerRun = 0;
+    private double maxCostPerRun = 0;
+    private double inputTokenCostPerMillion = 0;
+    private double outputTokenCostPerMillion = 0;
 
     // ========================== Internal State ==========================
     private List<String> currentFileLines;
-    private static final Pattern FIRST_PARENS_NUMBER = Pattern.compile("\\((\\d+)\\)");
+    private PositionIndex positions; // built on the file's first finding
+    private boolean answered; // the model's findings for the file are complete
+    private int llmViolations;
     private static final Pattern QUOTED_IDENTIFIER   = Pattern.compile("'([A-Za-z_][A-Za-z0-9_]*)'");
     private static final Pattern BARE_IDENTIFIER     = Pattern.compile("([A-Za-z_][A-Za-z0-9_]*)");
+    private static final Pattern SECTION_NUMBER      = Pattern.compile("\\((\\d+(?:\\.\\d+)+)\\)");
 
     // ========================== Setters ==========================
     public void setApiKey(String k) { this.apiKey = k; }
@@ -61,6 +108,204 @@ public class LlmStyleCheck extends AbstractCheck {
     public void setSeed(int s) { this.seed = s; }
     public void setMaxOutputTokens(int t) { this.maxOutputTokens = t; }
     public void setThinkingTokens(int t) { this.thinkingTokens = t; }
+    public void setConcurrency(int c) { this.concurrency = Math.max(1, c); }
+    public void setMaxConcurrency(int c) { this.maxConcurrency = Math.max(0, c); }
+    public void setRequestsPerMinute(int r) { this.requestsPerMinute = Math.max(0, r); }
+    public void setTokensPerMinute(int t) { this.tokensPerMinute = Math.max(0, t); }
+    public void setMaxRetries(int r) { this.maxRetries = Math.max(0, r); }
+    public void setSecondaryEndpoint(String e) { this.secondaryEndpoint = e; }
+    public void setSecondaryModel(String m) { this.secondaryModel = m; }
+    public void setSecondaryApiKey(String k) { this.secondaryApiKey = k; }
+    public void setDeadlineSeconds(int s) { this.deadlineSeconds = Math.max(1, s); }
+    public void setHedgePercentile(double p) { this.hedgePercentile = Math.max(0, Math.min(100, p)); }
+    public void setBreakerFailureThreshold(int t) { this.breakerFailureThreshold = Math.max(1, t); }
+    public void setBreakerCooldownSeconds(int s) { this.breakerCooldownSeconds = Math.max(1, s); }
+    public void setFallbackToBuiltInChecks(boolean f) { this.fallbackToBuiltInChecks = f; }
+    public void setStreaming(boolean s) { this.streaming = s; }
+    public void setMaxViolationsPerFile(int m) { this.maxViolationsPerFile = Math.max(0, m); }
+    public void setMaxReplyTokensPerFile(int m) { this.maxReplyTokensPerFile = Math.max(0, m); }
+    public void setNameVerdicts(boolean n) { this.nameVerdicts = n; }
+    public void setSkeletonPrompts(boolean s) { this.skeletonPrompts = s; }
+    public void setMaxPromptTokens(int t) { this.maxPromptTokens = Math.max(0, t); }
+    public void setMaxPendingPrompts(int p) { this.maxPendingPrompts = Math.max(1, p); }
+    public void setResultCache(boolean r) { this.resultCache = r; }
+    public void setStructuredOutput(boolean s) { this.structuredOutput = s; }
+    public void setConnectTimeoutSeconds(int s) { this.connectTimeoutSeconds = Math.max(1, s); }
+    public void setRequestTimeoutSeconds(int s) { this.requestTimeoutSeconds = Math.max(1, s); }
+    public void setKeepAliveSeconds(int s) { this.keepAliveSeconds = Math.max(0, s); }
+    public void setHttpExecutor(String e) { this.httpExecutor = e; }
+    public void setIncremental(boolean i) { this.incremental = i; }
+    public void setBatchTokenBudget(int t) { this.batchTokenBudget = Math.max(0, t); }
+    public void setBatchMaxFileTokens(int t) { this.batchMaxFileTokens = Math.max(0, t); }
+    public void setCacheBackend(String b) { this.cacheBackend = b; }
+    public void setCacheMaxBytes(long b) { this.cacheMaxBytes = Math.max(0, b); }
+    public void setRemoteCache(String r) { this.remoteCache = r; }
+    public void setRemoteCacheTimeoutMillis(long t) { this.remoteCacheTimeoutMillis = Math.max(1, t); }
+    public void setMaxTokensPerRun(long t) { this.maxTokensPerRun = Math.max(0, t); }
+    public void setMaxRequestsPerRun(int r) { this.maxRequestsPerRun = Math.max(0, r); }
+    public void setMaxCostPerRun(double c) { this.maxCostPerRun = Math.max(0, c); }
+    public void setInputTokenCostPerMillion(double c) { this.inputTokenCostPerMillion = Math.max(0, c); }
+    public void setOutputTokenCostPerMillion(double c) { this.outputTokenCostPerMillion = Math.max(0, c); }
+
+    @Override
+    protected void finishLocalSetup() {
+        HttpTransport.configure(connectTimeoutSeconds, requestTimeoutSeconds, keepAliveSeconds, httpExecutor);
+        CacheUtils.configure(cacheBackend, cacheMaxBytes, remoteCache, remoteCacheTimeoutMillis);
+        RunBudget.configure(maxTokensPerRun, maxRequestsPerRun, maxCostPerRun,
+            inputTokenCostPerMillion, outputTokenCostPerMillion);
+        if (isActive()) {
+            RateLimiter.configure(endpoint, requestsPerMinute, tokensPerMinute,
+                concurrency, getMaxConcurrency(), maxRetries);
+        }
+    }
+
+    // ========================== Prefetch Support ==========================
+    boolean isActive() { return enabled && endpoint != null && !endpoint.isBlank(); }
+    int getMaxConcurrency() { return Math.max(concurrency, maxConcurrency); }
+    int getMaxPendingPrompts() { return maxPendingPrompts; }
+    int getBatchTokenBudget() { return batchTokenBudget; }
+    int getBatchMaxFileTokens() { return batchMaxFileTokens; }
+    // A structured reply is one JSON document, so it is never streamed
+    boolean isStreaming() { return streaming && !structuredOutput; }
+    boolean usesStructuredOutput() { return structuredOutput; }
+
+    /**
+     * Plans the LLM request for a file. Shared with LlmPrefetcher so both compute the same prompt.
+     */
+    LlmPlan planFor(String filePath, List<String> fileLines, DetailAST rootAST) throws Exception {
+        return plan(filePath, fileLines, rootAST).limitedTo(rootAST, maxPromptTokens);
+    }
+
+    private LlmPlan plan(String filePath, List<String> fileLines, DetailAST rootAST) throws Exception {
+        String sections = nameVerdicts ? DOCUMENTATION_SECTIONS : null;
+        if (nameVerdicts && !hasComments(fileLines)) {
+            return LlmPlan.none(); // the Javadoc sections are about comments
+        }
+        if (GitDiffScope.isActive()) {
+            return LlmPlan.diffScoped(fileLines, rootAST, GitDiffScope.changedLines(filePath), cacheSettings(),
+                sections);
+        }
+        if (incremental) {
+            return LlmPlan.incremental(fileLines, rootAST, cacheSettings(), sections, skeletonPrompts);
+        }
+        return skeletonPrompts
+            ? LlmPlan.skeleton(fileLines, rootAST, cacheSettings(), sections)
+            : LlmPlan.wholeFile(fileLines, cacheSettings(), sections);
+    }
+
+    /**
+     * Plans the LLM request for a file outside of a TreeWalker pass.
+     * With name verdicts on, this also queues the file's unseen identifiers for the model.
+     */
+    LlmPlan planFor(File file) throws Exception {
+        return planFor(file, true);
+    }
+
+    /**
+     * @param queueNames whether to queue the file's unseen identifiers for the model (with name verdicts on)
+     */
+    LlmPlan planFor(File file, boolean queueNames) throws Exception {
+        long start = System.nanoTime();
+        List<String> fileLines = Files.readAllLines(file.toPath());
+        RunMetrics.add(file.getAbsolutePath(), RunMetrics.Phase.READ, start);
+        start = System.nanoTime();
+        boolean oversized = maxPromptTokens > 0
+            && TokenEstimator.estimate(String.join("\n", fileLines)) > maxPromptTokens;
+        DetailAST rootAST = (incremental || skeletonPrompts || nameVerdicts || oversized || GitDiffScope.isActive())
+            ? JavaParser.parseFile(file, JavaParser.Options.WITHOUT_COMMENTS) : null;
+        if (nameVerdicts && queueNames) {
+            NameVerdicts.request(IdentifierNames.collect(rootAST, fileLines), cacheSettings(), createClient());
+        }
+        LlmPlan plan = planFor(file.getAbsolutePath(), fileLines, rootAST);
+        RunMetrics.add(file.getAbsolutePath(), RunMetrics.Phase.PROMPT, start);
+        return plan;
+    }
+
+    boolean usesNameVerdicts() { return nameVerdicts; }
+
+    private static boolean hasComments(List<String> fileLines) {
+        for (String line : fileLines) {
+            if (line.contains("//") || line.contains("/*")) return true;
+        }
+        return false;
+    }
+
+    /**
+     * The settings that change what the model answers, so a cached reply is never reused across them.
+     */
+    String cacheSettings() {
+        String settings = String.join("\n", endpoint, String.valueOf(model), String.valueOf(temperature),
+            String.valueOf(seed), String.valueOf(maxOutputTokens), String.valueOf(thinkingTokens));
+        if (structuredOutput) settings += "\nstructured";
+        if (isStreaming() && (maxViolationsPerFile > 0 || maxReplyTokensPerFile > 0)) {
+            // A reply cut off at the cap is not the full answer
+            settings += "\ncap " + maxViolationsPerFile + " " + maxReplyTokensPerFile;
+        }
+        return settings;
+    }
+
+    /**
+     * A fresh per-file limit for a streamed reply: false once the violation or token cap is reached.
+     */
+    Predicate<String> replyCap() {
+        int[] violations = {0};
+        int[] tokens = {0};
+        return line -> {
+            if (ReplyUtils.lineNumberOf(line) != null) violations[0]++;
+            tokens[0] += TokenEstimator.estimate(line);
+            return (maxViolationsPerFile == 0 || violations[0] < maxViolationsPerFile)
+                && (maxReplyTokensPerFile == 0 || tokens[0] < maxReplyTokensPerFile);
+        };
+    }
+
+    LlmClient createClient() {
+        LlmClient primary = LlmClientFactory.create(
+            apiKey,
+            endpoint,
+            model,
+            temperature,
+            seed,
+            maxOutputTokens,
+            thinkingTokens,
+            structuredOutput
+        );
+        LlmClient secondary = null;
+        if (secondaryEndpoint != null && !secondaryEndpoint.isBlank()) {
+            secondary = LlmClientFactory.create(
+                (secondaryApiKey != null) ? secondaryApiKey : apiKey,
+                secondaryEndpoint,
+                (secondaryModel != null) ? secondaryModel : model,
+                temperature,
+                seed,
+                maxOutputTokens,
+                thinkingTokens,
+                structuredOutput
+            );
+        }
+        return RunBudget.guard(ResilientClient.of(endpoint, primary, secondary, deadlineSeconds * 1000L,
+            hedgePercentile, breakerFailureThreshold, breakerCooldownSeconds * 1000L));
+    }
+
+    /**
+     * The primary model's client as a {@link BatchApi}, or null if its provider has none.
+     */
+    BatchApi createBatchApi() {
+        LlmClient primary = LlmClientFactory.create(apiKey, endpoint, model, temperature, seed, maxOutputTokens,
+            thinkingTokens, structuredOutput);
+        return (primary instanceof BatchApi batchApi) ? batchApi : null;
+    }
+
+    String getEndpoint() { return endpoint; }
+
+    /**
+     * Print an LLM call failure, unless the call was skipped by an open circuit breaker or the spent
+     * run budget (both reported once).
+     */
+    static void reportCallError(Exception e) {
+        if (e instanceof ResilientClient.CircuitBreakerOpenException) return;
+        if (e instanceof RunBudget.ExceededException) return;
+        System.err.println("LlmStyleCheck LLM call error: " + (e.getMessage() != null ? e.getMessage() : e));
+    }
 
     // ========================== Tokens ==========================
     @Override
@@ -74,109 +319,245 @@ public class LlmStyleCheck extends AbstractCheck {
     @Override
     public void beginTree(DetailAST rootAST) {
         if (!enabled) return;
+        answered = false;
+        llmViolations = 0;
         try {
+            long start = System.nanoTime();
             currentFileLines = Files.readAllLines(Paths.get(getFilePath()));
-            String sourceCode = String.join("\n", currentFileLines);
-
-            // Build prompt
-            String prompt = PromptUtils.buildPrompt(sourceCode);
-
-            // Build client
-            LlmClient client = LlmClientFactory.create(
-                apiKey,
-                endpoint,
-                model,
-                temperature,
-                seed,
-                maxOutputTokens,
-                thinkingTokens
-            );
-
-            // Cache + call
-            String cacheKey = CacheUtils.sha256(prompt);
-            String llmReply = CacheUtils.readCache(cacheKey).orElseGet(() -> {
-                try {
-                    String resp = client.generateResponse(prompt);
-                    if (resp != null) CacheUtils.writeCache(cacheKey, resp);
-                    return resp;
-                } catch (Exception e) {
-                    System.err.println("LlmStyleCheck LLM call error: " + e.getMessage());
-                    return null;
+            RunMetrics.add(getFilePath(), RunMetrics.Phase.READ, start);
+
+            // Plan prompt (null when every member is already cached), unless prefetched
+            LlmPrefetcher.Prefetched prefetched = LlmPrefetcher.claim(getFilePath());
+            start = System.nanoTime();
+            LlmPlan plan = (prefetched != null)
+                ? prefetched.plan()
+                : planFor(getFilePath(), currentFileLines, rootAST);
+            if (prefetched == null) RunMetrics.add(getFilePath(), RunMetrics.Phase.PROMPT, start);
+            String prompt = plan.prompt();
+
+            // Prefetched reply, or cache + call
+            String llmReply = null;
+            boolean streamed = false;
+            boolean asked = prefetched != null;
+            if (prefetched != null) {
+                llmReply = RunBudget.awaitReply(prefetched.reply());
+            } else if (prompt != null) {
+                start = System.nanoTime();
+                llmReply = plan.cachedReply().orElse(null);
+                RunMetrics.add(getFilePath(), RunMetrics.Phase.CACHE, start);
+                if (llmReply == null) {
+                    asked = true;
+                    start = System.nanoTime();
+                    streamed = isStreaming() && !plan.isSplit();
+                    llmReply = streamed ? streamAndLog(rootAST, plan) : callModel(plan);
+                    RunMetrics.add(getFilePath(), RunMetrics.Phase.NETWORK, start);
                 }
-            });
+            }
+            RunMetrics.cacheHit(getFilePath(), !asked);
+            RunMetrics.claimUsage(getFilePath(), plan.prompts());
+            if (prompt != null && llmReply == null) {
+                if (RunBudget.wasRefused(plan.prompts()) || RunBudget.isExhausted()) {
+                    RunBudget.skipped(getFilePath());
+                }
+                fallBack();
+            }
+            answered = prompt == null || llmReply != null;
+            llmReply = plan.complete(llmReply);
+            if (streamed) llmReply = plan.reusedReply(); // streamed lines are already logged
 
             if (llmReply != null && !llmReply.isBlank()) {
                 handleLlmResponse(rootAST, llmReply);
             }
+            if (nameVerdicts) logNameFindings(rootAST);
 
         } catch (Exception e) {
             System.err.println("LlmStyleCheck error: " + e.getMessage());
+            fallBack();
+        }
+    }
+
+    /**
+     * Log the stored verdicts of the file's identifiers, asking the model only about unseen ones.
+     */
+    private void logNameFindings(DetailAST rootAST) throws Exception {
+        List<IdentifierNames.Occurrence> names = new ArrayList<>(IdentifierNames.collect(rootAST, currentFileLines));
+        if (GitDiffScope.isActive()) {
+            BitSet changedLines = GitDiffScope.changedLines(getFilePath());
+            names.removeIf(name -> !changedLines.get(name.line()));
+        }
+        String findings = NameVerdicts.findings(names, cacheSettings(), createClient());
+        if (findings == null) {
+            if (RunBudget.isExhausted()) RunBudget.skipped(getFilePath());
+            fallBack();
+            return;
+        }
+        handleLlmResponse(rootAST, findings);
+    }
+
+    private String callModel(LlmPlan plan) {
+        try {
+            String resp = plan.ask(createClient(), null);
+            plan.cacheReply(resp);
+            return resp;
+        } catch (Exception e) {
+            reportCallError(e);
+            return null;
         }
     }
 
+    /**
+     * Streams the reply and logs each violation as soon as its line is complete,
+     * cutting the stream off at the per-file cap.
+     */
+    private String streamAndLog(DetailAST rootAST, LlmPlan plan) {
+        StringBuilder received = new StringBuilder();
+        Predicate<String> cap = replyCap();
+        try {
+            String resp = plan.ask(createClient(), line -> {
+                received.append(line).append('\n');
+                if (plan.reports(line)) handleLlmLine(rootAST, line);
+                return cap.test(line);
+            });
+            plan.cacheReply(resp);
+            return resp;
+        } catch (Exception e) {
+            reportCallError(e);
+            // Lines logged before the failure stand, but a partial reply is not cached
+            CheckSession.incompleteResults(getFilePath());
+            return received.isEmpty() ? null : received.toString();
+        }
+    }
+
+    /**
+     * No LLM findings for this file: let the built-in checks LlmStyleCheck replaces run on it instead.
+     */
+    private void fallBack() {
+        answered = false;
+        CheckSession.incompleteResults(getFilePath());
+        if (fallbackToBuiltInChecks) CheckSession.fallBackFor(getFilePath());
+    }
+
     @Override public void visitToken(DetailAST ast) { /* no-op */ }
-    @Override public void finishTree(DetailAST rootAST) { currentFileLines = null; }
+    @Override
+    public void finishTree(DetailAST rootAST) {
+        if (answered && currentFileLines != null && RunBudget.isLimited()) {
+            FileSchedule.record(getFilePath(), currentFileLines.size(), llmViolations);
+        }
+        currentFileLines = null;
+        positions = null;
+    }
 
     // ========================== Response Handling ==========================
     private void handleLlmResponse(DetailAST rootAst, String llmReply) {
-        String[] linesOut = llmReply.split("\\R");
-        for (String raw : linesOut) {
-            String line = raw.trim();
-            if (line.isEmpty()) continue;
-
-            String lower = line.toLowerCase(Locale.ROOT);
-            boolean isError = lower.startsWith("[error]") || lower.startsWith("[violation]");
-            boolean isWarn  = lower.startsWith("[warn]")  || lower.startsWith("[warning]");
-
-            if (!(isError || (isWarn && showWarnings) || (!isError && !isWarn && showWarnings))) continue;
-
-            Integer targetLine = extractLineNumber(line);
-            String payload = lastParenContent(line);
-            String tag = detectRecommendationTagFromText(line);
-            String marker = (tag != null) ? "[" + tag + "]" : "[LLMStyle]";
-
-            String msg = (payload != null ? payload : line) + " " + marker;
-
-            // --- Handle Javadoc cases specially ---
-            if ("JavadocRequired".equals(tag) || "SummaryJavadoc".equals(tag)) {
-                String commentText = extractCommentText(targetLine);
-                if (commentText != null && !commentText.isEmpty()) {
-                    msg = "The comment starting with '// " + commentText + 
-                          "' is used to describe the method's overall purpose, " +
-                          "a Javadoc comment starting with '/**' should be used instead " + marker;
-                }
-                msg = escapeForJavadocCases(msg);
-            }
+        long start = System.nanoTime();
+        for (String raw : llmReply.split("\\R")) {
+            handleLlmLine(rootAst, raw);
+        }
+        RunMetrics.add(getFilePath(), RunMetrics.Phase.RESPONSE, start);
+    }
 
-            String ident = extractIdentifier(payload != null ? payload : line);
+    private void handleLlmLine(DetailAST rootAst, String raw) {
+        String line = raw.trim();
+        if (line.isEmpty()) return;
+        if (StructuredReply.isFinding(line)) {
+            StructuredReply.Finding finding = StructuredReply.parse(line);
+            if (finding != null) handleFinding(rootAst, finding);
+            return;
+        }
 
-            // Log with proper column anchoring if possible
-            if (targetLine != null) {
-                DetailAST identAst = (ident != null)
-                        ? AstUtils.findIdentAtLineWithText(rootAst, targetLine, ident)
-                        : null;
-                if (identAst != null) {
-                    log(identAst, "{0}", msg);
-                    continue;
-                }
+        String lower = line.toLowerCase(Locale.ROOT);
+        boolean isError = lower.startsWith("[error]") || lower.startsWith("[violation]");
+        boolean isWarn  = lower.startsWith("[warn]")  || lower.startsWith("[warning]");
 
-                Integer rawCol = findColumnRaw(targetLine, ident);
-                if (rawCol != null) {
-                    int visCol = toVisualColumn(safeGetLine(targetLine), rawCol, llmTabWidth);
-                    log(targetLine, Math.max(0, visCol + columnOffset), "{0}", msg);
-                } else {
-                    log(targetLine, "{0}", msg);
-                }
+        if (!(isError || (isWarn && showWarnings) || (!isError && !isWarn && showWarnings))) return;
+
+        Integer targetLine = extractLineNumber(line);
+        String payload = lastParenContent(line);
+        String tag = detectRecommendationTagFromText(line);
+        String marker = (tag != null) ? "[" + tag + "]" : "[LLMStyle]";
+
+        String msg = messageFor(tag, targetLine, (payload != null ? payload : line) + " " + marker);
+
+        String ident = extractIdentifier(payload != null ? payload : line);
+        logAt(rootAst, targetLine, ident, msg);
+    }
+
+    /**
+     * Log a structured finding: its fields are used as given, with no guessing from free text.
+     */
+    private void handleFinding(DetailAST rootAst, StructuredReply.Finding finding) {
+        if (finding.isWarning() && !showWarnings) return;
+
+        String section = (finding.section() != null && !finding.section().isBlank())
+            ? finding.section().trim()
+            : null;
+        String ident = (finding.identifier() != null && !finding.identifier().isBlank())
+            ? finding.identifier().trim()
+            : null;
+        String tag = (section != null) ? SECTION_TAG_MAP.get(section) : null;
+        String marker = (tag != null) ? "[" + tag + "]" : "[LLMStyle]";
+        String text;
+        if (finding.suggestion() != null && !finding.suggestion().isBlank()) {
+            text = finding.suggestion().trim();
+        } else if (ident != null && section != null) {
+            text = "'" + ident + "' violates section " + section;
+        } else if (ident != null) {
+            text = "'" + ident + "' violates the style guidelines";
+        } else if (section != null) {
+            text = "Violates section " + section + " of the style guidelines";
+        } else {
+            text = "Violates the style guidelines";
+        }
+        Integer targetLine = finding.line();
+        if (targetLine != null && (targetLine < 1 || targetLine > currentFileLines.size())) targetLine = null;
+        String msg = messageFor(tag, targetLine, text + " " + marker);
+
+        logAt(rootAst, targetLine, ident, msg);
+    }
+
+    /**
+     * The message to log for a finding: Javadoc findings quote the comment on their line when there is one,
+     * and are quoted for the message format.
+     */
+    private String messageFor(String tag, Integer targetLine, String msg) {
+        if (!"JavadocRequired".equals(tag) && !"SummaryJavadoc".equals(tag)) return msg;
+        String commentText = extractCommentText(targetLine);
+        if (commentText != null && !commentText.isEmpty()) {
+            msg = "The comment starting with '// " + commentText
+                + "' is used to describe the method's overall purpose, "
+                + "a Javadoc comment starting with '/**' should be used instead [" + tag + "]";
+        }
+        return escapeForJavadocCases(msg);
+    }
+
+    /**
+     * Log at the identifier on the target line if it is found there, else at the line, else on the file.
+     */
+    private void logAt(DetailAST rootAst, Integer targetLine, String ident, String msg) {
+        llmViolations++;
+        if (targetLine != null) {
+            if (positions == null) positions = new PositionIndex(rootAst, currentFileLines);
+            DetailAST identAst = positions.identAt(targetLine, ident);
+            if (identAst != null) {
+                log(identAst, "{0}", msg);
+                return;
+            }
+
+            Integer rawCol = positions.columnOf(targetLine, ident);
+            if (rawCol != null) {
+                int visCol = positions.visualColumn(targetLine, rawCol, llmTabWidth);
+                log(targetLine, Math.max(0, visCol + columnOffset), "{0}", msg);
             } else {
-                log(rootAst, "{0}", msg);
+                log(targetLine, "{0}", msg);
             }
+        } else {
+            log(rootAst, "{0}", msg);
         }
     }
 
     // ========================== Helpers ==========================
     private Integer extractLineNumber(String line) {
-        Matcher m = FIRST_PARENS_NUMBER.matcher(line);
-        return m.find() ? Integer.valueOf(m.group(1)) : null;
+        return ReplyUtils.lineNumberOf(line);
     }
 
     private String lastParenContent(String line) {
@@ -194,31 +575,9 @@ public class LlmStyleCheck extends AbstractCheck {
         return candidate;
     }
 
-    private Integer findColumnRaw(int line, String identifier) {
-        if (identifier == null || currentFileLines == null) return null;
-        String text = currentFileLines.get(line - 1);
-        Matcher m = Pattern.compile("\\b" + Pattern.quote(identifier) + "\\b").matcher(text);
-        if (m.find()) return m.start();
-        int idx = text.indexOf(identifier);
-        return (idx >= 0) ? idx : null;
-    }
-
-    private int toVisualColumn(String line, int rawIndex, int tabW) {
-        int col = 0;
-        for (int i = 0; i < Math.min(rawIndex, line.length()); i++) {
-            col += (line.charAt(i) == '\t') ? tabW - (col % tabW) : 1;
-        }
-        return col;
-    }
-
-    private String safeGetLine(int oneBasedLine) {
-        return (oneBasedLine < 1 || oneBasedLine > currentFileLines.size())
-                ? "" : currentFileLines.get(oneBasedLine - 1);
-    }
-
     private String detectRecommendationTagFromText(String line) {
         if (line == null) return null;
-        Matcher m = Pattern.compile("\\((\\d+(?:\\.\\d+)+)\\)").matcher(line);
+        Matcher m = SECTION_NUMBER.matcher(line);
         while (m.find()) {
             String section = m.group(1);
             if (SECTION_TAG_MAP.containsKey(section)) {
@@ -0,0 +1,139 @@
+package com.checkstyleplus;
+
+import com.checkstyleplus.adapters.LlmClient;
+import com.checkstyleplus.cache.CacheKeys;
+import com.checkstyleplus.utils.CacheUtils;
+import com.checkstyleplus.utils.IdentifierNames.Occurrence;
+import com.checkstyleplus.utils.PromptUtils;
+import com.checkstyleplus.utils.ReplyUtils;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * NameVerdicts — remembers what the model said about each (kind, name) pair, so a name seen in
+ * one file is never asked about again. Verdicts live in the reply cache and survive across runs.
+ * Unseen names are collected from every file planned so far and sent together in compact prompts
+ * listing only the names, not the code.
+ * <p>
+ * A verdict is the model's finding lines for the name with a placeholder line number,
+ * or a single space when the name is fine.
+ */
+public class NameVerdicts {
+
+    private static final int MAX_NAMES_PER_PROMPT = 100;
+    private static final String NO_FINDINGS = " ";
+
+    private record Unsent(String key, String cacheKey, CompletableFuture<String> verdict) { }
+
+    private static final Map<String, CompletableFuture<String>> PENDING = new ConcurrentHashMap<>();
+    private static final List<Unsent> UNSENT = new ArrayList<>();
+
+    /**
+     * Queue the names of a file that have no stored verdict yet; full prompts are sent right away.
+     */
+    public static void request(List<Occurrence> names, String settings, LlmClient client) throws Exception {
+        List<Unsent> ready = null;
+        synchronized (UNSENT) {
+            for (Occurrence name : names) {
+                String cacheKey = CacheKeys.ofName(settings, name.key());
+                if (PENDING.containsKey(cacheKey)) continue;
+                if (CacheUtils.readCache(cacheKey).isPresent()) continue;
+                CompletableFuture<String> verdict = new CompletableFuture<>();
+                PENDING.put(cacheKey, verdict);
+                UNSENT.add(new Unsent(name.key(), cacheKey, verdict));
+            }
+            if (UNSENT.size() >= MAX_NAMES_PER_PROMPT) {
+                ready = List.copyOf(UNSENT);
+                UNSENT.clear();
+            }
+        }
+        if (ready != null) send(ready, client);
+    }
+
+    /**
+     * The findings for the given declarations, placed on their lines.
+     * Waits for the verdicts still being asked for; names whose verdict could not be obtained are skipped.
+     *
+     * @return the reply lines, or null if no verdict at all could be obtained
+     */
+    public static String findings(List<Occurrence> names, String settings, LlmClient client) throws Exception {
+        request(names, settings, client);
+        flush(client);
+
+        StringBuilder reply = new StringBuilder();
+        boolean answered = names.isEmpty();
+        for (Occurrence name : names) {
+            String cacheKey = CacheKeys.ofName(settings, name.key());
+            CompletableFuture<String> pending = PENDING.get(cacheKey);
+            String verdict = (pending != null) ? pending.join() : CacheUtils.readCache(cacheKey).orElse(null);
+            if (verdict == null) continue;
+            answered = true;
+            for (String line : verdict.split("\\R")) {
+                if (!line.isBlank()) reply.append(ReplyUtils.withLineNumber(line, name.line())).append('\n');
+            }
+        }
+        return answered ? reply.toString() : null;
+    }
+
+    /**
+     * Send whatever names are still queued.
+     */
+    public static void flush(LlmClient client) {
+        List<Unsent> ready;
+        synchronized (UNSENT) {
+            if (UNSENT.isEmpty()) return;
+            ready = List.copyOf(UNSENT);
+            UNSENT.clear();
+        }
+        send(ready, client);
+    }
+
+    /**
+     * Forget requests of the finished run; stored verdicts are kept.
+     */
+    public static void reset() {
+        synchronized (UNSENT) {
+            UNSENT.forEach(u -> u.verdict().complete(null));
+            UNSENT.clear();
+        }
+        PENDING.values().forEach(v -> v.complete(null));
+        PENDING.clear();
+    }
+
+    private static void send(List<Unsent> names, LlmClient client) {
+        List<String> keys = new ArrayList<>();
+        for (Unsent name : names) keys.add(name.key());
+
+        client.generateResponseAsync(PromptUtils.buildNamesPrompt(keys)).whenComplete((reply, error) -> {
+            if (error != null) LlmStyleCheck.reportCallError(unwrap(error));
+
+            // Findings carry the number of the name they are about in place of a line number
+            StringBuilder[] perName = new StringBuilder[names.size()];
+            if (reply != null) {
+                for (String line : reply.split("\\R")) {
+                    Integer n = ReplyUtils.lineNumberOf(line);
+                    if (n == null || n < 1 || n > names.size()) continue;
+                    if (perName[n - 1] == null) perName[n - 1] = new StringBuilder();
+                    perName[n - 1].append(ReplyUtils.withLineNumber(line.trim(), 0)).append('\n');
+                }
+            }
+            for (int i = 0; i < names.size(); i++) {
+                Unsent name = names.get(i);
+                String verdict = null;
+                if (reply != null) {
+                    verdict = (perName[i] != null) ? perName[i].toString() : NO_FINDINGS;
+                    CacheUtils.writeCache(name.cacheKey(), verdict);
+                }
+                name.verdict().complete(verdict);
+                PENDING.remove(name.cacheKey(), name.verdict());
+            }
+        });
+    }
+
+    private static Exception unwrap(Throwable error) {
+        Throwable cause = (error.getCause() != null) ? error.getCause() : error;
+        return (cause instanceof Exception e) ? e : new RuntimeException(cause);
+    }
+}
@@ -0,0 +1,141 @@
+package com.checkstyleplus;
+
+import com.checkstyleplus.utils.CacheUtils;
+import com.checkstyleplus.utils.PromptUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * ResultCache — the violations of files checked before, replayed instead of parsing and checking them again.
+ * An entry is keyed by the file's path and content, the lines changed in {@code --since} mode, and a fingerprint
+ * of the effective configuration: every module, property and message, the content of the files properties name
+ * (suppressions, headers...) and the prompt template. Any change to these is a miss. Results of files whose LLM
+ * findings are missing or partial are not stored. Entries are replayed without checking the file, so they are kept
+ * in the local store of LLM replies only, never in a shared cache (see {@link CacheUtils#writeLocalCache}).
+ */
+class ResultCache {
+
+    /** Bump when the key derivation or the stored format changes. */
+    private static final int FORMAT_VERSION = 1;
+
+    private static final ObjectMapper M = new ObjectMapper();
+
+    private final String configHash;
+
+    ResultCache(Configuration config) throws Exception {
+        StringBuilder fingerprint = new StringBuilder();
+        fingerprint.append(Checker.class.getPackage().getImplementationVersion()).append('\n');
+        fingerprint.append(PromptUtils.loadPromptTemplate()).append('\n');
+        describe(config, "", fingerprint);
+        this.configHash = CacheUtils.sha256(fingerprint.toString());
+    }
+
+    /**
+     * The key of the file's entry, or null if the file cannot be read.
+     */
+    String keyOf(File file) {
+        try {
+            String path = file.getAbsolutePath();
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String header = "result v" + FORMAT_VERSION + "\n" + configHash + "\n" + path + "\n"
+                + (GitDiffScope.isActive() ? GitDiffScope.changedLines(path) : "") + "\n";
+            digest.update(header.getBytes(StandardCharsets.UTF_8));
+            digest.update(Files.readAllBytes(file.toPath()));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * The stored violations of the file, or null on a miss.
+     */
+    List<Violation> lookup(String key) {
+        Optional<String> stored = CacheUtils.readLocalCache(key);
+        if (stored.isEmpty()) return null;
+        try {
+            List<Violation> violations = new ArrayList<>();
+            for (JsonNode v : M.readTree(stored.get())) {
+                Class<?> source = Class.forName(v.path("source").asText(), false, ResultCache.class.getClassLoader());
+                String moduleId = v.hasNonNull("moduleId") ? v.get("moduleId").asText() : null;
+                String messageKey = v.hasNonNull("key") ? v.get("key").asText() : null;
+                // The message is stored formatted, and passed as the only argument of a "{0}" pattern
+                violations.add(new Violation(
+                    v.path("line").asInt(), v.path("column").asInt(), v.path("charIndex").asInt(),
+                    v.path("tokenType").asInt(), null, messageKey,
+                    new Object[]{v.path("message").asText()},
+                    SeverityLevel.getInstance(v.path("severity").asText()), moduleId, source, "{0}"));
+            }
+            return violations;
+        } catch (Exception e) {
+            // Unreadable or from classes no longer present: check the file again
+            return null;
+        }
+    }
+
+    /**
+     * Store the violations reported on the file.
+     */
+    void store(String key, List<Violation> violations) {
+        ArrayNode entries = M.createArrayNode();
+        for (Violation violation : violations) {
+            ObjectNode v = entries.addObject();
+            v.put("line", violation.getLineNo());
+            v.put("column", violation.getColumnNo());
+            v.put("charIndex", violation.getColumnCharIndex());
+            v.put("tokenType", violation.getTokenType());
+            v.put("severity", violation.getSeverityLevel().getName());
+            v.put("moduleId", violation.getModuleId());
+            v.put("source", violation.getSourceName());
+            v.put("key", violation.getKey());
+            v.put("message", violation.getViolation());
+        }
+        CacheUtils.writeLocalCache(key, entries.toString());
+    }
+
+    /**
+     * Module names, properties (with the content of files they name) and messages, depth first.
+     */
+    private static void describe(Configuration config, String indent, StringBuilder out) throws CheckstyleException {
+        out.append(indent).append(config.getName()).append('\n');
+        List<String> names = new ArrayList<>(Arrays.asList(config.getPropertyNames()));
+        Collections.sort(names);
+        for (String name : names) {
+            // Only says where the Checker keeps its own cache, and differs between threads
+            if (name.equals("cacheFile")) continue;
+            String value = config.getProperty(name);
+            out.append(indent).append(' ').append(name).append('=').append(value).append('\n');
+            if (value != null && !value.isBlank()) describeFile(value, indent, out);
+        }
+        new TreeMap<>(config.getMessages()).forEach((key, message) ->
+            out.append(indent).append(" message ").append(key).append('=').append(message).append('\n'));
+        for (Configuration child : config.getChildren()) {
+            describe(child, indent + "  ", out);
+        }
+    }
+
+    private static void describeFile(String value, String indent, StringBuilder out) {
+        try {
+            Path path = Paths.get(value);
+            if (!Files.isRegularFile(path)) return;
+            out.append(indent).append(" content ").append(CacheUtils.sha256(Files.readString(path))).append('\n');
+        } catch (Exception e) {
+            // Not a path, or not readable as text: the value alone is part of the fingerprint
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.checkstyleplus;
+
+import com.checkstyleplus.adapters.LlmClient;
+import com.checkstyleplus.utils.RunMetrics;
+import com.checkstyleplus.utils.TokenEstimator;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * RunBudget — caps what one run may spend on the model: tokens, requests, estimated cost and
+ * wall-clock time ({@code --llm-deadline}, counted from the start of the run).
+ * Before each request the limits are checked against the usage the provider reported so far
+ * (see {@link RunMetrics}) plus the estimated prompt tokens of the requests in flight and of this one,
+ * so a run only overshoots a limit by the completion tokens of its last requests. Replies that reported
+ * no usage, or were cut off before it, count at an estimate of their prompt and completion tokens.
+ * Requests count as sent on the wire, so the hedged and secondary calls of one guarded call each count;
+ * a call counts as one until its requests are sent. At the deadline,
+ * replies still awaited are given up on (streamed replies are only bounded by {@code deadlineSeconds}).
+ * Once a limit is reached no further request is sent for the rest of the run: remaining files still
+ * get their cached replies, and the others are checked by the built-in checks LlmStyleCheck replaces
+ * (see {@link CheckSession}).
+ */
+public class RunBudget {
+
+    private static long maxTokens;
+    private static int maxRequests;
+    private static double maxCost;
+    private static double inputCostPerMillion;
+    private static double outputCostPerMillion;
+    private static volatile long deadlineSeconds;
+
+    private static final AtomicInteger REQUESTS = new AtomicInteger();
+    private static long inFlightTokens;
+    private static volatile long runStart = System.nanoTime();
+    private static final Set<String> REFUSED = ConcurrentHashMap.newKeySet();
+    private static final Set<String> SKIPPED = ConcurrentHashMap.newKeySet();
+    private static volatile String reached;
+
+    /**
+     * Set the limits of every run; 0 means no limit.
+     *
+     * @param maxCost              estimated cost ceiling, in the currency of the two rates
+     * @param inputCostPerMillion  price of a million prompt tokens
+     * @param outputCostPerMillion price of a million completion tokens
+     */
+    static synchronized void configure(long maxTokens, int maxRequests, double maxCost,
+                                       double inputCostPerMillion, double outputCostPerMillion) {
+        RunBudget.maxTokens = maxTokens;
+        RunBudget.maxRequests = maxRequests;
+        RunBudget.maxCost = maxCost;
+        RunBudget.inputCostPerMillion = inputCostPerMillion;
+        RunBudget.outputCostPerMillion = outputCostPerMillion;
+    }
+
+    /**
+     * Stop calling the model this many seconds after the next run starts; 0 for no deadline.
+     */
+    static void setDeadline(long seconds) {
+        deadlineSeconds = Math.max(0, seconds);
+    }
+
+    /**
+     * Start counting a new run from zero.
+     */
+    static void reset() {
+        REQUESTS.set(0);
+        synchronized (RunBudget.class) {
+            inFlightTokens = 0;
+        }
+        runStart = System.nanoTime();
+        REFUSED.clear();
+        SKIPPED.clear();
+        reached = null;
+    }
+
+    /**
+     * The client, refusing requests once the run's budget is spent.
+     */
+    static synchronized LlmClient guard(LlmClient client) {
+        if (!isLimited()) return client;
+        return new Guarded(client);
+    }
+
+    /**
+     * Whether the run has any limit or a deadline.
+     */
+    static synchronized boolean isLimited() {
+        return maxTokens > 0 || maxRequests > 0 || maxCost > 0 || deadlineSeconds > 0;
+    }
+
+    static boolean isExhausted() {
+        if (reached == null && remainingNanos() <= 0) exceed("llm-deadline " + deadlineSeconds + "s");
+        return reached != null;
+    }
+
+    /**
+     * The prefetched reply, or null if it is still missing at the deadline.
+     */
+    static String awaitReply(CompletableFuture<String> reply) {
+        long remaining = remainingNanos();
+        if (remaining == Long.MAX_VALUE) return reply.join();
+        try {
+            return reply.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            isExhausted();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether any of the prompts was refused or given up on for lack of budget.
+     */
+    static boolean wasRefused(List<String> prompts) {
+        for (String prompt : prompts) {
+            if (REFUSED.contains(prompt)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * The file got no LLM findings because the budget was spent.
+     */
+    static void skipped(String filePath) {
+        if (SKIPPED.add(filePath)) RunMetrics.skippedByBudget(filePath);
+    }
+
+    /**
+     * Print which limit stopped the model calls of the run and how many files got no LLM findings.
+     */
+    static void report(PrintStream err) {
+        if (reached == null) return;
+        err.println("LlmStyleCheck: run budget reached (" + reached + "), " + SKIPPED.size()
+            + " file(s) skipped the model and were left to the built-in checks");
+    }
+
+    /**
+     * Nanoseconds left until the deadline, or {@link Long#MAX_VALUE} if there is none.
+     */
+    private static long remainingNanos() {
+        long seconds = deadlineSeconds;
+        if (seconds == 0) return Long.MAX_VALUE;
+        return runStart + TimeUnit.SECONDS.toNanos(seconds) - System.nanoTime();
+    }
+
+    private static synchronized void exceed(String limit) {
+        if (reached == null) reached = limit;
+    }
+
+    /**
+     * Take the budget for one request, or return false (for the rest of the run) if it would exceed a limit.
+     */
+    private static synchronized boolean tryAcquire(String prompt, long estimate) {
+        if (!isExhausted()) {
+            long promptTokens = RunMetrics.promptTokens() + RunMetrics.unreportedPromptTokens()
+                + inFlightTokens + estimate;
+            long completionTokens = RunMetrics.completionTokens() + RunMetrics.unreportedCompletionTokens();
+            long tokens = promptTokens + completionTokens;
+            double cost = (promptTokens * inputCostPerMillion + completionTokens * outputCostPerMillion) / 1_000_000;
+            long requests = Math.max(REQUESTS.get(), RunMetrics.requestsSent());
+            if (maxRequests > 0 && requests >= maxRequests) {
+                exceed("maxRequestsPerRun " + maxRequests);
+            } else if (maxTokens > 0 && tokens > maxTokens) {
+                exceed("maxTokensPerRun " + maxTokens);
+            } else if (maxCost > 0 && cost > maxCost) {
+                exceed("maxCostPerRun " + maxCost);
+            }
+        }
+        if (reached != null) {
+            REFUSED.add(prompt);
+            return false;
+        }
+        REQUESTS.incrementAndGet();
+        inFlightTokens += estimate;
+        return true;
+    }
+
+    /**
+     * The request is answered (its usage is now reported) or failed.
+     */
+    private static synchronized void release(long estimate) {
+        inFlightTokens = Math.max(0, inFlightTokens - estimate);
+    }
+
+    /**
+     * Thrown instead of sending a request once the run's budget is spent.
+     */
+    static class ExceededException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        ExceededException() {
+            super("run budget reached (" + reached + "), skipping LLM call");
+        }
+    }
+
+    private static final class Guarded implements LlmClient {
+
+        private final LlmClient client;
+
+        private Guarded(LlmClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public String generateResponse(String prompt) throws Exception {
+            if (remainingNanos() == Long.MAX_VALUE) {
+                long estimate = TokenEstimator.estimate(prompt);
+                if (!tryAcquire(prompt, estimate)) throw new ExceededException();
+                try {
+                    return client.generateResponse(prompt);
+                } finally {
+                    release(estimate);
+                }
+            }
+            try {
+                return generateResponseAsync(prompt).join();
+            } catch (CompletionException e) {
+                throw (e.getCause() instanceof Exception cause) ? cause : e;
+            }
+        }
+
+        @Override
+        public CompletableFuture<String> generateResponseAsync(String prompt) {
+            long estimate = TokenEstimator.estimate(prompt);
+            if (!tryAcquire(prompt, estimate)) return CompletableFuture.failedFuture(new ExceededException());
+            CompletableFuture<String> call = client.generateResponseAsync(prompt);
+            CompletableFuture<String> reply = call.whenComplete((r, e) -> release(estimate));
+            long remaining = remainingNanos();
+            if (remaining == Long.MAX_VALUE) return reply;
+
+            // Give up on the reply at the deadline
+            CompletableFuture<String> bounded = new CompletableFuture<>();
+            reply.whenComplete((r, e) -> {
+                if (e != null) bounded.completeExceptionally(e);
+                else bounded.complete(r);
+            });
+            CompletableFuture.delayedExecutor(Math.max(0, remaining), TimeUnit.NANOSECONDS).execute(() -> {
+                if (bounded.isDone()) return;
+                isExhausted();
+                REFUSED.add(prompt);
+                if (bounded.completeExceptionally(new ExceededException())) call.cancel(true); // aborts the request
+            });
+            return bounded;
+        }
+
+        @Override
+        public String streamResponse(String prompt, Predicate<String> onLine) throws Exception {
+            long estimate = TokenEstimator.estimate(prompt);
+            if (!tryAcquire(prompt, estimate)) throw new ExceededException();
+            try {
+                return client.streamResponse(prompt, onLine);
+            } finally {
+                release(estimate);
+            }
+        }
+    }
+}
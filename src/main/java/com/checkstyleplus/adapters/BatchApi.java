@@ -0,0 +1,34 @@
+package com.checkstyleplus.adapters;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An adapter that can also send prompts through its provider's asynchronous batch API
+ * (the OpenAI Batch API, Anthropic Message Batches): the replies come within hours instead of seconds,
+ * at a lower price and under separate, much higher limits.
+ * The requests are the ones {@link LlmClient#generateResponse} sends, and the replies are read the same way.
+ */
+public interface BatchApi {
+
+    /**
+     * One prompt of a job, under an id unique within it (letters, digits, {@code -} and {@code _}, at most 64).
+     */
+    record Request(String id, String prompt) { }
+
+    /**
+     * Submit the prompts as one job.
+     *
+     * @return the provider's id of the job
+     */
+    String submitBatch(List<Request> requests) throws IOException, InterruptedException;
+
+    /**
+     * The replies of a finished job by request id (requests that failed or expired are missing, and a job
+     * that failed as a whole has none), or null while the job is still running.
+     *
+     * @throws IOException if the provider could not be reached or refused the request
+     */
+    Map<String, String> batchResults(String jobId) throws IOException, InterruptedException;
+}
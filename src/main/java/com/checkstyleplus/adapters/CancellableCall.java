@@ -0,0 +1,33 @@
+package com.checkstyleplus.adapters;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a blocking model call on an executor as a future whose cancellation interrupts the call.
+ * An interrupted {@code HttpClient.send} aborts its exchange, so a hedged call that lost or a call
+ * given up at its deadline hands back its rate limiter and budget slots right away instead of
+ * holding them until the HTTP timeout.
+ */
+final class CancellableCall {
+
+    private CancellableCall() {
+    }
+
+    static CompletableFuture<String> submit(ExecutorService executor, Callable<String> call) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            try {
+                result.complete(call.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((reply, e) -> {
+            if (result.isCancelled()) task.cancel(true);
+        });
+        return result;
+    }
+}
@@ -0,0 +1,55 @@
+package com.checkstyleplus.adapters;
+
+/**
+ * Stops calling a provider that keeps failing.
+ * After {@code failureThreshold} failed calls in a row the breaker opens and calls are refused
+ * for {@code cooldownMillis}; then a single trial call is let through, and its outcome closes
+ * the breaker again or reopens it.
+ */
+public class CircuitBreaker {
+
+    private final String name;
+    private final int failureThreshold;
+    private final long cooldownMillis;
+
+    private int consecutiveFailures;
+    private long openUntil;
+    private boolean open;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(String name, int failureThreshold, long cooldownMillis) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.cooldownMillis = cooldownMillis;
+    }
+
+    /**
+     * Whether a call may be made now. A caller that gets true must report the outcome.
+     */
+    public synchronized boolean allowRequest() {
+        if (!open) return true;
+        if (System.currentTimeMillis() < openUntil || trialInFlight) return false;
+        trialInFlight = true;
+        return true;
+    }
+
+    public synchronized void recordSuccess() {
+        if (open) System.err.println("CircuitBreaker: " + name + " is responding again");
+        consecutiveFailures = 0;
+        open = false;
+        trialInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (trialInFlight || consecutiveFailures >= failureThreshold) {
+            if (!open) {
+                System.err.println("CircuitBreaker: " + name + " failed " + consecutiveFailures
+                    + " times in a row, pausing LLM calls for " + cooldownMillis / 1000 + "s");
+            }
+            open = true;
+            openUntil = System.currentTimeMillis() + cooldownMillis;
+        }
+        trialInFlight = false;
+    }
+}
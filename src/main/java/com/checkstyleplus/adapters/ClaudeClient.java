@@ -1,14 +1,19 @@
 package com.checkstyleplus.adapters;
 
+import java.io.IOException;
 import java.net.http.*;
-import java.net.URI;
 import java.util.*;
+import com.checkstyleplus.utils.StructuredReply;
 import com.fasterxml.jackson.databind.*;
 
 /**
  * Adapter for Anthropic Claude API.
+ * Batches go through Message Batches ({@code /v1/messages/batches}), whose results are read from the
+ * job's {@code results_url}.
  */
-public class ClaudeClient implements LlmClient {
+public class ClaudeClient extends HttpLlmClient implements BatchApi {
+    // Claude has no response format option: structured replies are the input of a tool it must call
+    private static final String REPORT_TOOL = "report_violations";
     private final String apiKey;
     private final String endpoint;
     private final String model;
@@ -17,7 +22,9 @@ public class ClaudeClient implements LlmClient {
     private static final ObjectMapper M = new ObjectMapper();
 
     public ClaudeClient(String apiKey, String endpoint, String model,
-                        Double temperature, Integer maxTokens) {
+                        Double temperature, Integer maxTokens,
+                        boolean structuredOutput) {
+        super(structuredOutput);
         this.apiKey = apiKey;
         this.endpoint = endpoint;
         this.model = (model != null) ? model : "claude-3";
@@ -26,30 +33,130 @@ public class ClaudeClient implements LlmClient {
     }
 
     @Override
-    public String generateResponse(String prompt) throws Exception {
-        HttpClient client = HttpClient.newHttpClient();
+    protected HttpRequest buildRequest(String prompt) throws IOException {
+        return request(prompt, false);
+    }
+
+    @Override
+    protected HttpRequest buildStreamRequest(String prompt) throws IOException {
+        return request(prompt, true);
+    }
+
+    @Override
+    protected String apiName() {
+        return "Claude";
+    }
+
+    private HttpRequest request(String prompt, boolean stream) throws IOException {
+        String json = M.writeValueAsString(body(prompt, stream));
+        return headers(HttpTransport.newRequest(endpoint))
+            .POST(HttpRequest.BodyPublishers.ofString(json))
+            .build();
+    }
+
+    private HttpRequest.Builder headers(HttpRequest.Builder builder) {
+        return builder
+            .header("Content-Type", "application/json")
+            .header("x-api-key", apiKey)
+            .header("anthropic-version", "2023-06-01");
+    }
+
+    private Map<String, Object> body(String prompt, boolean stream) {
         Map<String, Object> body = new HashMap<>();
         body.put("model", model);
         body.put("max_tokens", maxTokens);
         body.put("temperature", temperature);
         body.put("messages", List.of(Map.of("role", "user", "content", prompt)));
+        if (stream) body.put("stream", true);
+        if (structuredOutput()) {
+            body.put("tools", List.of(Map.of(
+                "name", REPORT_TOOL,
+                "description", "Report the style violations found in the code",
+                "input_schema", StructuredReply.schema(true))));
+            body.put("tool_choice", Map.of("type", "tool", "name", REPORT_TOOL));
+        }
+        return body;
+    }
 
-        String json = M.writeValueAsString(body);
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create(endpoint))
-            .header("Content-Type", "application/json")
-            .header("x-api-key", apiKey)
-            .header("anthropic-version", "2023-06-01")
-            .POST(HttpRequest.BodyPublishers.ofString(json))
-            .build();
-
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    @Override
+    protected String parseResponse(HttpResponse<String> response) throws IOException {
         if (response.statusCode() / 100 != 2) {
             System.err.println("Claude API error: " + response.statusCode() + " - " + response.body());
             return null;
         }
 
-        JsonNode root = M.readTree(response.body());
+        return parseMessage(M.readTree(response.body()));
+    }
+
+    private String parseMessage(JsonNode root) throws IOException {
+        reportUsage(root.path("usage"));
+        if ("max_tokens".equals(root.path("stop_reason").asText())) warnTruncated();
+        if (structuredOutput()) {
+            for (JsonNode block : root.path("content")) {
+                if ("tool_use".equals(block.path("type").asText())) return M.writeValueAsString(block.path("input"));
+            }
+        }
         return root.path("content").get(0).path("text").asText("").trim();
     }
+
+    @Override
+    protected String parseStreamEvent(String data) throws IOException {
+        JsonNode event = M.readTree(data);
+        String type = event.path("type").asText("");
+        if (type.equals("content_block_delta")) {
+            return event.path("delta").path("text").asText(null);
+        }
+        // Input tokens come with message_start, the output count grows with each message_delta
+        if (type.equals("message_start")) reportUsage(event.path("message").path("usage"));
+        if (type.equals("message_delta")) reportUsage(event.path("usage"));
+        if (type.equals("message_delta") && "max_tokens".equals(event.path("delta").path("stop_reason").asText())) {
+            warnTruncated();
+        }
+        if (type.equals("error")) {
+            System.err.println("Claude API error: " + event.path("error").path("message").asText(data));
+        }
+        return null;
+    }
+
+    private void reportUsage(JsonNode usage) {
+        if (usage.isObject()) {
+            reportUsage(usage.path("input_tokens").asLong(), usage.path("output_tokens").asLong());
+        }
+    }
+
+    // ========================== Batch API ==========================
+    @Override
+    public String submitBatch(List<BatchApi.Request> requests) throws IOException, InterruptedException {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (BatchApi.Request r : requests) {
+            entries.add(Map.of("custom_id", r.id(), "params", body(promptText(r.prompt()), false)));
+        }
+        String json = M.writeValueAsString(Map.of("requests", entries));
+        HttpRequest create = headers(HttpTransport.newRequest(endpoint + "/batches"))
+            .POST(HttpRequest.BodyPublishers.ofString(json))
+            .build();
+        return M.readTree(sendBatchRequest(create)).path("id").asText();
+    }
+
+    @Override
+    public Map<String, String> batchResults(String jobId) throws IOException, InterruptedException {
+        JsonNode job = M.readTree(sendBatchRequest(
+            headers(HttpTransport.newRequest(endpoint + "/batches/" + jobId)).GET().build()));
+        // Ended also covers cancelled and expired jobs, whose finished requests still have results
+        if (!"ended".equals(job.path("processing_status").asText())) return null;
+
+        Map<String, String> replies = new HashMap<>();
+        String resultsUrl = job.path("results_url").asText("");
+        if (resultsUrl.isEmpty()) return replies;
+        String results = sendBatchRequest(headers(HttpTransport.newRequest(resultsUrl)).GET().build());
+        for (String line : results.split("\n")) {
+            if (line.isBlank()) continue;
+            JsonNode entry = M.readTree(line);
+            JsonNode result = entry.path("result");
+            if (!"succeeded".equals(result.path("type").asText())) continue;
+            String reply = replyLines(parseMessage(result.path("message")));
+            if (reply != null) replies.put(entry.path("custom_id").asText(), reply);
+        }
+        return replies;
+    }
 }
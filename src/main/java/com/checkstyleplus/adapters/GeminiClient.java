@@ -1,14 +1,15 @@
 package com.checkstyleplus.adapters;
 
+import java.io.IOException;
 import java.net.http.*;
-import java.net.URI;
 import java.util.*;
+import com.checkstyleplus.utils.StructuredReply;
 import com.fasterxml.jackson.databind.*;
 
 /**
  * Adapter for Google's Gemini API.
  */
-public class GeminiClient implements LlmClient {
+public class GeminiClient extends HttpLlmClient {
     private final String apiKey;
     private final String endpoint;
     private final String model;
@@ -19,7 +20,9 @@ public class GeminiClient implements LlmClient {
     private static final ObjectMapper M = new ObjectMapper();
 
     public GeminiClient(String apiKey, String endpoint, String model,
-                        Double temperature, Integer seed, Integer maxTokens, Integer thinkingTokens) {
+                        Double temperature, Integer seed, Integer maxTokens, Integer thinkingTokens,
+                        boolean structuredOutput) {
+        super(structuredOutput);
         this.apiKey = apiKey;
         this.endpoint = endpoint;
         this.model = model;
@@ -30,8 +33,21 @@ public class GeminiClient implements LlmClient {
     }
 
     @Override
-    public String generateResponse(String prompt) throws Exception {
-        HttpClient client = HttpClient.newHttpClient();
+    protected HttpRequest buildRequest(String prompt) throws IOException {
+        return request(prompt, false);
+    }
+
+    @Override
+    protected HttpRequest buildStreamRequest(String prompt) throws IOException {
+        return request(prompt, true);
+    }
+
+    @Override
+    protected String apiName() {
+        return "Gemini";
+    }
+
+    private HttpRequest request(String prompt, boolean stream) throws IOException {
         Map<String, Object> body = new HashMap<>();
         body.put("contents", List.of(Map.of(
             "role", "user",
@@ -43,6 +59,10 @@ public class GeminiClient implements LlmClient {
         if (seed != null) genCfg.put("seed", seed);
         if (maxTokens != null) genCfg.put("maxOutputTokens", maxTokens);
         if (thinkingTokens != null) genCfg.put("thinkingTokens", thinkingTokens);
+        if (structuredOutput()) {
+            genCfg.put("responseMimeType", "application/json");
+            genCfg.put("responseSchema", StructuredReply.schema(false));
+        }
         body.put("generationConfig", genCfg);
 
         String url = endpoint;
@@ -50,25 +70,49 @@ public class GeminiClient implements LlmClient {
             url = endpoint.replaceAll("models/[^:]+", "models/" + model);
         }
 
+        String query = "?key=" + apiKey;
+        if (stream) {
+            // Same request on the streaming method, as server-sent events
+            url = url.replace(":generateContent", ":streamGenerateContent");
+            query = "?alt=sse&key=" + apiKey;
+        }
+
         String json = M.writeValueAsString(body);
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create(url + "?key=" + apiKey))
+        return HttpTransport.newRequest(url + query)
             .header("Content-Type", "application/json")
             .POST(HttpRequest.BodyPublishers.ofString(json))
             .build();
+    }
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    @Override
+    protected String parseResponse(HttpResponse<String> response) throws IOException {
         if (response.statusCode() / 100 != 2) {
             System.err.println("Gemini API error: " + response.statusCode() + " - " + response.body());
             return null;
         }
+        String text = candidateText(M.readTree(response.body()));
+        return (text != null) ? text.trim() : null;
+    }
 
-        JsonNode root = M.readTree(response.body());
+    @Override
+    protected String parseStreamEvent(String data) throws IOException {
+        // Each streamed chunk is a partial generateContent response
+        return candidateText(M.readTree(data));
+    }
+
+    private String candidateText(JsonNode root) {
+        JsonNode usage = root.path("usageMetadata");
+        if (usage.isObject()) {
+            // Thinking tokens are billed as output
+            reportUsage(usage.path("promptTokenCount").asLong(),
+                usage.path("candidatesTokenCount").asLong() + usage.path("thoughtsTokenCount").asLong());
+        }
         JsonNode candidates = root.path("candidates");
         if (candidates.isArray() && candidates.size() > 0) {
+            if ("MAX_TOKENS".equals(candidates.get(0).path("finishReason").asText())) warnTruncated();
             JsonNode parts = candidates.get(0).path("content").path("parts");
             if (parts.isArray() && parts.size() > 0) {
-                return parts.get(0).path("text").asText("").trim();
+                return parts.get(0).path("text").asText("");
             }
         }
         return null;
@@ -0,0 +1,272 @@
+package com.checkstyleplus.adapters;
+
+import com.checkstyleplus.utils.RunMetrics;
+import com.checkstyleplus.utils.StructuredReply;
+import com.checkstyleplus.utils.TokenEstimator;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Base class for adapters that talk to their provider over HTTP.
+ * Subclasses only describe the request and how to read the reply;
+ * sending always goes through the shared {@link HttpTransport} and the provider's {@link RateLimiter},
+ * and throttled requests are retried once the provider allows it.
+ * Streamed replies are read as server-sent events, and closing the stream early cancels the request.
+ * In structured-output mode the prompt asks for JSON, subclasses constrain the reply to
+ * {@link StructuredReply#schema(boolean)}, and the JSON document is returned as finding lines.
+ * The token counts a reply carries are passed on to {@link RunMetrics}, with an estimate of the ones
+ * a reply did not report, and every request the provider took is counted there.
+ */
+public abstract class HttpLlmClient implements LlmClient {
+
+    private static final ExecutorService ASYNC = Executors.newVirtualThreadPerTaskExecutor();
+    // Prompt and completion tokens of the reply being parsed on this thread
+    private static final ThreadLocal<long[]> USAGE = new ThreadLocal<>();
+
+    private final boolean structuredOutput;
+
+    protected HttpLlmClient(boolean structuredOutput) {
+        this.structuredOutput = structuredOutput;
+    }
+
+    protected abstract HttpRequest buildRequest(String prompt) throws IOException;
+
+    protected abstract String parseResponse(HttpResponse<String> response) throws IOException;
+
+    /**
+     * The same request as {@link #buildRequest(String)}, asking the provider to stream its reply.
+     */
+    protected abstract HttpRequest buildStreamRequest(String prompt) throws IOException;
+
+    /**
+     * The text carried by one server-sent event's data, or null if it carries none.
+     */
+    protected abstract String parseStreamEvent(String data) throws IOException;
+
+    /**
+     * Provider name used in error messages.
+     */
+    protected abstract String apiName();
+
+    protected boolean structuredOutput() {
+        return structuredOutput;
+    }
+
+    @Override
+    public String generateResponse(String prompt) throws Exception {
+        HttpRequest request = buildRequest(promptText(prompt));
+        RateLimiter limiter = RateLimiter.forRequest(request.uri());
+        int tokens = TokenEstimator.estimate(prompt);
+
+        for (int attempt = 0; ; attempt++) {
+            limiter.acquire(tokens);
+            long start = System.nanoTime();
+            HttpResponse<String> response;
+            try {
+                response = HttpTransport.client().send(request, HttpResponse.BodyHandlers.ofString());
+            } catch (Exception e) {
+                limiter.release(-1, null, System.nanoTime() - start, tokens);
+                RunMetrics.requestSent();
+                throw e;
+            }
+            boolean throttled = limiter.release(response.statusCode(), response.headers(),
+                System.nanoTime() - start, tokens);
+            if (!throttled) RunMetrics.requestSent();
+            if (!throttled || attempt >= limiter.maxRetries()) {
+                return replyLines(withUsage(prompt, start, received -> {
+                    if (response.statusCode() / 100 != 2) return parseResponse(response);
+                    received.answered = true;
+                    received.text.append(response.body());
+                    String reply = parseResponse(response);
+                    if (reply != null) {
+                        received.text.setLength(0);
+                        received.text.append(reply);
+                        received.complete = true;
+                    }
+                    return reply;
+                }));
+            }
+        }
+    }
+
+    @Override
+    public String streamResponse(String prompt, Predicate<String> onLine) throws Exception {
+        // A JSON document has no lines to hand over before it is complete
+        if (structuredOutput) return LlmClient.super.streamResponse(prompt, onLine);
+
+        HttpRequest request = buildStreamRequest(prompt);
+        RateLimiter limiter = RateLimiter.forRequest(request.uri());
+        int tokens = TokenEstimator.estimate(prompt);
+
+        for (int attempt = 0; ; attempt++) {
+            limiter.acquire(tokens);
+            long start = System.nanoTime();
+            HttpResponse<Stream<String>> response;
+            try {
+                response = HttpTransport.client().send(request, HttpResponse.BodyHandlers.ofLines());
+            } catch (Exception e) {
+                limiter.release(-1, null, System.nanoTime() - start, tokens);
+                RunMetrics.requestSent();
+                throw e;
+            }
+            // Latency up to the first byte, which is what the limiter adapts to
+            boolean throttled = limiter.release(response.statusCode(), response.headers(),
+                System.nanoTime() - start, tokens);
+            if (!throttled) RunMetrics.requestSent();
+
+            try (Stream<String> body = response.body()) {
+                if (response.statusCode() / 100 == 2) {
+                    return withUsage(prompt, start, received -> {
+                        received.answered = true;
+                        return readEvents(body.iterator(), onLine, received);
+                    });
+                }
+                String error = body.collect(Collectors.joining("\n"));
+                if (!throttled || attempt >= limiter.maxRetries()) {
+                    System.err.println(apiName() + " API error: " + response.statusCode() + " - " + error);
+                    return null;
+                }
+            }
+        }
+    }
+
+    /**
+     * The prompt as sent: in structured-output mode it also asks for the JSON document.
+     */
+    protected String promptText(String prompt) {
+        return structuredOutput ? prompt + StructuredReply.INSTRUCTIONS : prompt;
+    }
+
+    /**
+     * The reply as finding lines: in structured-output mode it is a JSON document to convert.
+     */
+    protected String replyLines(String reply) throws IOException {
+        return (structuredOutput && reply != null) ? StructuredReply.toLines(reply) : reply;
+    }
+
+    /**
+     * Send a request of the provider's batch API (outside the rate limiter, which is for model calls)
+     * and return the body of its successful response.
+     */
+    protected String sendBatchRequest(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = HttpTransport.client().send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException(apiName() + " batch API error: " + response.statusCode() + " - " + response.body());
+        }
+        return response.body();
+    }
+
+    /**
+     * Report the token counts found in the reply being parsed. Streamed replies may report them
+     * several times as they grow; the largest counts are kept.
+     */
+    protected void reportUsage(long promptTokens, long completionTokens) {
+        long[] usage = USAGE.get();
+        if (usage == null) return;
+        usage[0] = Math.max(usage[0], promptTokens);
+        usage[1] = Math.max(usage[1], completionTokens);
+    }
+
+    /**
+     * What the parse of a reply got through: whether the provider answered the request (and bills it),
+     * the reply text received so far, and whether it was read to its end.
+     */
+    private static final class Received {
+        private final StringBuilder text = new StringBuilder();
+        private boolean answered;
+        private boolean complete;
+    }
+
+    private interface Parse {
+        String reply(Received received) throws IOException;
+    }
+
+    /**
+     * Parse the reply and record its usage. Tokens of an answered request that the reply did not report
+     * (no usage fields, a stream cut off before them, a reply that could not be read) are estimated, so
+     * the run's budget still counts them.
+     */
+    private String withUsage(String prompt, long start, Parse parse) throws IOException {
+        long[] usage = new long[2];
+        Received received = new Received();
+        USAGE.set(usage);
+        String reply = null;
+        try {
+            reply = parse.reply(received);
+            return reply;
+        } finally {
+            USAGE.remove();
+            if (reply != null) RunMetrics.recordCall(prompt, System.nanoTime() - start, usage[0], usage[1]);
+            if (received.answered) {
+                long promptTokens = (usage[0] > 0) ? 0 : TokenEstimator.estimate(promptText(prompt));
+                long completionTokens = (received.complete && usage[1] > 0)
+                    ? 0
+                    : Math.max(0, TokenEstimator.estimate(received.text.toString()) - usage[1]);
+                RunMetrics.recordUnreported(promptTokens, completionTokens);
+            }
+        }
+    }
+
+    /**
+     * Report a reply the provider stopped at the output token limit, whose findings are incomplete.
+     */
+    protected void warnTruncated() {
+        System.err.println(apiName() + " API warning: reply cut off at the output token limit,"
+            + " some findings may be missing (raise maxOutputTokens or lower maxPromptTokens)");
+    }
+
+    /**
+     * Runs {@link #generateResponse(String)} on a virtual thread, so waiting for the rate limiter
+     * or a retry never ties up a platform thread. Cancelling the future aborts the request.
+     */
+    @Override
+    public CompletableFuture<String> generateResponseAsync(String prompt) {
+        return CancellableCall.submit(ASYNC, () -> generateResponse(prompt));
+    }
+
+    /**
+     * Reassembles the event texts into lines and hands each one over as soon as it is complete.
+     */
+    private String readEvents(Iterator<String> events, Predicate<String> onLine, Received received)
+            throws IOException {
+        StringBuilder delivered = received.text;
+        StringBuilder pending = new StringBuilder();
+
+        while (events.hasNext()) {
+            String event = events.next();
+            if (!event.startsWith("data:")) continue;
+            String data = event.substring(5).trim();
+            if (data.equals("[DONE]")) break;
+
+            String text = parseStreamEvent(data);
+            if (text == null) continue;
+            pending.append(text);
+
+            int newline;
+            while ((newline = pending.indexOf("\n")) >= 0) {
+                String line = pending.substring(0, newline).strip();
+                pending.delete(0, newline + 1);
+                if (line.isEmpty()) continue;
+                delivered.append(line).append('\n');
+                if (!onLine.test(line)) return delivered.toString();
+            }
+        }
+
+        String last = pending.toString().strip();
+        if (!last.isEmpty()) {
+            delivered.append(last).append('\n');
+            onLine.test(last);
+        }
+        received.complete = true;
+        return delivered.toString();
+    }
+}
@@ -0,0 +1,83 @@
+package com.checkstyleplus.adapters;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide HTTP transport shared by every LLM adapter.
+ * One HttpClient means one connection pool: connections are kept alive and
+ * multiplexed over HTTP/2 where the provider supports it, instead of paying a
+ * TLS handshake and a new selector thread for every file.
+ */
+public class HttpTransport {
+
+    private static Duration connectTimeout = Duration.ofSeconds(10);
+    private static Duration requestTimeout = Duration.ofSeconds(120);
+    private static int keepAliveSeconds = 300;
+    private static String executor = "default";
+    private static volatile HttpClient client;
+
+    /**
+     * Set the transport options. Only effective before the first request is sent.
+     *
+     * @param executorName "default" (HttpClient's own pool), "virtual" (one virtual thread per task)
+     *                     or a number (fixed pool of that many threads)
+     */
+    public static synchronized void configure(int connectTimeoutSeconds, int requestTimeoutSeconds,
+                                              int keepAlive, String executorName) {
+        if (client != null) return;
+        connectTimeout = Duration.ofSeconds(connectTimeoutSeconds);
+        requestTimeout = Duration.ofSeconds(requestTimeoutSeconds);
+        keepAliveSeconds = keepAlive;
+        executor = executorName;
+    }
+
+    /**
+     * The shared client, built on first use.
+     */
+    public static HttpClient client() {
+        HttpClient c = client;
+        if (c == null) {
+            synchronized (HttpTransport.class) {
+                if (client == null) client = build();
+                c = client;
+            }
+        }
+        return c;
+    }
+
+    /**
+     * A request builder for the given URL with the configured per-request timeout.
+     */
+    public static HttpRequest.Builder newRequest(String url) {
+        return HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .timeout(requestTimeout);
+    }
+
+    private static HttpClient build() {
+        // Read once by the JDK connection pool, so it must be set before the first client exists
+        if (System.getProperty("jdk.httpclient.keepalive.timeout") == null) {
+            System.setProperty("jdk.httpclient.keepalive.timeout", String.valueOf(keepAliveSeconds));
+        }
+
+        HttpClient.Builder builder = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(connectTimeout)
+            .followRedirects(HttpClient.Redirect.NORMAL);
+
+        if ("virtual".equalsIgnoreCase(executor)) {
+            builder.executor(Executors.newVirtualThreadPerTaskExecutor());
+        } else if (executor != null && executor.matches("\\d+")) {
+            builder.executor(Executors.newFixedThreadPool(Math.max(1, Integer.parseInt(executor)), r -> {
+                Thread t = new Thread(r, "llm-http");
+                t.setDaemon(true);
+                return t;
+            }));
+        }
+        return builder.build();
+    }
+}
@@ -1,5 +1,9 @@
 package com.checkstyleplus.adapters;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
+
 /**
  * Common interface for all LLM API clients.
  * Each client should implement how to send a prompt
@@ -7,4 +11,37 @@ package com.checkstyleplus.adapters;
  */
 public interface LlmClient {
     String generateResponse(String prompt) throws Exception;
+
+    /**
+     * Sends the prompt without blocking the caller.
+     * HTTP-based adapters override this to run the blocking send on a virtual thread.
+     */
+    default CompletableFuture<String> generateResponseAsync(String prompt) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return generateResponse(prompt);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Streams the reply, handing every complete line to {@code onLine} as soon as it arrives.
+     * When {@code onLine} returns false the stream ends after that line, so the provider stops generating.
+     * Adapters that cannot stream deliver the lines once the full reply is in.
+     *
+     * @return the lines delivered, or null if the call failed
+     */
+    default String streamResponse(String prompt, Predicate<String> onLine) throws Exception {
+        String reply = generateResponse(prompt);
+        if (reply == null) return null;
+        StringBuilder delivered = new StringBuilder();
+        for (String line : reply.split("\\R")) {
+            if (line.isBlank()) continue;
+            delivered.append(line).append('\n');
+            if (!onLine.test(line)) break;
+        }
+        return delivered.toString();
+    }
 }
@@ -1,12 +1,21 @@
 package com.checkstyleplus.adapters;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Factory that detects the appropriate LLM adapter based on the endpoint.
  * It creates a concrete client (Gemini, OpenAI, Claude, etc.)
  * without exposing that logic to the caller.
+ * Clients are cached, so every file configured with the same endpoint and model
+ * shares one instance (and the shared {@link HttpTransport} connection pool).
  */
 public class LlmClientFactory {
 
+    private static final Map<List<Object>, LlmClient> CLIENTS = new ConcurrentHashMap<>();
+
     public static LlmClient create(
             String apiKey,
             String endpoint,
@@ -14,24 +23,44 @@ public class LlmClientFactory {
             Double temperature,
             Integer seed,
             Integer maxOutputTokens,
-            Integer thinkingTokens
+            Integer thinkingTokens,
+            boolean structuredOutput
+    ) {
+        List<Object> key = Arrays.asList(endpoint, model, apiKey, temperature, seed, maxOutputTokens, thinkingTokens,
+            structuredOutput);
+        return CLIENTS.computeIfAbsent(key, k ->
+            newClient(apiKey, endpoint, model, temperature, seed, maxOutputTokens, thinkingTokens, structuredOutput));
+    }
+
+    private static LlmClient newClient(
+            String apiKey,
+            String endpoint,
+            String model,
+            Double temperature,
+            Integer seed,
+            Integer maxOutputTokens,
+            Integer thinkingTokens,
+            boolean structuredOutput
     ) {
         String lower = endpoint.toLowerCase();
 
-        if (lower.contains("generativelanguage.googleapis.com")) {
-            return new GeminiClient(apiKey, endpoint, model, temperature, seed, maxOutputTokens, thinkingTokens);
+        // Provider paths are matched before the local hosts, so proxies and stub servers speaking
+        // the Gemini or Anthropic format on localhost get the right adapter
+        if (lower.contains("generativelanguage.googleapis.com") || lower.contains(":generatecontent")) {
+            return new GeminiClient(apiKey, endpoint, model, temperature, seed, maxOutputTokens, thinkingTokens,
+                structuredOutput);
+
+        } else if (lower.contains("anthropic.com") || lower.endsWith("/v1/messages")) {
+            return new ClaudeClient(apiKey, endpoint, model, temperature, maxOutputTokens, structuredOutput);
 
         } else if (lower.contains("api.openai.com") ||
                    lower.contains("mistral.ai") ||
                    lower.contains("localhost") ||
                    lower.contains("127.0.0.1")) {
-            return new OpenAiClient(apiKey, endpoint, model, temperature, maxOutputTokens);
-
-        } else if (lower.contains("anthropic.com")) {
-            return new ClaudeClient(apiKey, endpoint, model, temperature, maxOutputTokens);
+            return new OpenAiClient(apiKey, endpoint, model, temperature, maxOutputTokens, structuredOutput);
 
         } else if (lower.contains("localhost") || lower.contains("127.0.0.1")) {
-            return new LocalModelClient(endpoint, model, temperature, maxOutputTokens);
+            return new LocalModelClient(endpoint, model, temperature, maxOutputTokens, structuredOutput);
             
         } else {
             throw new IllegalArgumentException("Unsupported LLM endpoint: " + endpoint);
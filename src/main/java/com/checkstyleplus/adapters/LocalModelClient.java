@@ -1,8 +1,9 @@
 package com.checkstyleplus.adapters;
 
+import java.io.IOException;
 import java.net.http.*;
-import java.net.URI;
 import java.util.*;
+import com.checkstyleplus.utils.StructuredReply;
 import com.fasterxml.jackson.databind.*;
 
 /**
@@ -10,14 +11,16 @@ import com.fasterxml.jackson.databind.*;
  * These usually run on localhost:11434 or similar and accept
  * standard OpenAI chat completion format.
  */
-public class LocalModelClient implements LlmClient {
+public class LocalModelClient extends HttpLlmClient {
     private final String endpoint;
     private final String model;
     private final Double temperature;
     private final Integer maxTokens;
     private static final ObjectMapper M = new ObjectMapper();
 
-    public LocalModelClient(String endpoint, String model, Double temperature, Integer maxTokens) {
+    public LocalModelClient(String endpoint, String model, Double temperature, Integer maxTokens,
+                            boolean structuredOutput) {
+        super(structuredOutput);
         this.endpoint = endpoint;
         this.model = (model != null) ? model : "llama3";
         this.temperature = (temperature != null) ? temperature : 1.0;
@@ -25,35 +28,77 @@ public class LocalModelClient implements LlmClient {
     }
 
     @Override
-    public String generateResponse(String prompt) throws Exception {
-        HttpClient client = HttpClient.newHttpClient();
+    protected HttpRequest buildRequest(String prompt) throws IOException {
+        return request(prompt, false);
+    }
+
+    @Override
+    protected HttpRequest buildStreamRequest(String prompt) throws IOException {
+        return request(prompt, true);
+    }
+
+    @Override
+    protected String apiName() {
+        return "Local model";
+    }
 
+    private HttpRequest request(String prompt, boolean stream) throws IOException {
         // OpenAI-compatible request payload
         Map<String, Object> body = new HashMap<>();
         body.put("model", model);
         body.put("temperature", temperature);
         if (maxTokens != null) body.put("max_tokens", maxTokens);
         body.put("messages", List.of(Map.of("role", "user", "content", prompt)));
+        if (stream) {
+            body.put("stream", true);
+            body.put("stream_options", Map.of("include_usage", true));
+        }
+        if (structuredOutput()) {
+            body.put("response_format", Map.of("type", "json_schema", "json_schema",
+                Map.of("name", "violations", "strict", true, "schema", StructuredReply.schema(true))));
+        }
 
         String json = M.writeValueAsString(body);
 
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create(endpoint))
+        return HttpTransport.newRequest(endpoint)
             .header("Content-Type", "application/json")
             .POST(HttpRequest.BodyPublishers.ofString(json))
             .build();
+    }
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    @Override
+    protected String parseResponse(HttpResponse<String> response) throws IOException {
         if (response.statusCode() / 100 != 2) {
             System.err.println("Local model API error: " + response.statusCode() + " - " + response.body());
             return null;
         }
 
         JsonNode root = M.readTree(response.body());
+        reportUsage(root.path("usage"));
         JsonNode choices = root.path("choices");
         if (choices.isArray() && choices.size() > 0) {
+            if ("length".equals(choices.get(0).path("finish_reason").asText())) warnTruncated();
             return choices.get(0).path("message").path("content").asText("").trim();
         }
         return null;
     }
+
+    @Override
+    protected String parseStreamEvent(String data) throws IOException {
+        JsonNode event = M.readTree(data);
+        reportUsage(event.path("usage")); // only in the last chunk
+        JsonNode choices = event.path("choices");
+        if (choices.isArray() && choices.size() > 0) {
+            if ("length".equals(choices.get(0).path("finish_reason").asText())) warnTruncated();
+            JsonNode content = choices.get(0).path("delta").path("content");
+            return content.isTextual() ? content.asText() : null;
+        }
+        return null;
+    }
+
+    private void reportUsage(JsonNode usage) {
+        if (usage.isObject()) {
+            reportUsage(usage.path("prompt_tokens").asLong(), usage.path("completion_tokens").asLong());
+        }
+    }
 }
@@ -1,14 +1,20 @@
 package com.checkstyleplus.adapters;
 
-import java.net.http.*;
+import java.io.IOException;
 import java.net.URI;
+import java.net.http.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import com.checkstyleplus.utils.StructuredReply;
 import com.fasterxml.jackson.databind.*;
 
 /**
  * Adapter for OpenAI and OpenAI-compatible APIs (Mistral, Ollama, vLLM, local).
+ * Batches go through the OpenAI Batch API: the requests are uploaded as a JSONL file next to the
+ * chat completions endpoint ({@code /v1/files}), run as a job ({@code /v1/batches}), and the replies
+ * are read from the job's output file.
  */
-public class OpenAiClient implements LlmClient {
+public class OpenAiClient extends HttpLlmClient implements BatchApi {
     private final String apiKey;
     private final String endpoint;
     private final String model;
@@ -17,7 +23,9 @@ public class OpenAiClient implements LlmClient {
     private static final ObjectMapper M = new ObjectMapper();
 
     public OpenAiClient(String apiKey, String endpoint, String model,
-                        Double temperature, Integer maxTokens) {
+                        Double temperature, Integer maxTokens,
+                        boolean structuredOutput) {
+        super(structuredOutput);
         this.apiKey = apiKey;
         this.endpoint = endpoint;
         this.model = (model != null) ? model : "gpt-4";
@@ -26,35 +34,163 @@ public class OpenAiClient implements LlmClient {
     }
 
     @Override
-    public String generateResponse(String prompt) throws Exception {
-        HttpClient client = HttpClient.newHttpClient();
-        Map<String, Object> body = new HashMap<>();
-        body.put("model", model);
-        body.put("temperature", temperature);
-        if (maxTokens != null) body.put("max_tokens", maxTokens);
-        body.put("messages", List.of(Map.of("role", "user", "content", prompt)));
+    protected HttpRequest buildRequest(String prompt) throws IOException {
+        return request(prompt, false);
+    }
+
+    @Override
+    protected HttpRequest buildStreamRequest(String prompt) throws IOException {
+        return request(prompt, true);
+    }
+
+    @Override
+    protected String apiName() {
+        return "OpenAI-compatible";
+    }
 
-        String json = M.writeValueAsString(body);
-        HttpRequest.Builder builder = HttpRequest.newBuilder()
-            .uri(URI.create(endpoint))
+    private HttpRequest request(String prompt, boolean stream) throws IOException {
+        String json = M.writeValueAsString(body(prompt, stream));
+        HttpRequest.Builder builder = HttpTransport.newRequest(endpoint)
             .header("Content-Type", "application/json");
+        return authorized(builder).POST(HttpRequest.BodyPublishers.ofString(json)).build();
+    }
 
+    private HttpRequest.Builder authorized(HttpRequest.Builder builder) {
         if (!endpoint.contains("localhost") && !endpoint.contains("127.0.0.1")) {
             builder.header("Authorization", "Bearer " + apiKey);
         }
+        return builder;
+    }
 
-        HttpRequest request = builder.POST(HttpRequest.BodyPublishers.ofString(json)).build();
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    private Map<String, Object> body(String prompt, boolean stream) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("model", model);
+        body.put("temperature", temperature);
+        if (maxTokens != null) body.put("max_tokens", maxTokens);
+        body.put("messages", List.of(Map.of("role", "user", "content", prompt)));
+        if (stream) {
+            body.put("stream", true);
+            // Mistral sends usage in its last chunk anyway, and rejects fields it does not know
+            if (!endpoint.contains("mistral.ai")) body.put("stream_options", Map.of("include_usage", true));
+        }
+        if (structuredOutput()) {
+            body.put("response_format", Map.of("type", "json_schema", "json_schema",
+                Map.of("name", "violations", "strict", true, "schema", StructuredReply.schema(true))));
+        }
+        return body;
+    }
+
+    @Override
+    protected String parseResponse(HttpResponse<String> response) throws IOException {
         if (response.statusCode() / 100 != 2) {
             System.err.println("OpenAI-compatible API error: " + response.statusCode() + " - " + response.body());
             return null;
         }
 
-        JsonNode root = M.readTree(response.body());
+        return parseCompletion(M.readTree(response.body()));
+    }
+
+    private String parseCompletion(JsonNode root) {
+        reportUsage(root.path("usage"));
         JsonNode choices = root.path("choices");
         if (choices.isArray() && choices.size() > 0) {
+            if ("length".equals(choices.get(0).path("finish_reason").asText())) warnTruncated();
             return choices.get(0).path("message").path("content").asText("").trim();
         }
         return null;
     }
+
+    @Override
+    protected String parseStreamEvent(String data) throws IOException {
+        JsonNode event = M.readTree(data);
+        reportUsage(event.path("usage")); // only in the last chunk
+        JsonNode choices = event.path("choices");
+        if (choices.isArray() && choices.size() > 0) {
+            if ("length".equals(choices.get(0).path("finish_reason").asText())) warnTruncated();
+            JsonNode content = choices.get(0).path("delta").path("content");
+            return content.isTextual() ? content.asText() : null;
+        }
+        return null;
+    }
+
+    private void reportUsage(JsonNode usage) {
+        if (usage.isObject()) {
+            reportUsage(usage.path("prompt_tokens").asLong(), usage.path("completion_tokens").asLong());
+        }
+    }
+
+    // ========================== Batch API ==========================
+    @Override
+    public String submitBatch(List<BatchApi.Request> requests) throws IOException, InterruptedException {
+        String path = URI.create(endpoint).getPath();
+        StringBuilder jsonl = new StringBuilder();
+        for (BatchApi.Request r : requests) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("custom_id", r.id());
+            line.put("method", "POST");
+            line.put("url", path);
+            line.put("body", body(promptText(r.prompt()), false));
+            jsonl.append(M.writeValueAsString(line)).append('\n');
+        }
+
+        String boundary = "checkstyleplus-" + UUID.randomUUID();
+        String multipart = "--" + boundary + "\r\n"
+            + "Content-Disposition: form-data; name=\"purpose\"\r\n\r\nbatch\r\n"
+            + "--" + boundary + "\r\n"
+            + "Content-Disposition: form-data; name=\"file\"; filename=\"checkstyleplus.jsonl\"\r\n"
+            + "Content-Type: application/jsonl\r\n\r\n"
+            + jsonl
+            + "\r\n--" + boundary + "--\r\n";
+        HttpRequest upload = authorized(HttpTransport.newRequest(batchBase() + "/files"))
+            .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+            .POST(HttpRequest.BodyPublishers.ofString(multipart, StandardCharsets.UTF_8))
+            .build();
+        String fileId = M.readTree(sendBatchRequest(upload)).path("id").asText();
+
+        String job = M.writeValueAsString(Map.of("input_file_id", fileId, "endpoint", path,
+            "completion_window", "24h"));
+        HttpRequest create = authorized(HttpTransport.newRequest(batchBase() + "/batches"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(job))
+            .build();
+        return M.readTree(sendBatchRequest(create)).path("id").asText();
+    }
+
+    @Override
+    public Map<String, String> batchResults(String jobId) throws IOException, InterruptedException {
+        JsonNode job = M.readTree(sendBatchRequest(
+            authorized(HttpTransport.newRequest(batchBase() + "/batches/" + jobId)).GET().build()));
+        String status = job.path("status").asText();
+        if (status.equals("failed")) {
+            System.err.println("OpenAI-compatible API error: batch " + jobId + " failed - "
+                + job.path("errors").path("data").path(0).path("message").asText("no reason given"));
+            return Map.of();
+        }
+        // Expired and cancelled jobs keep the replies they finished
+        if (!status.equals("completed") && !status.equals("expired") && !status.equals("cancelled")) return null;
+
+        Map<String, String> replies = new HashMap<>();
+        String outputFile = job.path("output_file_id").asText("");
+        if (outputFile.isEmpty()) return replies;
+        String output = sendBatchRequest(
+            authorized(HttpTransport.newRequest(batchBase() + "/files/" + outputFile + "/content")).GET().build());
+        for (String line : output.split("\n")) {
+            if (line.isBlank()) continue;
+            JsonNode result = M.readTree(line);
+            JsonNode response = result.path("response");
+            if (response.path("status_code").asInt() != 200) continue;
+            String reply = replyLines(parseCompletion(response.path("body")));
+            if (reply != null) replies.put(result.path("custom_id").asText(), reply);
+        }
+        return replies;
+    }
+
+    /**
+     * The API root the chat completions endpoint is under, e.g. {@code https://api.openai.com/v1}.
+     */
+    private String batchBase() throws IOException {
+        int at = endpoint.lastIndexOf("/chat/completions");
+        if (at < 0) throw new IOException("no batch API next to " + endpoint + " (expected a /chat/completions URL)");
+        return endpoint.substring(0, at);
+    }
 }
@@ -0,0 +1,301 @@
+package com.checkstyleplus.adapters;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Per-provider admission control in front of the HTTP adapters.
+ * <p>
+ * Every request takes a request token and an estimate of its LLM tokens from per-minute buckets,
+ * and a slot of an adaptive concurrency limit (additive increase while latency stays near the best
+ * observed, multiplicative decrease on throttling or when latency climbs). A throttled reply
+ * (429/503/529) pauses the whole provider for its {@code Retry-After} (or an exponential backoff),
+ * and the {@code x-ratelimit-*} / {@code anthropic-ratelimit-*} headers pause it before the quota
+ * runs out. Limiters are shared per host, so all checks talking to one provider share one quota,
+ * and they live as long as the process: configuring one again only changes its limits.
+ */
+public class RateLimiter {
+
+    private static final Map<String, RateLimiter> LIMITERS = new ConcurrentHashMap<>();
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+    private static final double LATENCY_TOLERANCE = 3.0;
+
+    private int requestsPerMinute;
+    private int tokensPerMinute;
+    private int maxConcurrency;
+    private volatile int maxRetries;
+    private boolean configured;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private double requestCredit;
+    private double tokenCredit;
+    private long lastRefill = System.nanoTime();
+    private long pausedUntil = lastRefill;
+    private int consecutiveThrottles;
+    private double latencyEwma;
+    private double latencyFloor;
+
+    private RateLimiter(int requestsPerMinute, int tokensPerMinute, int concurrency, int maxConcurrency,
+                        int maxRetries) {
+        this.requestsPerMinute = requestsPerMinute;
+        this.tokensPerMinute = tokensPerMinute;
+        this.maxConcurrency = Math.max(concurrency, maxConcurrency);
+        this.maxRetries = maxRetries;
+        this.limit = concurrency;
+        this.requestCredit = requestsPerMinute;
+        this.tokenCredit = tokensPerMinute;
+    }
+
+    /**
+     * Set the limits for the provider behind the endpoint.
+     * The provider keeps its limiter, so the adapted concurrency, pauses and requests in flight carry over.
+     *
+     * @param requestsPerMinute request quota, 0 for none
+     * @param tokensPerMinute   token quota (prompt estimate), 0 for none
+     * @param concurrency       initial number of concurrent requests
+     * @param maxConcurrency    the most concurrent requests the limit may grow to
+     * @param maxRetries        how often a throttled request is retried before giving up
+     */
+    public static void configure(String endpoint, int requestsPerMinute, int tokensPerMinute,
+                                 int concurrency, int maxConcurrency, int maxRetries) {
+        forRequest(URI.create(endpoint))
+            .setLimits(requestsPerMinute, tokensPerMinute, concurrency, maxConcurrency, maxRetries);
+    }
+
+    /**
+     * The limiter of the request's provider (a permissive default if none was configured).
+     */
+    public static RateLimiter forRequest(URI uri) {
+        return LIMITERS.computeIfAbsent(hostOf(uri), h -> new RateLimiter(0, 0, 4, 4, 3));
+    }
+
+    public int maxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * The current concurrency limit, as adapted so far.
+     */
+    int concurrencyLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void setLimits(int requestsPerMinute, int tokensPerMinute, int concurrency, int maxConcurrency,
+                           int maxRetries) {
+        lock.lock();
+        try {
+            refill();
+            // A quota that was off starts full, one that shrank keeps no more than it allows
+            requestCredit = (this.requestsPerMinute == 0)
+                ? requestsPerMinute : Math.min(requestCredit, requestsPerMinute);
+            tokenCredit = (this.tokensPerMinute == 0) ? tokensPerMinute : Math.min(tokenCredit, tokensPerMinute);
+            this.requestsPerMinute = requestsPerMinute;
+            this.tokensPerMinute = tokensPerMinute;
+            this.maxConcurrency = Math.max(concurrency, maxConcurrency);
+            this.maxRetries = maxRetries;
+            // The first configuration replaces the default start; later ones keep what was learned
+            limit = configured ? Math.min(limit, this.maxConcurrency) : concurrency;
+            configured = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until the request may be sent.
+     *
+     * @param estimatedTokens the request's estimated LLM tokens
+     */
+    public void acquire(int estimatedTokens) throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                refill();
+                long waitNanos;
+                long now = System.nanoTime();
+                double tokens = Math.min(estimatedTokens, tokensPerMinute);
+                if (pausedUntil - now > 0) {
+                    waitNanos = pausedUntil - now;
+                } else if (inFlight >= (int) limit) {
+                    waitNanos = Long.MAX_VALUE;
+                } else if (requestsPerMinute > 0 && requestCredit < 1) {
+                    waitNanos = nanosUntil(1 - requestCredit, requestsPerMinute);
+                } else if (tokensPerMinute > 0 && tokenCredit < tokens) {
+                    waitNanos = nanosUntil(tokens - tokenCredit, tokensPerMinute);
+                } else {
+                    if (requestsPerMinute > 0) requestCredit -= 1;
+                    if (tokensPerMinute > 0) tokenCredit -= tokens;
+                    inFlight++;
+                    return;
+                }
+                if (waitNanos == Long.MAX_VALUE) changed.await();
+                else changed.awaitNanos(waitNanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Report the outcome of a request sent after {@link #acquire(int)}.
+     *
+     * @param status  the HTTP status, or -1 if no response arrived
+     * @param headers the response headers, or null
+     * @return true if the provider throttled the request and it should be retried
+     */
+    public boolean release(int status, HttpHeaders headers, long latencyNanos, int estimatedTokens) {
+        lock.lock();
+        try {
+            inFlight--;
+            boolean throttled = status == 429 || status == 503 || status == 529;
+            if (throttled) {
+                consecutiveThrottles++;
+                limit = Math.max(1, limit / 2);
+                long backoff = retryAfterMillis(headers)
+                    .orElseGet(() -> Math.min(MAX_BACKOFF_MILLIS, 1000L << Math.min(consecutiveThrottles - 1, 6)));
+                backoff += ThreadLocalRandom.current().nextLong(250); // spread out the retries
+                pauseFor(backoff);
+            } else if (status / 100 == 2) {
+                consecutiveThrottles = 0;
+                adaptToLatency(latencyNanos / 1_000_000.0);
+                if (headers != null) applyQuotaHeaders(headers, estimatedTokens);
+            }
+            changed.signalAll();
+            return throttled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adaptToLatency(double millis) {
+        latencyEwma = (latencyEwma == 0) ? millis : 0.8 * latencyEwma + 0.2 * millis;
+        // The floor creeps up slowly so one unusually fast reply does not pin it forever
+        latencyFloor = (latencyFloor == 0) ? millis : Math.min(millis, latencyFloor * 1.01);
+        if (latencyEwma <= LATENCY_TOLERANCE * latencyFloor) {
+            limit = Math.min(maxConcurrency, limit + 1.0 / limit);
+        } else {
+            limit = Math.max(1, limit * 0.9);
+        }
+    }
+
+    private void applyQuotaHeaders(HttpHeaders headers, int estimatedTokens) {
+        Optional<Long> remainingRequests = firstLong(headers,
+            "x-ratelimit-remaining-requests", "anthropic-ratelimit-requests-remaining");
+        if (remainingRequests.isPresent() && remainingRequests.get() <= 0) {
+            resetMillis(headers, "x-ratelimit-reset-requests", "anthropic-ratelimit-requests-reset")
+                .ifPresent(this::pauseFor);
+        }
+        Optional<Long> remainingTokens = firstLong(headers,
+            "x-ratelimit-remaining-tokens", "anthropic-ratelimit-tokens-remaining");
+        if (remainingTokens.isPresent() && remainingTokens.get() < estimatedTokens) {
+            resetMillis(headers, "x-ratelimit-reset-tokens", "anthropic-ratelimit-tokens-reset")
+                .ifPresent(this::pauseFor);
+        }
+    }
+
+    private void pauseFor(long millis) {
+        long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        if (until - pausedUntil > 0) pausedUntil = until;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double minutes = (now - lastRefill) / 60e9;
+        lastRefill = now;
+        if (requestsPerMinute > 0) requestCredit = Math.min(requestsPerMinute, requestCredit + minutes * requestsPerMinute);
+        if (tokensPerMinute > 0) tokenCredit = Math.min(tokensPerMinute, tokenCredit + minutes * tokensPerMinute);
+    }
+
+    private static long nanosUntil(double missing, int perMinute) {
+        return (long) Math.ceil(missing / perMinute * 60e9);
+    }
+
+    // ========================== Headers ==========================
+    private static Optional<Long> retryAfterMillis(HttpHeaders headers) {
+        if (headers == null) return Optional.empty();
+        Optional<String> ms = headers.firstValue("retry-after-ms");
+        if (ms.isPresent()) return parseLong(ms.get());
+        return headers.firstValue("retry-after").flatMap(v -> {
+            Optional<Long> seconds = parseLong(v);
+            if (seconds.isPresent()) return Optional.of(seconds.get() * 1000);
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(v.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Optional.of(Math.max(0, Duration.between(ZonedDateTime.now(), at).toMillis()));
+            } catch (RuntimeException e) {
+                return Optional.empty();
+            }
+        });
+    }
+
+    /**
+     * A reset header as milliseconds from now: OpenAI sends durations ("1s", "6m0s", "20ms"),
+     * Anthropic sends RFC 3339 timestamps.
+     */
+    private static Optional<Long> resetMillis(HttpHeaders headers, String... names) {
+        for (String name : names) {
+            Optional<String> value = headers.firstValue(name);
+            if (value.isEmpty()) continue;
+            String v = value.get().trim();
+            try {
+                return Optional.of(Math.max(0, Duration.between(OffsetDateTime.now(), OffsetDateTime.parse(v)).toMillis()));
+            } catch (RuntimeException notATimestamp) {
+                double millis = 0;
+                Matcher m = DURATION_PART.matcher(v);
+                while (m.find()) {
+                    double n = Double.parseDouble(m.group(1));
+                    millis += switch (m.group(2)) {
+                        case "h" -> n * 3_600_000;
+                        case "m" -> n * 60_000;
+                        case "s" -> n * 1000;
+                        default -> n;
+                    };
+                }
+                if (millis > 0) return Optional.of((long) Math.ceil(millis));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<Long> firstLong(HttpHeaders headers, String... names) {
+        for (String name : names) {
+            Optional<Long> value = headers.firstValue(name).flatMap(RateLimiter::parseLong);
+            if (value.isPresent()) return value;
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<Long> parseLong(String s) {
+        try {
+            return Optional.of((long) Double.parseDouble(s.trim()));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static String hostOf(URI uri) {
+        return String.valueOf(uri.getAuthority()).toLowerCase();
+    }
+}
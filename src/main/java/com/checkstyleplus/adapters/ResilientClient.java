@@ -0,0 +1,268 @@
+package com.checkstyleplus.adapters;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Bounds how long a file waits for the model.
+ * <p>
+ * Every call has a deadline. When the primary endpoint has not answered within the configured
+ * percentile of its recent latencies, the same prompt is also sent to the secondary endpoint
+ * (or again to the primary if there is none) and the first usable reply wins. A call that fails
+ * on the primary is retried on the secondary. A {@link CircuitBreaker} refuses calls while the
+ * provider keeps failing, so the caller can fall back right away instead of waiting.
+ * <p>
+ * Streamed calls get the same deadline and breaker, and are retried on the secondary as long as
+ * no line has been delivered yet; they are not hedged. Lines are handed over on the caller's thread.
+ */
+public class ResilientClient implements LlmClient {
+
+    private static final Map<List<Object>, ResilientClient> CLIENTS = new ConcurrentHashMap<>();
+    private static final ExecutorService ASYNC = Executors.newVirtualThreadPerTaskExecutor();
+    private static final int MIN_SAMPLES = 20;
+    private static final int MAX_SAMPLES = 200;
+    private static final String END_OF_STREAM = new String("end of stream"); // compared by identity
+
+    private final LlmClient primary;
+    private final LlmClient secondary;
+    private final long deadlineNanos;
+    private final double hedgePercentile;
+    private final CircuitBreaker breaker;
+
+    private final long[] latencies = new long[MAX_SAMPLES];
+    private int latencyCount;
+    private int nextLatency;
+
+    private ResilientClient(LlmClient primary, LlmClient secondary, long deadlineMillis, double hedgePercentile,
+                            CircuitBreaker breaker) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        this.hedgePercentile = hedgePercentile;
+        this.breaker = breaker;
+    }
+
+    /**
+     * The shared wrapper for this pair of clients, so latency history and breaker state
+     * carry over from file to file.
+     *
+     * @param secondary       the endpoint for hedged and retried calls, or null to hedge on the primary
+     * @param hedgePercentile latency percentile (0-100) after which a call is hedged, 0 to disable
+     */
+    public static ResilientClient of(String name, LlmClient primary, LlmClient secondary, long deadlineMillis,
+                                     double hedgePercentile, int breakerFailureThreshold,
+                                     long breakerCooldownMillis) {
+        List<Object> key = Arrays.asList(primary, secondary, deadlineMillis, hedgePercentile,
+            breakerFailureThreshold, breakerCooldownMillis);
+        return CLIENTS.computeIfAbsent(key, k -> new ResilientClient(primary, secondary, deadlineMillis,
+            hedgePercentile, new CircuitBreaker(name, breakerFailureThreshold, breakerCooldownMillis)));
+    }
+
+    @Override
+    public String generateResponse(String prompt) throws Exception {
+        if (!breaker.allowRequest()) {
+            throw new CircuitBreakerOpenException();
+        }
+        try {
+            String reply = call(prompt);
+            if (reply != null) breaker.recordSuccess();
+            else breaker.recordFailure();
+            return reply;
+        } catch (Exception e) {
+            breaker.recordFailure();
+            throw e;
+        }
+    }
+
+    /**
+     * Cancelling the future aborts the calls still running for it.
+     */
+    @Override
+    public CompletableFuture<String> generateResponseAsync(String prompt) {
+        return CancellableCall.submit(ASYNC, () -> generateResponse(prompt));
+    }
+
+    @Override
+    public String streamResponse(String prompt, Predicate<String> onLine) throws Exception {
+        if (!breaker.allowRequest()) {
+            throw new CircuitBreakerOpenException();
+        }
+        long deadline = System.nanoTime() + deadlineNanos;
+        StringBuilder received = new StringBuilder();
+        try {
+            String reply;
+            try {
+                reply = streamUntil(primary, prompt, onLine, received, deadline);
+            } catch (TimeoutException e) {
+                throw e;
+            } catch (Exception e) {
+                if (secondary == null || !received.isEmpty()) throw e;
+                reply = null;
+            }
+            if (reply == null && secondary != null && received.isEmpty()) {
+                reply = streamUntil(secondary, prompt, onLine, received, deadline);
+            }
+            if (reply != null) breaker.recordSuccess();
+            else breaker.recordFailure();
+            return reply;
+        } catch (Exception e) {
+            breaker.recordFailure();
+            throw e;
+        }
+    }
+
+    /**
+     * Streams on a virtual thread and passes the lines to {@code onLine} here, giving up at the deadline.
+     */
+    private String streamUntil(LlmClient client, String prompt, Predicate<String> onLine,
+                               StringBuilder received, long deadline) throws Exception {
+        BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        AtomicBoolean stopped = new AtomicBoolean();
+        CompletableFuture<String> call = CompletableFuture.supplyAsync(() -> {
+            try {
+                return client.streamResponse(prompt, line -> !stopped.get() && lines.add(line) && !stopped.get());
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, ASYNC);
+        call.whenComplete((reply, e) -> lines.add(END_OF_STREAM));
+
+        while (true) {
+            String line = lines.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (line == null) {
+                stopped.set(true);
+                call.cancel(true);
+                throw new TimeoutException("no reply within " + TimeUnit.NANOSECONDS.toSeconds(deadlineNanos) + "s");
+            }
+            if (line == END_OF_STREAM) {
+                String reply = await(call, deadline);
+                return (reply != null) ? received.toString() : null;
+            }
+            received.append(line).append('\n');
+            if (!onLine.test(line)) {
+                stopped.set(true); // the stream closes at its next line
+                return received.toString();
+            }
+        }
+    }
+
+    /**
+     * Every call adds one sample to the latency history: the time until the reply that was used,
+     * or the full deadline when the call failed, timed out or got no reply. Hedged calls are counted
+     * too, so the percentile follows the slow calls instead of only the ones faster than itself.
+     */
+    private String call(String prompt) throws Exception {
+        long start = System.nanoTime();
+        long deadline = start + deadlineNanos;
+        String reply = null;
+        try {
+            reply = callUntil(prompt, deadline);
+            return reply;
+        } finally {
+            recordLatency(reply != null ? System.nanoTime() - start : deadlineNanos);
+        }
+    }
+
+    private String callUntil(String prompt, long deadline) throws Exception {
+        CompletableFuture<String> first = primary.generateResponseAsync(prompt);
+
+        long hedgeAfter = hedgeDelayNanos();
+        if (hedgeAfter > 0 && hedgeAfter < deadlineNanos) {
+            try {
+                return first.get(hedgeAfter, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException slow) {
+                LlmClient hedge = (secondary != null) ? secondary : primary;
+                return await(firstNonNull(first, hedge.generateResponseAsync(prompt)), deadline);
+            } catch (ExecutionException failed) {
+                if (secondary == null) throw unwrap(failed);
+                return await(secondary.generateResponseAsync(prompt), deadline);
+            } catch (InterruptedException e) {
+                first.cancel(true);
+                throw e;
+            }
+        }
+
+        try {
+            String reply = await(first, deadline);
+            if (reply != null || secondary == null) return reply;
+        } catch (TimeoutException | InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            if (secondary == null) throw e;
+        }
+        return await(secondary.generateResponseAsync(prompt), deadline);
+    }
+
+    /**
+     * The reply, cancelling the call (and so its HTTP request) at the deadline or when interrupted.
+     */
+    private String await(CompletableFuture<String> reply, long deadline) throws Exception {
+        try {
+            return reply.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            reply.cancel(true);
+            throw new TimeoutException("no reply within " + TimeUnit.NANOSECONDS.toSeconds(deadlineNanos) + "s");
+        } catch (InterruptedException e) {
+            reply.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Completes with the first non-null reply, or with null once every call has failed.
+     * Once it completes (or is cancelled), the call still running is cancelled.
+     */
+    private static CompletableFuture<String> firstNonNull(CompletableFuture<String> a, CompletableFuture<String> b) {
+        CompletableFuture<String> winner = new CompletableFuture<>();
+        CountDownLatch remaining = new CountDownLatch(2);
+        for (CompletableFuture<String> call : List.of(a, b)) {
+            call.whenComplete((reply, e) -> {
+                if (reply != null) winner.complete(reply);
+                remaining.countDown();
+                if (remaining.getCount() == 0) winner.complete(null);
+            });
+        }
+        winner.whenComplete((reply, e) -> {
+            a.cancel(true);
+            b.cancel(true);
+        });
+        return winner;
+    }
+
+    private synchronized void recordLatency(long nanos) {
+        latencies[nextLatency] = nanos;
+        nextLatency = (nextLatency + 1) % MAX_SAMPLES;
+        latencyCount = Math.min(latencyCount + 1, MAX_SAMPLES);
+    }
+
+    private synchronized long hedgeDelayNanos() {
+        if (hedgePercentile <= 0 || latencyCount < MIN_SAMPLES) return -1;
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(Math.min(hedgePercentile, 100) / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof CompletionException && cause.getCause() != null) cause = cause.getCause();
+        return (cause instanceof Exception ex) ? ex : e;
+    }
+
+    /**
+     * Thrown instead of calling a provider whose circuit breaker is open.
+     */
+    public static class CircuitBreakerOpenException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public CircuitBreakerOpenException() {
+            super("circuit breaker open, skipping LLM call");
+        }
+    }
+}
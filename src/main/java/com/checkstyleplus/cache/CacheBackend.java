@@ -0,0 +1,19 @@
+package com.checkstyleplus.cache;
+
+import java.util.Optional;
+
+/**
+ * Storage for cached LLM replies, addressed by a SHA-256 key.
+ * Implementations must be safe to use from several threads.
+ */
+public interface CacheBackend {
+
+    Optional<String> get(String key);
+
+    void put(String key, String value);
+
+    /**
+     * Flush and release any resources held by the backend.
+     */
+    default void close() { }
+}
@@ -0,0 +1,49 @@
+package com.checkstyleplus.cache;
+
+import com.checkstyleplus.utils.CacheUtils;
+import com.checkstyleplus.utils.NormalizedSource;
+import com.checkstyleplus.utils.PromptUtils;
+
+/**
+ * Derives cache keys for LLM replies.
+ * A key covers everything that can change the model's answer: the key format, the kind of prompt,
+ * the prompt template, the model settings (endpoint, model, sampling and token limits) and the
+ * normalized source. Line numbers are not part of the key; replies are cached against the
+ * normalized line indexes of {@link NormalizedSource}.
+ */
+public class CacheKeys {
+
+    /** Bump when the key derivation or the stored reply format changes. */
+    private static final int KEY_FORMAT_VERSION = 2;
+
+    private static volatile String templateVersion;
+
+    /**
+     * @param kind     the prompt shape, e.g. "file", "member" or "diff"
+     * @param settings the model settings fingerprint from LlmStyleCheck
+     * @param source   the normalized code the prompt is about
+     */
+    public static String of(String kind, String settings, NormalizedSource source) throws Exception {
+        return CacheUtils.sha256("v" + KEY_FORMAT_VERSION + "\n" + kind + "\n" + templateVersion() + "\n"
+            + settings + "\n" + source.text());
+    }
+
+    /**
+     * The key of a stored identifier verdict.
+     *
+     * @param name the kind and text of the identifier, see {@link com.checkstyleplus.utils.IdentifierNames}
+     */
+    public static String ofName(String settings, String name) throws Exception {
+        return CacheUtils.sha256("v" + KEY_FORMAT_VERSION + "\nname\n" + templateVersion() + "\n"
+            + settings + "\n" + name);
+    }
+
+    private static String templateVersion() throws Exception {
+        String v = templateVersion;
+        if (v == null) {
+            v = CacheUtils.sha256(PromptUtils.loadPromptTemplate());
+            templateVersion = v;
+        }
+        return v;
+    }
+}
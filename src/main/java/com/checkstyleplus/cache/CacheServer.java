@@ -0,0 +1,90 @@
+package com.checkstyleplus.cache;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal shared cache server for {@link RemoteCacheBackend}.
+ * <p>
+ * Usage: {@code java -cp checkstyleplus.jar com.checkstyleplus.cache.CacheServer <port> <dir> [directory|segment]
+ * [bind-address]}
+ * <p>
+ * Keys must be SHA-256 hex strings; values are plain text and limited in size.
+ * Requests are not authenticated, so the server listens on the loopback interface unless told otherwise.
+ */
+public class CacheServer {
+
+    private static final Pattern KEY = Pattern.compile("[0-9a-f]{64}");
+    private static final int MAX_VALUE_BYTES = 4 << 20;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CacheServer <port> <dir> [directory|segment] [bind-address]");
+            System.exit(2);
+        }
+        int port = Integer.parseInt(args[0]);
+        Path dir = Paths.get(args[1]);
+        CacheBackend store = (args.length > 2 && "segment".equalsIgnoreCase(args[2]))
+            ? new SegmentCacheBackend(dir, Long.MAX_VALUE)
+            : new DirectoryCacheBackend(dir);
+
+        String address = (args.length > 3) ? args[3] : InetAddress.getLoopbackAddress().getHostAddress();
+        HttpServer server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> handle(exchange, store));
+        server.start();
+        System.out.println("CacheServer: serving " + dir + " on " + address + ":" + port);
+    }
+
+    private static void handle(HttpExchange exchange, CacheBackend store) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String key = path.substring(path.lastIndexOf('/') + 1);
+            if (!KEY.matcher(key).matches()) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            switch (exchange.getRequestMethod()) {
+                case "GET" -> {
+                    Optional<String> value = store.get(key);
+                    if (value.isEmpty()) {
+                        exchange.sendResponseHeaders(404, -1);
+                        return;
+                    }
+                    byte[] body = value.get().getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                }
+                case "PUT" -> {
+                    byte[] body;
+                    try (InputStream in = exchange.getRequestBody()) {
+                        body = in.readNBytes(MAX_VALUE_BYTES + 1);
+                    }
+                    if (body.length > MAX_VALUE_BYTES) {
+                        exchange.sendResponseHeaders(413, -1);
+                        return;
+                    }
+                    store.put(key, new String(body, StandardCharsets.UTF_8));
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                default -> exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+}
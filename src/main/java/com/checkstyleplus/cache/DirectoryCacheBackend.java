@@ -0,0 +1,43 @@
+package com.checkstyleplus.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Optional;
+
+/**
+ * The original cache layout: one {@code <key>.json} file per reply in a directory.
+ */
+public class DirectoryCacheBackend implements CacheBackend {
+
+    private final Path dir;
+
+    public DirectoryCacheBackend(Path dir) throws IOException {
+        this.dir = Files.createDirectories(dir);
+    }
+
+    @Override
+    public Optional<String> get(String key) {
+        try {
+            return Optional.of(new String(Files.readAllBytes(dir.resolve(key + ".json")), StandardCharsets.UTF_8));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (Exception e) {
+            System.err.println("CacheUtils: Failed to read cache - " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void put(String key, String value) {
+        try {
+            // Write to a temporary file first so concurrent readers never see a partial reply
+            Path tmp = Files.createTempFile(dir, key, ".tmp");
+            Files.write(tmp, value.getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, dir.resolve(key + ".json"),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            System.err.println("CacheUtils: Failed to write cache - " + e.getMessage());
+        }
+    }
+}
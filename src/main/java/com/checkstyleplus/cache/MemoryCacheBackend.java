@@ -0,0 +1,53 @@
+package com.checkstyleplus.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps the most recently used replies of another backend in memory.
+ * Used by the daemon, which serves the same files over and over.
+ */
+public class MemoryCacheBackend implements CacheBackend {
+
+    private final CacheBackend inner;
+    private final Map<String, String> recent;
+
+    public MemoryCacheBackend(CacheBackend inner, int maxEntries) {
+        this.inner = inner;
+        this.recent = new LinkedHashMap<>(Math.min(maxEntries, 1024) * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public Optional<String> get(String key) {
+        synchronized (recent) {
+            String value = recent.get(key);
+            if (value != null) return Optional.of(value);
+        }
+        Optional<String> value = inner.get(key);
+        value.ifPresent(v -> remember(key, v));
+        return value;
+    }
+
+    @Override
+    public void put(String key, String value) {
+        remember(key, value);
+        inner.put(key, value);
+    }
+
+    @Override
+    public void close() {
+        inner.close();
+    }
+
+    private void remember(String key, String value) {
+        synchronized (recent) {
+            recent.put(key, value);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.checkstyleplus.cache;
+
+import com.checkstyleplus.adapters.HttpTransport;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Content-addressed HTTP cache: {@code GET <base>/<key>} returns a reply (404 when absent)
+ * and {@code PUT <base>/<key>} stores one. See {@link CacheServer} for a minimal server.
+ * <p>
+ * Lookups give up after the configured timeout, and after a failed request the remote is skipped
+ * for a while so an unreachable server does not slow every file down. Writes are sent in the
+ * background; {@link #close()} waits a bounded time for the outstanding ones.
+ */
+public class RemoteCacheBackend implements CacheBackend {
+
+    private static final long RETRY_AFTER_FAILURE_MILLIS = 30_000;
+
+    private final String baseUrl;
+    private final Duration timeout;
+    private final Set<CompletableFuture<?>> pendingWrites = ConcurrentHashMap.newKeySet();
+    private volatile long unavailableUntil;
+
+    public RemoteCacheBackend(String baseUrl, long timeoutMillis) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        this.timeout = Duration.ofMillis(Math.max(1, timeoutMillis));
+    }
+
+    @Override
+    public Optional<String> get(String key) {
+        if (System.currentTimeMillis() < unavailableUntil) return Optional.empty();
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + key)).timeout(timeout).GET().build();
+            HttpResponse<String> response = HttpTransport.client()
+                .send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            if (response.statusCode() == 200) return Optional.of(response.body());
+            if (response.statusCode() != 404) markUnavailable("GET status " + response.statusCode());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            markUnavailable(e.toString());
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void put(String key, String value) {
+        if (System.currentTimeMillis() < unavailableUntil) return;
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + key))
+            .timeout(timeout)
+            .header("Content-Type", "text/plain; charset=utf-8")
+            .PUT(HttpRequest.BodyPublishers.ofString(value, StandardCharsets.UTF_8))
+            .build();
+
+        CompletableFuture<HttpResponse<Void>> write =
+            HttpTransport.client().sendAsync(request, HttpResponse.BodyHandlers.discarding());
+        pendingWrites.add(write);
+        write.whenComplete((response, e) -> {
+            pendingWrites.remove(write);
+            if (e != null) markUnavailable(e.toString());
+            else if (response.statusCode() / 100 != 2) markUnavailable("PUT status " + response.statusCode());
+        });
+    }
+
+    @Override
+    public void close() {
+        try {
+            CompletableFuture.allOf(pendingWrites.toArray(CompletableFuture[]::new))
+                .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            System.err.println("CacheUtils: Gave up on " + pendingWrites.size() + " remote cache writes");
+        }
+    }
+
+    private void markUnavailable(String reason) {
+        if (System.currentTimeMillis() >= unavailableUntil) {
+            System.err.println("CacheUtils: Remote cache unavailable - " + reason);
+        }
+        unavailableUntil = System.currentTimeMillis() + RETRY_AFTER_FAILURE_MILLIS;
+    }
+}
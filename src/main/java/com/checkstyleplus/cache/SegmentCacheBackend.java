@@ -0,0 +1,390 @@
+package com.checkstyleplus.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32C;
+
+/**
+ * Cache backend that keeps every reply in one append-only segment file.
+ * <p>
+ * Records are appended as {@code [magic][keyLength][valueLength][crc][key][value]} and located through an
+ * in-memory index built by scanning the file once; reads come from a memory mapping of the file, in 1 GB
+ * chunks so segments can grow past 2 GB.
+ * The index is kept in LRU order and trimmed to {@code maxBytes}. Evicted and overwritten records stay in
+ * the file until a background compaction copies the live records to a new file and atomically swaps it in,
+ * once they take more space than the live ones or the file runs a quarter over {@code maxBytes}.
+ * <p>
+ * Appends and compactions hold an exclusive lock on a sibling {@code .lock} file, so several processes can
+ * share the same cache directory. A torn record left by a crashed writer fails its checksum and is cut off
+ * by the next writer.
+ */
+public class SegmentCacheBackend implements CacheBackend {
+
+    private static final int MAGIC = 0x4C4C4D43; // "LLMC"
+    private static final int HEADER_BYTES = 16;
+    private static final long MIN_COMPACT_BYTES = 1L << 20;
+    private static final long REMAP_THRESHOLD = 4L << 20;
+    private static final int CHUNK_BYTES = 1 << 30;
+
+    private record Entry(long valueOffset, int valueLength, int recordLength) { }
+
+    private final Path segmentPath;
+    private final Path lockPath;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(1024, 0.75f, true);
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "llm-cache-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private FileChannel channel;
+    private FileChannel lockChannel;
+    private final List<MappedByteBuffer> mapped = new ArrayList<>();
+    private long mappedBytes;
+    private Object fileKey;
+    private long scannedUpTo;
+    private long liveBytes;
+    private boolean compactionScheduled;
+
+    public SegmentCacheBackend(Path dir, long maxBytes) throws IOException {
+        Files.createDirectories(dir);
+        this.segmentPath = dir.resolve("cache.seg");
+        this.lockPath = dir.resolve("cache.lock");
+        this.maxBytes = maxBytes;
+        this.lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        synchronized (this) {
+            open();
+        }
+    }
+
+    @Override
+    public synchronized Optional<String> get(String key) {
+        try {
+            Entry entry = index.get(key);
+            if (entry == null) {
+                // Another process may have appended it since the last scan
+                refresh();
+                entry = index.get(key);
+            }
+            if (entry == null) return Optional.empty();
+            return Optional.of(new String(read(entry.valueOffset(), entry.valueLength()), StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            System.err.println("CacheUtils: Failed to read cache - " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public synchronized void put(String key, String value) {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        byte[] v = value.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = encode(k, v);
+        FileLock lock = null;
+        try {
+            lock = lockChannel.lock();
+            refresh();
+            if (channel.size() > scannedUpTo) channel.truncate(scannedUpTo); // torn tail from a crashed writer
+
+            long offset = scannedUpTo;
+            writeFully(channel, record, offset);
+            scannedUpTo = offset + record.capacity();
+            index(key, new Entry(offset + HEADER_BYTES + k.length, v.length, record.capacity()));
+        } catch (Exception e) {
+            System.err.println("CacheUtils: Failed to write cache - " + e.getMessage());
+            return;
+        } finally {
+            unlock(lock);
+        }
+        evictIfNeeded();
+        maybeScheduleCompaction();
+    }
+
+    @Override
+    public void close() {
+        compactor.shutdown();
+        synchronized (this) {
+            try {
+                channel.close();
+                lockChannel.close();
+            } catch (IOException ignored) {
+                // Nothing left to flush: every record is written in full before put() returns
+            }
+        }
+    }
+
+    // ========================== Segment File ==========================
+    private void open() throws IOException {
+        if (channel != null) channel.close();
+        channel = FileChannel.open(segmentPath,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        fileKey = fileIdentity();
+        mapped.clear();
+        mappedBytes = 0;
+        index.clear();
+        scannedUpTo = 0;
+        liveBytes = 0;
+        scan();
+    }
+
+    /**
+     * Pick up records appended by other processes, and start over if a compaction replaced the file.
+     */
+    private void refresh() throws IOException {
+        // A compacted file is new, and never larger than what it replaced had been scanned up to
+        if (!fileIdentity().equals(fileKey) || Files.size(segmentPath) < scannedUpTo) {
+            open();
+        } else if (channel.size() > scannedUpTo) {
+            scan();
+        }
+    }
+
+    /**
+     * The file's key, or where the platform has none (Windows) its creation time.
+     */
+    private Object fileIdentity() throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(segmentPath, BasicFileAttributes.class);
+        return (attributes.fileKey() != null) ? attributes.fileKey() : attributes.creationTime();
+    }
+
+    /**
+     * Map the first {@code size} bytes of the segment, chunk by chunk.
+     */
+    private void map(long size) throws IOException {
+        mapped.clear();
+        for (long start = 0; start < size; start += CHUNK_BYTES) {
+            mapped.add(channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_BYTES, size - start)));
+        }
+        mappedBytes = size;
+    }
+
+    private void scan() throws IOException {
+        long size = channel.size();
+        if (mappedBytes == 0 || size - mappedBytes > REMAP_THRESHOLD) map(size);
+
+        long pos = scannedUpTo;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (pos + HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, pos);
+            header.flip();
+            int magic = header.getInt();
+            int keyLength = header.getInt();
+            int valueLength = header.getInt();
+            int crc = header.getInt();
+            if (magic != MAGIC || keyLength <= 0 || valueLength < 0
+                    || pos + HEADER_BYTES + keyLength + valueLength > size) {
+                break;
+            }
+
+            byte[] payload = read(pos + HEADER_BYTES, keyLength + valueLength);
+            CRC32C checksum = new CRC32C();
+            checksum.update(payload);
+            if ((int) checksum.getValue() != crc) break;
+
+            String key = new String(payload, 0, keyLength, StandardCharsets.UTF_8);
+            int recordLength = HEADER_BYTES + keyLength + valueLength;
+            index(key, new Entry(pos + HEADER_BYTES + keyLength, valueLength, recordLength));
+            pos += recordLength;
+        }
+        scannedUpTo = pos;
+    }
+
+    private void index(String key, Entry entry) {
+        Entry previous = index.put(key, entry);
+        if (previous != null) liveBytes -= previous.recordLength();
+        liveBytes += entry.recordLength();
+    }
+
+    private byte[] read(long offset, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int chunk = (int) (offset / CHUNK_BYTES);
+        int within = (int) (offset % CHUNK_BYTES);
+        // Records across a chunk boundary, or past the mapping, are read from the channel
+        if (offset + length <= mappedBytes && within + length <= mapped.get(chunk).capacity()) {
+            mapped.get(chunk).get(within, bytes);
+        } else {
+            readFully(ByteBuffer.wrap(bytes), offset);
+        }
+        return bytes;
+    }
+
+    private void readFully(ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, offset + buffer.position());
+            if (n < 0) throw new IOException("Unexpected end of cache segment");
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer, offset + buffer.position());
+        }
+    }
+
+    private static ByteBuffer encode(byte[] key, byte[] value) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(key);
+        checksum.update(value);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + key.length + value.length);
+        record.putInt(MAGIC).putInt(key.length).putInt(value.length).putInt((int) checksum.getValue());
+        record.put(key).put(value).flip();
+        return record;
+    }
+
+    // ========================== Eviction and Compaction ==========================
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Entry>> eldest = index.entrySet().iterator();
+        while (liveBytes > maxBytes && eldest.hasNext()) {
+            liveBytes -= eldest.next().getValue().recordLength();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Compact once dead records outweigh the live ones, or once evictions have left the file a quarter over
+     * {@code maxBytes}: evicted records stay in the file until then.
+     */
+    private void maybeScheduleCompaction() {
+        long dead = scannedUpTo - liveBytes;
+        if (compactionScheduled || dead < MIN_COMPACT_BYTES
+                || (dead < liveBytes && scannedUpTo - maxBytes <= maxBytes / 4)) {
+            return;
+        }
+        compactionScheduled = true;
+        compactor.submit(this::compact);
+    }
+
+    /**
+     * Compact now, after any compaction already running.
+     */
+    Future<?> compactNow() {
+        return compactor.submit(this::compact);
+    }
+
+    /**
+     * Copy the live records to a new file, then swap it in. The copy holds neither the monitor nor the file
+     * lock, so get() and put() carry on meanwhile; only the records appended during the copy are moved over
+     * while both are held for the swap.
+     */
+    private void compact() {
+        Path tmp = segmentPath.resolveSibling(
+            segmentPath.getFileName() + "." + ProcessHandle.current().pid() + ".compact");
+        try {
+            FileChannel source;
+            long copiedUpTo;
+            Map<String, Entry> live;
+            synchronized (this) {
+                if (!channel.isOpen()) return;
+                refresh();
+                evictIfNeeded();
+                source = channel;
+                copiedUpTo = scannedUpTo;
+                live = new LinkedHashMap<>(index);
+            }
+
+            // Live records are copied from least to most recently used, so a rescan keeps the LRU order
+            Map<String, Entry> moved = new HashMap<>();
+            long pos = 0;
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (Map.Entry<String, Entry> e : live.entrySet()) {
+                    Entry entry = e.getValue();
+                    long start = entry.valueOffset() + entry.valueLength() - entry.recordLength();
+                    transferFully(source, start, entry.recordLength(), out, pos);
+                    moved.put(e.getKey(), new Entry(pos + entry.valueOffset() - start, entry.valueLength(),
+                        entry.recordLength()));
+                    pos += entry.recordLength();
+                }
+            }
+
+            synchronized (this) {
+                if (!channel.isOpen()) return;
+                FileLock lock = lockChannel.lock();
+                try {
+                    swap(tmp, source, copiedUpTo, pos, moved);
+                } finally {
+                    unlock(lock);
+                }
+            }
+        } catch (ClosedChannelException e) {
+            // The backend was closed, or the segment replaced by another process, during the copy
+        } catch (Exception e) {
+            System.err.println("CacheUtils: Cache compaction failed - " + e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                // Left for the next compaction to overwrite
+            }
+            synchronized (this) {
+                compactionScheduled = false;
+            }
+        }
+    }
+
+    /**
+     * Move the records appended since the copy to the end of {@code tmp}, swap it in and rebase the index.
+     * Called holding the monitor and the file lock.
+     */
+    private void swap(Path tmp, FileChannel source, long copiedUpTo, long copiedBytes, Map<String, Entry> moved)
+            throws IOException {
+        refresh();
+        // Reopened meanwhile: another process compacted the file first
+        if (channel != source) return;
+
+        long shift = copiedBytes - copiedUpTo;
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            transferFully(channel, copiedUpTo, scannedUpTo - copiedUpTo, out, copiedBytes);
+            out.force(true);
+        }
+        Files.move(tmp, segmentPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // Records below copiedUpTo were copied; later ones moved with the tail
+        LinkedHashMap<String, Entry> swapped = new LinkedHashMap<>();
+        for (Map.Entry<String, Entry> e : index.entrySet()) {
+            Entry entry = e.getValue();
+            Entry now = (entry.valueOffset() >= copiedUpTo)
+                ? new Entry(entry.valueOffset() + shift, entry.valueLength(), entry.recordLength())
+                : moved.get(e.getKey());
+            if (now != null) swapped.put(e.getKey(), now);
+        }
+        channel.close();
+        channel = FileChannel.open(segmentPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        fileKey = fileIdentity();
+        scannedUpTo += shift;
+        map(scannedUpTo);
+        index.clear();
+        liveBytes = 0;
+        swapped.forEach(this::index);
+    }
+
+    private static void transferFully(FileChannel in, long offset, long length, FileChannel out, long at)
+            throws IOException {
+        for (long done = 0; done < length; ) {
+            long n = in.transferTo(offset + done, length - done, out.position(at + done));
+            if (n <= 0) throw new IOException("Unexpected end of cache segment");
+            done += n;
+        }
+    }
+
+    private static void unlock(FileLock lock) {
+        if (lock == null) return;
+        try {
+            lock.release();
+        } catch (IOException ignored) {
+            // Released anyway when the lock channel closes
+        }
+    }
+}
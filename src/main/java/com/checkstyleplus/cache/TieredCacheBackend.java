@@ -0,0 +1,40 @@
+package com.checkstyleplus.cache;
+
+import java.util.Optional;
+
+/**
+ * Read-through cache over a local and a shared backend.
+ * Lookups try the local cache first and copy shared hits into it; writes go to both.
+ */
+public class TieredCacheBackend implements CacheBackend {
+
+    private final CacheBackend local;
+    private final CacheBackend shared;
+
+    public TieredCacheBackend(CacheBackend local, CacheBackend shared) {
+        this.local = local;
+        this.shared = shared;
+    }
+
+    @Override
+    public Optional<String> get(String key) {
+        Optional<String> hit = local.get(key);
+        if (hit.isPresent()) return hit;
+
+        hit = shared.get(key);
+        hit.ifPresent(value -> local.put(key, value));
+        return hit;
+    }
+
+    @Override
+    public void put(String key, String value) {
+        local.put(key, value);
+        shared.put(key, value);
+    }
+
+    @Override
+    public void close() {
+        shared.close();
+        local.close();
+    }
+}
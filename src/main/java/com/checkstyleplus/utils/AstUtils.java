@@ -3,6 +3,8 @@ package com.checkstyleplus.utils;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
 
+import java.util.BitSet;
+
 /**
  * Utility class for AST node traversal and identifier search.
  */
@@ -37,4 +39,50 @@ public class AstUtils {
         }
         return null;
     }
+
+    /**
+     * The last source line covered by the node and its children.
+     */
+    public static int lastLineOf(DetailAST node) {
+        DetailAST last = node;
+        while (last.getLastChild() != null) last = last.getLastChild();
+        return Math.max(node.getLineNo(), last.getLineNo());
+    }
+
+    /**
+     * The header lines (from the first modifier up to the opening brace) of every type,
+     * method and constructor declaration that encloses one of the given lines.
+     */
+    public static BitSet enclosingDeclarationLines(DetailAST root, BitSet lines) {
+        BitSet headers = new BitSet();
+        collectHeaders(root, lines, headers);
+        return headers;
+    }
+
+    private static void collectHeaders(DetailAST node, BitSet lines, BitSet headers) {
+        for (DetailAST c = node; c != null; c = c.getNextSibling()) {
+            int end = lastLineOf(c);
+            int next = lines.nextSetBit(c.getLineNo());
+            if (next < 0 || next > end) continue;
+
+            if (isDeclaration(c.getType())) {
+                DetailAST body = c.findFirstToken(TokenTypes.OBJBLOCK);
+                if (body == null) body = c.findFirstToken(TokenTypes.SLIST);
+                int headerEnd = (body != null) ? body.getLineNo() : end;
+                headers.set(c.getLineNo(), headerEnd + 1);
+            }
+            if (c.getFirstChild() != null) collectHeaders(c.getFirstChild(), lines, headers);
+        }
+    }
+
+    private static boolean isDeclaration(int type) {
+        return type == TokenTypes.CLASS_DEF
+            || type == TokenTypes.INTERFACE_DEF
+            || type == TokenTypes.ENUM_DEF
+            || type == TokenTypes.RECORD_DEF
+            || type == TokenTypes.ANNOTATION_DEF
+            || type == TokenTypes.METHOD_DEF
+            || type == TokenTypes.CTOR_DEF
+            || type == TokenTypes.COMPACT_CTOR_DEF;
+    }
 }
@@ -1,28 +1,77 @@
 package com.checkstyleplus.utils;
 
+import com.checkstyleplus.cache.CacheBackend;
+import com.checkstyleplus.cache.DirectoryCacheBackend;
+import com.checkstyleplus.cache.MemoryCacheBackend;
+import com.checkstyleplus.cache.RemoteCacheBackend;
+import com.checkstyleplus.cache.SegmentCacheBackend;
+import com.checkstyleplus.cache.TieredCacheBackend;
+
 import java.nio.file.*;
 import java.security.MessageDigest;
+import java.util.HexFormat;
 import java.util.Optional;
 
 /**
  * Utility class for caching LLM responses on disk.
- * Cache files are stored under ~/.llm-checks-cache/
+ * Cache files are stored under ~/.llm-checks-cache/, either one JSON file per key ("directory", the default)
+ * or in a single size-bounded segment file ("segment").
+ * A shared cache (an HTTP store or a shared directory) can be layered behind the local one,
+ * see {@link #configure(String, long, String, long)}.
  */
 public class CacheUtils {
 
     private static final String CACHE_DIR_NAME = ".llm-checks-cache";
 
+    private static String backendName = "directory";
+    private static long maxBytes = 256L << 20;
+    private static String remote = "";
+    private static long remoteTimeoutMillis = 2000;
+    private static int memoryEntries = 0;
+    private static volatile CacheBackend backend;
+    private static volatile CacheBackend local;
+
+    /**
+     * Choose the cache backend. Only the first call before the cache is used takes effect.
+     *
+     * @param name          "directory" or "segment"
+     * @param maxBytes      upper bound on live cache data for backends that evict
+     * @param remote        base URL of a shared HTTP cache, a shared directory, or empty for none
+     * @param timeoutMillis timeout of each request to a shared HTTP cache
+     */
+    public static synchronized void configure(String name, long maxBytes, String remote, long timeoutMillis) {
+        if (backend != null) return;
+        CacheUtils.backendName = name;
+        CacheUtils.maxBytes = maxBytes;
+        CacheUtils.remote = (remote != null) ? remote.trim() : "";
+        CacheUtils.remoteTimeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Also keep up to {@code maxEntries} recently used replies in memory, for long-running processes.
+     * Takes effect the next time the cache is opened.
+     */
+    public static synchronized void keepInMemory(int maxEntries) {
+        memoryEntries = maxEntries;
+    }
+
+    /**
+     * Flush outstanding writes to the shared cache and release the local one.
+     */
+    public static synchronized void close() {
+        if (backend == null) return;
+        backend.close();
+        backend = null;
+        local = null;
+    }
+
     /**
      * Compute SHA-256 hash of the input string. Used as cache key.
      */
     public static String sha256(String input) throws Exception {
         MessageDigest digest = MessageDigest.getInstance("SHA-256");
         byte[] hash = digest.digest(input.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-        StringBuilder sb = new StringBuilder();
-        for (byte b : hash) {
-            sb.append(String.format("%02x", b));
-        }
-        return sb.toString();
+        return HexFormat.of().formatHex(hash);
     }
 
     /**
@@ -30,10 +79,7 @@ public class CacheUtils {
      */
     public static Optional<String> readCache(String key) {
         try {
-            Path f = getCacheDir().resolve(key + ".json");
-            if (Files.exists(f)) {
-                return Optional.of(new String(Files.readAllBytes(f)));
-            }
+            return backend().get(key);
         } catch (Exception e) {
             System.err.println("CacheUtils: Failed to read cache - " + e.getMessage());
         }
@@ -45,16 +91,63 @@ public class CacheUtils {
      */
     public static void writeCache(String key, String resp) {
         try {
-            Path f = getCacheDir().resolve(key + ".json");
-            Files.write(f, resp.getBytes());
+            backend().put(key, resp);
         } catch (Exception e) {
             System.err.println("CacheUtils: Failed to write cache - " + e.getMessage());
         }
     }
 
-    private static Path getCacheDir() throws Exception {
-        Path p = Paths.get(System.getProperty("user.home"), CACHE_DIR_NAME);
-        if (!Files.exists(p)) Files.createDirectories(p);
-        return p;
+    /**
+     * Read an entry that is only ever kept in the local cache, never in a shared one.
+     */
+    public static Optional<String> readLocalCache(String key) {
+        try {
+            return local().get(key);
+        } catch (Exception e) {
+            System.err.println("CacheUtils: Failed to read cache - " + e.getMessage());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Write an entry to the local cache only, e.g. one that is trusted without being checked
+     * or that describes this machine.
+     */
+    public static void writeLocalCache(String key, String value) {
+        try {
+            local().put(key, value);
+        } catch (Exception e) {
+            System.err.println("CacheUtils: Failed to write cache - " + e.getMessage());
+        }
+    }
+
+    private static CacheBackend local() throws Exception {
+        backend();
+        return local;
+    }
+
+    private static CacheBackend backend() throws Exception {
+        CacheBackend b = backend;
+        if (b != null) return b;
+        synchronized (CacheUtils.class) {
+            if (backend == null) {
+                Path dir = Paths.get(System.getProperty("user.home"), CACHE_DIR_NAME);
+                local = switch (backendName.trim().toLowerCase()) {
+                    case "segment" -> new SegmentCacheBackend(dir, maxBytes);
+                    case "directory" -> new DirectoryCacheBackend(dir);
+                    default -> throw new IllegalArgumentException("Unknown cacheBackend: " + backendName);
+                };
+                CacheBackend tiers;
+                if (remote.isEmpty()) {
+                    tiers = local;
+                } else if (remote.startsWith("http://") || remote.startsWith("https://")) {
+                    tiers = new TieredCacheBackend(local, new RemoteCacheBackend(remote, remoteTimeoutMillis));
+                } else {
+                    tiers = new TieredCacheBackend(local, new DirectoryCacheBackend(Paths.get(remote)));
+                }
+                backend = (memoryEntries > 0) ? new MemoryCacheBackend(tiers, memoryEntries) : tiers;
+            }
+            return backend;
+        }
     }
 }
@@ -0,0 +1,94 @@
+package com.checkstyleplus.utils;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the declared identifiers of a file together with the kind the naming guidelines
+ * (sections 2.1.1 to 2.6.1) judge them by. A name's verdict depends only on its kind and text,
+ * except for static final fields, where the declared type decides whether it is a constant.
+ */
+public class IdentifierNames {
+
+    /**
+     * One declaration: {@code kind} describes it for the model (e.g. "local variable"),
+     * {@code line} is where the name is declared.
+     */
+    public record Occurrence(String kind, String name, int line) {
+
+        /** The (kind, name) pair the verdict is stored under. */
+        public String key() {
+            return kind + " " + name;
+        }
+    }
+
+    public static List<Occurrence> collect(DetailAST root, List<String> lines) {
+        List<Occurrence> found = new ArrayList<>();
+        collect(root, lines, found);
+        return found;
+    }
+
+    private static void collect(DetailAST node, List<String> lines, List<Occurrence> found) {
+        for (DetailAST c = node; c != null; c = c.getNextSibling()) {
+            String kind = kindOf(c, lines);
+            DetailAST ident = c.findFirstToken(TokenTypes.IDENT);
+            if (kind != null && ident != null) {
+                found.add(new Occurrence(kind, ident.getText(), ident.getLineNo()));
+            }
+            if (c.getFirstChild() != null) collect(c.getFirstChild(), lines, found);
+        }
+    }
+
+    private static String kindOf(DetailAST node, List<String> lines) {
+        switch (node.getType()) {
+            case TokenTypes.CLASS_DEF: return "class";
+            case TokenTypes.INTERFACE_DEF: return "interface";
+            case TokenTypes.ENUM_DEF: return "enum";
+            case TokenTypes.RECORD_DEF: return "record";
+            case TokenTypes.ANNOTATION_DEF: return "annotation";
+            case TokenTypes.METHOD_DEF: return "method";
+            case TokenTypes.PARAMETER_DEF:
+            case TokenTypes.RECORD_COMPONENT_DEF: return "parameter";
+            case TokenTypes.PATTERN_VARIABLE_DEF: return "local variable";
+            case TokenTypes.TYPE_PARAMETER: return "type variable";
+            case TokenTypes.VARIABLE_DEF: return variableKind(node, lines);
+            default: return null;
+        }
+    }
+
+    private static String variableKind(DetailAST variable, List<String> lines) {
+        DetailAST parent = variable.getParent();
+        if (parent == null || parent.getType() != TokenTypes.OBJBLOCK) return "local variable";
+
+        DetailAST modifiers = variable.findFirstToken(TokenTypes.MODIFIERS);
+        boolean inInterface = parent.getParent() != null
+            && (parent.getParent().getType() == TokenTypes.INTERFACE_DEF
+                || parent.getParent().getType() == TokenTypes.ANNOTATION_DEF);
+        boolean isStatic = inInterface || modifiers.findFirstToken(TokenTypes.LITERAL_STATIC) != null;
+        boolean isFinal = inInterface || modifiers.findFirstToken(TokenTypes.FINAL) != null;
+        if (!(isStatic && isFinal)) return "field";
+
+        // Whether a static final field is a constant depends on its type being deeply immutable
+        return "static final field of type " + typeText(variable, lines);
+    }
+
+    /**
+     * The declared type as written, when it is on the same line as the name.
+     */
+    private static String typeText(DetailAST variable, List<String> lines) {
+        DetailAST type = variable.findFirstToken(TokenTypes.TYPE);
+        DetailAST ident = variable.findFirstToken(TokenTypes.IDENT);
+        if (type == null || ident == null || type.getLineNo() != ident.getLineNo()
+                || ident.getLineNo() > lines.size()) {
+            return "?";
+        }
+        String line = lines.get(ident.getLineNo() - 1);
+        int start = Math.min(type.getColumnNo(), line.length());
+        int end = Math.min(ident.getColumnNo(), line.length());
+        String text = (end > start) ? line.substring(start, end).trim() : "";
+        return text.isEmpty() ? "?" : text.replaceAll("\\s+", " ");
+    }
+}
@@ -0,0 +1,77 @@
+package com.checkstyleplus.utils;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Splits a source file into contiguous line segments along its members.
+ * Every method or constructor (with the comments directly above it) becomes its own segment,
+ * and the class-level code between them (headers, fields, nested class declarations) fills the gaps.
+ * Segments cover every line of the file exactly once.
+ */
+public class MemberSegments {
+
+    /**
+     * A 1-based, inclusive line range of the file.
+     */
+    public record Segment(int startLine, int endLine, boolean member) {
+
+        public boolean contains(int line) {
+            return line >= startLine && line <= endLine;
+        }
+
+        public String text(List<String> lines) {
+            return String.join("\n", lines.subList(startLine - 1, endLine));
+        }
+    }
+
+    public static List<Segment> split(DetailAST root, List<String> lines) {
+        List<int[]> members = new ArrayList<>();
+        collectMembers(root, members);
+        members.sort(Comparator.comparingInt(r -> r[0]));
+
+        List<Segment> segments = new ArrayList<>();
+        int cursor = 1;
+        for (int i = 0; i < members.size(); i++) {
+            int start = Math.max(cursor, extendOverComments(lines, members.get(i)[0], cursor));
+            int end = members.get(i)[1];
+            // Members sharing a line are merged into one segment
+            while (i + 1 < members.size() && members.get(i + 1)[0] <= end) {
+                end = Math.max(end, members.get(++i)[1]);
+            }
+            if (end < start) continue;
+            if (start > cursor) segments.add(new Segment(cursor, start - 1, false));
+            segments.add(new Segment(start, end, true));
+            cursor = end + 1;
+        }
+        if (cursor <= lines.size()) segments.add(new Segment(cursor, lines.size(), false));
+        return segments;
+    }
+
+    private static void collectMembers(DetailAST node, List<int[]> members) {
+        for (DetailAST c = node; c != null; c = c.getNextSibling()) {
+            int type = c.getType();
+            if (type == TokenTypes.METHOD_DEF || type == TokenTypes.CTOR_DEF
+                    || type == TokenTypes.COMPACT_CTOR_DEF) {
+                members.add(new int[]{c.getLineNo(), AstUtils.lastLineOf(c)});
+            } else if (c.getFirstChild() != null) {
+                collectMembers(c.getFirstChild(), members);
+            }
+        }
+    }
+
+    // Javadoc and line comments directly above a member belong to that member
+    private static int extendOverComments(List<String> lines, int start, int floor) {
+        int line = start;
+        while (line - 1 >= floor && line - 1 >= 1) {
+            String prev = lines.get(line - 2).trim();
+            if (!(prev.startsWith("//") || prev.startsWith("/*") || prev.startsWith("*"))) break;
+            line--;
+        }
+        return line;
+    }
+}
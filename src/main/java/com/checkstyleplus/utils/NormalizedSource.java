@@ -0,0 +1,99 @@
+package com.checkstyleplus.utils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The part of a source file that can influence the LLM's findings, used to derive cache keys.
+ * Blank lines, the package and import declarations and everything above the package declaration
+ * (license headers) are dropped, and runs of whitespace are collapsed, so reformatting or
+ * reordering imports does not change the normalized text.
+ * <p>
+ * Cached replies are stored against normalized line indexes and mapped back onto the
+ * current line numbers when they are reused.
+ */
+public class NormalizedSource {
+
+    private static final Pattern PACKAGE_DECL = Pattern.compile("^package\\s+[\\w.]+\\s*;.*$");
+    private static final Pattern IMPORT_DECL = Pattern.compile("^import\\s+(static\\s+)?[\\w.]+(\\.\\*)?\\s*;.*$");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final String text;
+    private final int[] originalLines;
+    private final int[] normalizedLines;
+
+    private NormalizedSource(String text, int[] originalLines, int[] normalizedLines) {
+        this.text = text;
+        this.originalLines = originalLines;
+        this.normalizedLines = normalizedLines;
+    }
+
+    /**
+     * Normalize the selected lines (1-based indexes in {@code included}) of a file, or all of them if null.
+     */
+    public static NormalizedSource of(List<String> lines, BitSet included) {
+        int headerEnd = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            if (PACKAGE_DECL.matcher(lines.get(i).strip()).matches()) {
+                headerEnd = i + 1;
+                break;
+            }
+        }
+
+        StringBuilder text = new StringBuilder();
+        int[] originalLines = new int[lines.size()];
+        int[] normalizedLines = new int[lines.size() + 1];
+        int count = 0;
+        for (int n = headerEnd + 1; n <= lines.size(); n++) {
+            if (included != null && !included.get(n)) continue;
+            String line = lines.get(n - 1).strip();
+            if (line.isEmpty() || IMPORT_DECL.matcher(line).matches()) continue;
+
+            text.append(WHITESPACE.matcher(line).replaceAll(" ")).append('\n');
+            originalLines[count++] = n;
+            normalizedLines[n] = count;
+        }
+        return new NormalizedSource(text.toString(), Arrays.copyOf(originalLines, count), normalizedLines);
+    }
+
+    public String text() {
+        return text;
+    }
+
+    public boolean isEmpty() {
+        return originalLines.length == 0;
+    }
+
+    /**
+     * Rewrite a reply from current line numbers to normalized line indexes.
+     * Findings on lines that were normalized away are dropped.
+     */
+    public String toNormalized(String reply) {
+        return remap(reply, normalizedLines, false);
+    }
+
+    /**
+     * Rewrite a reply from normalized line indexes back to current line numbers.
+     */
+    public String toOriginal(String reply) {
+        return remap(reply, originalLines, true);
+    }
+
+    private static String remap(String reply, int[] table, boolean oneBasedIndex) {
+        if (reply == null || reply.isBlank()) return reply;
+        StringBuilder sb = new StringBuilder();
+        for (String line : reply.split("\\R")) {
+            Integer n = ReplyUtils.lineNumberOf(line);
+            if (n == null) {
+                sb.append(line).append('\n');
+                continue;
+            }
+            int index = oneBasedIndex ? n - 1 : n;
+            int mapped = (index >= 0 && index < table.length) ? table[index] : 0;
+            if (mapped > 0) sb.append(ReplyUtils.withLineNumber(line, mapped)).append('\n');
+        }
+        return sb.toString();
+    }
+}
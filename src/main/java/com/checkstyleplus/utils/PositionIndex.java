@@ -0,0 +1,115 @@
+package com.checkstyleplus.utils;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where the identifiers of one file are, for anchoring reported violations.
+ * Built in one pass over the tree, it answers what {@link AstUtils#findIdentAtLineWithText} finds
+ * (the same node, in the same order of preference) without walking the tree again for every finding,
+ * and maps raw columns to tab-expanded ones, directly on the lines without tabs.
+ */
+public class PositionIndex {
+
+    private final List<String> lines;
+    private final Map<String, DetailAST>[] identsByLine;
+    private final BitSet linesWithTabs = new BitSet();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public PositionIndex(DetailAST root, List<String> lines) {
+        this.lines = lines;
+        this.identsByLine = new Map[lines.size() + 1];
+        if (root != null) indexIdents(root);
+        for (int n = 1; n <= lines.size(); n++) {
+            if (lines.get(n - 1).indexOf('\t') >= 0) linesWithTabs.set(n);
+        }
+    }
+
+    /**
+     * The identifier node with this text on the line, or null.
+     */
+    public DetailAST identAt(int line, String name) {
+        if (name == null || line < 1 || line >= identsByLine.length) return null;
+        Map<String, DetailAST> idents = identsByLine[line];
+        return (idents != null) ? idents.get(name) : null;
+    }
+
+    /**
+     * The raw index of the identifier on the line, as a whole word if it occurs as one, or null.
+     */
+    public Integer columnOf(int line, String identifier) {
+        if (identifier == null || identifier.isEmpty() || line < 1 || line > lines.size()) return null;
+        String text = lines.get(line - 1);
+        for (int idx = text.indexOf(identifier); idx >= 0; idx = text.indexOf(identifier, idx + 1)) {
+            int end = idx + identifier.length();
+            if (!isWordChar(text, idx - 1) && !isWordChar(text, end)) return idx;
+        }
+        int idx = text.indexOf(identifier);
+        return (idx >= 0) ? idx : null;
+    }
+
+    /**
+     * The column of a raw index once tabs are expanded to {@code tabWidth}.
+     */
+    public int visualColumn(int line, int rawIndex, int tabWidth) {
+        if (line < 1 || line > lines.size()) return 0;
+        String text = lines.get(line - 1);
+        if (!linesWithTabs.get(line)) return Math.min(rawIndex, text.length());
+        int col = 0;
+        for (int i = 0; i < Math.min(rawIndex, text.length()); i++) {
+            col += (text.charAt(i) == '\t') ? tabWidth - (col % tabWidth) : 1;
+        }
+        return col;
+    }
+
+    /**
+     * Preorder walk below the root; the first node recorded for a line and name wins, as in the depth-first search.
+     */
+    private void indexIdents(DetailAST root) {
+        DetailAST node = root;
+        while (node != null) {
+            if (node.getType() == TokenTypes.IDENT) {
+                record(node.getLineNo(), node);
+            } else if (isDeclaration(node.getType())) {
+                // The declared name, under the line the declaration starts on (its first annotation or modifier)
+                DetailAST id = node.findFirstToken(TokenTypes.IDENT);
+                if (id != null) record(node.getLineNo(), id);
+            }
+
+            if (node.getFirstChild() != null) {
+                node = node.getFirstChild();
+                continue;
+            }
+            while (node != root && node.getNextSibling() == null) node = node.getParent();
+            node = (node == root) ? null : node.getNextSibling();
+        }
+    }
+
+    private void record(int line, DetailAST ident) {
+        if (line < 1 || line >= identsByLine.length) return;
+        Map<String, DetailAST> idents = identsByLine[line];
+        if (idents == null) {
+            idents = new HashMap<>();
+            identsByLine[line] = idents;
+        }
+        idents.putIfAbsent(ident.getText(), ident);
+    }
+
+    private static boolean isDeclaration(int type) {
+        return type == TokenTypes.METHOD_DEF
+            || type == TokenTypes.CLASS_DEF
+            || type == TokenTypes.VARIABLE_DEF
+            || type == TokenTypes.PARAMETER_DEF;
+    }
+
+    private static boolean isWordChar(String text, int index) {
+        if (index < 0 || index >= text.length()) return false;
+        char c = text.charAt(index);
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+}
@@ -3,6 +3,8 @@ package com.checkstyleplus.utils;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.List;
 
 /**
  * Utility class for handling prompt-related operations.
@@ -10,18 +12,30 @@ import java.nio.charset.StandardCharsets;
  */
 public class PromptUtils {
 
+    private static final String NAMING_START = "JAVA STYLE GUIDELINES:";
+    private static final String DOCUMENTATION_START = "1- Documentation";
+    private static final String NAMING_SECTIONS_START = "2- Naming Conventions";
+    private static final String CODE_START = "JAVA CODE:";
+
+    private static volatile String template;
+    private static volatile String namingRules;
+
     /**
      * Load the prompt template text from resources.
      * This file should live in: src/main/resources/prompt-template.txt
+     * The template is read once and kept for the rest of the run.
      */
     public static String loadPromptTemplate() {
+        String t = template;
+        if (t != null) return t;
         try (InputStream is = PromptUtils.class.getClassLoader()
                 .getResourceAsStream("prompt-template.txt")) {
             if (is == null) {
                 System.err.println("PromptUtils: prompt-template.txt not found in classpath");
                 return "";
             }
-            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+            template = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+            return template;
         } catch (IOException e) {
             System.err.println("PromptUtils: failed to load prompt-template.txt");
             e.printStackTrace();
@@ -49,10 +63,123 @@ public class PromptUtils {
         return numbered.toString();
     }
 
+    /**
+     * Prepend the original line numbers to the selected lines only (1-based indexes in {@code included}).
+     * Skipped stretches are marked with "..." so the model knows the excerpt is not contiguous.
+     */
+    public static String addLineNumbers(List<String> lines, BitSet included) {
+        int width = String.valueOf(lines.size()).length();
+        StringBuilder numbered = new StringBuilder();
+        int previous = 0;
+        for (int n = included.nextSetBit(1); n > 0 && n <= lines.size(); n = included.nextSetBit(n + 1)) {
+            if (n > previous + 1) numbered.append("...\n");
+            numbered.append(String.format("%" + width + "d", n))
+                    .append('.')
+                    .append(lines.get(n - 1))
+                    .append('\n');
+            previous = n;
+        }
+        if (previous < lines.size()) numbered.append("...\n");
+        return numbered.toString();
+    }
+
     /**
      * Builds the final prompt by combining the template and the code with line numbers.
      */
     public static String buildPrompt(String sourceCode) {
-        return loadPromptTemplate() + "\n\nCode:\n" + addLineNumbers(sourceCode);
+        return wrapCode(addLineNumbers(sourceCode));
+    }
+
+    /**
+     * Builds a prompt that only shows the selected lines of the file, keeping their original numbers.
+     */
+    public static String buildPrompt(List<String> lines, BitSet included) {
+        return wrapCode(addLineNumbers(lines, included));
+    }
+
+    /**
+     * Combines the template with code that already carries its line numbers.
+     */
+    public static String wrapCode(String numberedCode) {
+        return loadPromptTemplate() + "\n\nCode:\n" + numberedCode;
+    }
+
+    /**
+     * Combines the template with the code, asking only about the given guideline sections.
+     */
+    public static String wrapCode(String numberedCode, String sections) {
+        if (sections == null) return wrapCode(numberedCode);
+        return loadPromptTemplate() + "\n\nFor this code, only report violations of sections " + sections
+            + "; the other sections are checked separately.\n\nCode:\n" + numberedCode;
+    }
+
+    /**
+     * Builds a prompt about identifier names alone, without the code around them or the template's other
+     * sections. Each name is listed as {@code n. <kind> <name>}, and the model reports n in place of a line number.
+     */
+    public static String buildNamesPrompt(List<String> kindsAndNames) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("TASK:\nThe identifiers below are listed one per line as \"n. <kind> <name>\". ")
+          .append("Judge each name only by its kind and spelling against the naming rules, sections 2.1.1 to 2.6.1. ")
+          .append("If no violation is found respond with one single space.\n\n")
+          .append("OUTPUT RULES:\nReport each violation on its own line as ")
+          .append("[ERROR](n) (section number) (how the name violates the rule and what it should be, ")
+          .append("with the exact name in single quotes), using the identifier's number n in place of a line number. ")
+          .append("Names that follow the rules but could be more descriptive, such as one-character names, ")
+          .append("are reported the same way with [WARNING] in place of [ERROR].\n\n")
+          .append(namingRules())
+          .append("\nIdentifiers:\n");
+        for (int i = 0; i < kindsAndNames.size(); i++) {
+            sb.append(i + 1).append(". ").append(kindsAndNames.get(i)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The naming part of the template: its rule on prefixes and suffixes and sections 2.1.1 to 2.6.1.
+     * The whole template if it is not laid out as expected.
+     */
+    private static String namingRules() {
+        String rules = namingRules;
+        if (rules != null) return rules;
+        String t = loadPromptTemplate();
+        int start = t.indexOf(NAMING_START);
+        int documentation = t.indexOf(DOCUMENTATION_START, Math.max(start, 0));
+        int sections = t.indexOf(NAMING_SECTIONS_START, Math.max(documentation, 0));
+        int end = t.indexOf(CODE_START, Math.max(sections, 0));
+        rules = (start < 0 || documentation < 0 || sections < 0 || end < 0)
+            ? t
+            : t.substring(start, documentation) + t.substring(sections, end);
+        namingRules = rules;
+        return rules;
+    }
+
+    /**
+     * Builds one prompt for several files. Each file keeps its own line numbers and the model is asked
+     * to put a {@code === FILE n ===} line before the findings of file n (see ReplyUtils.splitBatchReply).
+     */
+    public static String buildBatchPrompt(List<String> fileNames, List<String> numberedCodes) {
+        return buildBatchPrompt(fileNames, numberedCodes, null);
+    }
+
+    /**
+     * Builds one prompt for several files, asking only about the given guideline sections (null for all).
+     */
+    public static String buildBatchPrompt(List<String> fileNames, List<String> numberedCodes, String sections) {
+        StringBuilder sb = new StringBuilder(loadPromptTemplate());
+        if (sections != null) {
+            sb.append("\n\nFor this code, only report violations of sections ").append(sections)
+              .append("; the other sections are checked separately.");
+        }
+        sb.append("\n\nThe code below contains ").append(numberedCodes.size()).append(" separate files. ")
+          .append("Analyze each file on its own; line numbers restart in every file. ")
+          .append("Before the findings of each file, output a line \"=== FILE n ===\" with that file's number, ")
+          .append("even when the file has no findings.\n");
+        for (int i = 0; i < numberedCodes.size(); i++) {
+            sb.append("\n=== FILE ").append(i + 1).append(" (").append(fileNames.get(i)).append(") ===\n")
+              .append("Code:\n")
+              .append(numberedCodes.get(i));
+        }
+        return sb.toString();
     }
 }
@@ -0,0 +1,116 @@
+package com.checkstyleplus.utils;
+
+import com.checkstyleplus.utils.MemberSegments.Segment;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Splits the code of a file that is too large for one prompt into overlapping windows.
+ * Windows are cut at member boundaries (see {@link MemberSegments}); each one repeats the last member
+ * of the window before it and carries the headers of the declarations around its lines, so the model
+ * sees every member in context. A single member larger than the budget is sliced by lines.
+ */
+public class PromptWindows {
+
+    private static final int OVERLAP_LINES = 10;
+
+    /**
+     * @param included the lines the prompt covers, or null for the whole file
+     * @param budget   the estimated tokens of numbered code one window may hold
+     * @return the lines (1-based) of each window
+     */
+    public static List<BitSet> split(DetailAST root, List<String> lines, BitSet included, int budget) {
+        int width = String.valueOf(lines.size()).length();
+        List<BitSet> windows = new ArrayList<>();
+        BitSet current = new BitSet();
+        int tokens = 0;
+        BitSet previous = null;
+        int previousTokens = 0;
+
+        for (Segment segment : MemberSegments.split(root, lines)) {
+            BitSet range = new BitSet();
+            range.set(segment.startLine(), segment.endLine() + 1);
+            if (included != null) range.and(included);
+            if (range.isEmpty()) continue;
+            int cost = cost(lines, range, width);
+
+            if (cost > budget) {
+                if (!current.isEmpty()) windows.add(current);
+                windows.addAll(slice(lines, range, width, budget));
+                current = new BitSet();
+                tokens = 0;
+                previous = null;
+                continue;
+            }
+            if (tokens + cost > budget && !current.isEmpty()) {
+                windows.add(current);
+                current = new BitSet();
+                tokens = 0;
+                if (previous != null && previousTokens + cost <= budget) {
+                    current.or(previous);
+                    tokens = previousTokens;
+                }
+            }
+            current.or(range);
+            tokens += cost;
+            previous = range;
+            previousTokens = cost;
+        }
+        if (!current.isEmpty()) windows.add(current);
+
+        for (BitSet window : windows) {
+            window.or(AstUtils.enclosingDeclarationLines(root, window));
+        }
+        return windows;
+    }
+
+    /**
+     * Cut an oversized range into budget-sized runs of lines, each repeating the end of the one before.
+     */
+    private static List<BitSet> slice(List<String> lines, BitSet range, int width, int budget) {
+        List<BitSet> slices = new ArrayList<>();
+        List<Integer> taken = new ArrayList<>();
+        int chars = 0;
+        for (int n = range.nextSetBit(1); n > 0 && n <= lines.size(); n = range.nextSetBit(n + 1)) {
+            int lineChars = lines.get(n - 1).length() + width + 2;
+            if (!taken.isEmpty() && TokenEstimator.estimate(chars + lineChars) > budget) {
+                slices.add(toBitSet(taken));
+                List<Integer> overlap = new ArrayList<>(taken.subList(Math.max(0, taken.size() - OVERLAP_LINES),
+                    taken.size()));
+                int overlapChars = 0;
+                for (int m : overlap) overlapChars += lines.get(m - 1).length() + width + 2;
+                // Very long lines: no overlap rather than windows made of little else
+                if (TokenEstimator.estimate(overlapChars + lineChars) > budget / 2) {
+                    overlap.clear();
+                    overlapChars = 0;
+                }
+                taken = overlap;
+                chars = overlapChars;
+            }
+            taken.add(n);
+            chars += lineChars;
+        }
+        if (!taken.isEmpty()) slices.add(toBitSet(taken));
+        return slices;
+    }
+
+    private static BitSet toBitSet(List<Integer> lineNumbers) {
+        BitSet set = new BitSet();
+        for (int n : lineNumbers) set.set(n);
+        return set;
+    }
+
+    /**
+     * Estimated tokens of the lines once numbered as in {@link PromptUtils#addLineNumbers(List, BitSet)}.
+     */
+    private static int cost(List<String> lines, BitSet range, int width) {
+        int chars = 0;
+        for (int n = range.nextSetBit(1); n > 0 && n <= lines.size(); n = range.nextSetBit(n + 1)) {
+            chars += lines.get(n - 1).length() + width + 2;
+        }
+        return TokenEstimator.estimate(chars);
+    }
+}
@@ -0,0 +1,96 @@
+package com.checkstyleplus.utils;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class for working with raw LLM replies line by line.
+ * Each reported violation is one line whose first parenthesised number is its source line,
+ * or, in structured-output mode, one JSON object with a {@code line} field (see {@link StructuredReply}).
+ */
+public class ReplyUtils {
+
+    private static final Pattern FIRST_PARENS_NUMBER = Pattern.compile("\\((\\d+)\\)");
+    private static final Pattern QUOTED_TOKEN = Pattern.compile("'([^']+)'");
+    private static final Pattern BATCH_FILE_HEADER = Pattern.compile("^=+\\s*FILE\\s+(\\d+)\\b.*$");
+
+    /**
+     * The source line a reply line refers to, or null if it carries none.
+     */
+    public static Integer lineNumberOf(String replyLine) {
+        if (StructuredReply.isFinding(replyLine)) return StructuredReply.lineOf(replyLine);
+        Matcher m = FIRST_PARENS_NUMBER.matcher(replyLine);
+        return m.find() ? Integer.valueOf(m.group(1)) : null;
+    }
+
+    /**
+     * Rewrite the source line a reply line refers to.
+     */
+    public static String withLineNumber(String replyLine, int newLine) {
+        if (StructuredReply.isFinding(replyLine)) return StructuredReply.withLineNumber(replyLine, newLine);
+        Matcher m = FIRST_PARENS_NUMBER.matcher(replyLine);
+        if (!m.find()) return replyLine;
+        return replyLine.substring(0, m.start(1)) + newLine + replyLine.substring(m.end(1));
+    }
+
+    /**
+     * Join the replies to overlapping windows of one file, keeping one finding per line and identifier
+     * (the first quoted token), so code shown in two windows is not reported twice.
+     */
+    public static String mergeReplies(List<String> replies) {
+        Set<String> seen = new LinkedHashSet<>();
+        StringBuilder merged = new StringBuilder();
+        for (String reply : replies) {
+            for (String line : reply.split("\\R")) {
+                if (line.isBlank()) continue;
+                String key = findingKey(line);
+                if (seen.add(key)) merged.append(line.trim()).append('\n');
+            }
+        }
+        return merged.toString();
+    }
+
+    /**
+     * The line number and identifier of a finding, or the whole line when it lacks either.
+     */
+    private static String findingKey(String line) {
+        if (StructuredReply.isFinding(line)) {
+            StructuredReply.Finding finding = StructuredReply.parse(line);
+            if (finding != null && finding.line() != null && finding.identifier() != null) {
+                return finding.line() + " " + finding.identifier();
+            }
+            return line.trim();
+        }
+        Integer n = lineNumberOf(line);
+        Matcher quoted = QUOTED_TOKEN.matcher(line);
+        return (n != null && quoted.find()) ? n + " " + quoted.group(1) : line.trim();
+    }
+
+    /**
+     * Split the reply to a batch prompt into one reply per file, using the {@code === FILE n ===} markers.
+     * Lines before the first marker, or under an unknown file number, are dropped.
+     * Files the model did not answer for get null.
+     */
+    public static String[] splitBatchReply(String reply, int fileCount) {
+        StringBuilder[] parts = new StringBuilder[fileCount];
+
+        int current = -1;
+        for (String line : reply.split("\\R")) {
+            Matcher m = BATCH_FILE_HEADER.matcher(line.trim());
+            if (m.matches()) {
+                int n = Integer.parseInt(m.group(1));
+                current = (n >= 1 && n <= fileCount) ? n - 1 : -1;
+                if (current >= 0 && parts[current] == null) parts[current] = new StringBuilder();
+            } else if (current >= 0 && !line.isBlank()) {
+                parts[current].append(line).append('\n');
+            }
+        }
+
+        String[] replies = new String[fileCount];
+        for (int i = 0; i < fileCount; i++) replies[i] = (parts[i] != null) ? parts[i].toString() : null;
+        return replies;
+    }
+}
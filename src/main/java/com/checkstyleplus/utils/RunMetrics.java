@@ -0,0 +1,355 @@
+package com.checkstyleplus.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records where the time and the tokens of a run go, per file checked by LlmStyleCheck:
+ * the time spent in each {@link Phase}, whether the file was answered without a model call,
+ * and the prompt and completion tokens the provider reported in its {@code usage} fields.
+ * A file's network time is how long it waited for its reply, including time queued behind the
+ * concurrency and rate limits; the run's request latency is the time on the wire alone, so the two
+ * apart show whether more concurrency would help.
+ * <p>
+ * The adapters report usage per prompt, on whatever thread sent it; a file takes the usage
+ * of its own prompts when it is checked (see {@link #claimUsage}). Usage no file claimed
+ * (e.g. name verdict prompts, or the losing call of a hedged request) only counts in the run totals.
+ * Every request sent and an estimate of the tokens replies did not report are kept apart for the run's budget.
+ * At the end of a run {@link #write(Path)} stores a JSON summary and a Prometheus text file.
+ */
+public class RunMetrics {
+
+    /**
+     * The steps of checking one file.
+     */
+    public enum Phase {
+        READ("read"),
+        PROMPT("prompt"),
+        CACHE("cache"),
+        NETWORK("network"),
+        RESPONSE("response");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    /**
+     * What was recorded for one file.
+     */
+    private static final class FileMetrics {
+        private final long[] nanos = new long[Phase.values().length];
+        private boolean cacheHit;
+        private long promptTokens;
+        private long completionTokens;
+        private boolean budgetSkipped;
+    }
+
+    public static final String JSON_FILE = "metrics.json";
+    public static final String PROMETHEUS_FILE = "metrics.prom";
+
+    private static final Map<String, FileMetrics> FILES = new ConcurrentHashMap<>();
+    private static final Map<String, long[]> USAGE_BY_PROMPT = new ConcurrentHashMap<>();
+    private static final List<Long> REQUEST_NANOS = Collections.synchronizedList(new ArrayList<>());
+    private static final AtomicLong REQUESTS = new AtomicLong();
+    private static final AtomicLong PROMPT_TOKENS = new AtomicLong();
+    private static final AtomicLong COMPLETION_TOKENS = new AtomicLong();
+    private static final AtomicLong REQUESTS_SENT = new AtomicLong();
+    private static final AtomicLong UNREPORTED_PROMPT_TOKENS = new AtomicLong();
+    private static final AtomicLong UNREPORTED_COMPLETION_TOKENS = new AtomicLong();
+    private static volatile long runStart = System.nanoTime();
+
+    /**
+     * Forget everything recorded so far; called when a run starts.
+     */
+    public static void reset() {
+        FILES.clear();
+        USAGE_BY_PROMPT.clear();
+        REQUEST_NANOS.clear();
+        REQUESTS.set(0);
+        PROMPT_TOKENS.set(0);
+        COMPLETION_TOKENS.set(0);
+        REQUESTS_SENT.set(0);
+        UNREPORTED_PROMPT_TOKENS.set(0);
+        UNREPORTED_COMPLETION_TOKENS.set(0);
+        runStart = System.nanoTime();
+    }
+
+    /**
+     * Add the time from {@code startNanos} (a {@link System#nanoTime()} value) until now to a phase of the file.
+     */
+    public static void add(String file, Phase phase, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        FileMetrics metrics = FILES.computeIfAbsent(file, f -> new FileMetrics());
+        synchronized (metrics) {
+            metrics.nanos[phase.ordinal()] += elapsed;
+        }
+    }
+
+    /**
+     * Record whether the file's findings came without a model call (from the cache, or nothing to ask).
+     */
+    public static void cacheHit(String file, boolean hit) {
+        FileMetrics metrics = FILES.computeIfAbsent(file, f -> new FileMetrics());
+        synchronized (metrics) {
+            metrics.cacheHit = hit;
+        }
+    }
+
+    /**
+     * Record one answered request, how long it took from sending to the end of the reply,
+     * and the tokens the provider reported for it.
+     */
+    public static void recordCall(String prompt, long latencyNanos, long promptTokens, long completionTokens) {
+        REQUESTS.incrementAndGet();
+        REQUEST_NANOS.add(latencyNanos);
+        PROMPT_TOKENS.addAndGet(promptTokens);
+        COMPLETION_TOKENS.addAndGet(completionTokens);
+        USAGE_BY_PROMPT.merge(prompt, new long[]{promptTokens, completionTokens}, RunMetrics::sum);
+    }
+
+    /**
+     * Count one request the provider took, answered or not: hedged and fallback calls included.
+     */
+    public static void requestSent() {
+        REQUESTS_SENT.incrementAndGet();
+    }
+
+    /**
+     * Record the estimated tokens of an answered request that its reply did not report.
+     */
+    public static void recordUnreported(long promptTokens, long completionTokens) {
+        UNREPORTED_PROMPT_TOKENS.addAndGet(promptTokens);
+        UNREPORTED_COMPLETION_TOKENS.addAndGet(completionTokens);
+    }
+
+    /**
+     * Hand the usage of a batch prompt over to the prompts of the files in it, in proportion to their weights
+     * (e.g. their code tokens), so each file can claim its share.
+     */
+    public static void splitUsage(String batchPrompt, List<String> prompts, List<Integer> weights) {
+        long[] usage = USAGE_BY_PROMPT.remove(batchPrompt);
+        if (usage == null || prompts.isEmpty()) return;
+        long total = Math.max(1, weights.stream().mapToLong(Integer::longValue).sum());
+        long[] left = usage.clone();
+        for (int i = 0; i < prompts.size(); i++) {
+            long[] share = (i == prompts.size() - 1)
+                ? left.clone()
+                : new long[]{usage[0] * weights.get(i) / total, usage[1] * weights.get(i) / total};
+            left[0] -= share[0];
+            left[1] -= share[1];
+            USAGE_BY_PROMPT.merge(prompts.get(i), share, RunMetrics::sum);
+        }
+    }
+
+    /**
+     * Count the usage recorded for the given prompts as the file's own.
+     */
+    public static void claimUsage(String file, List<String> prompts) {
+        FileMetrics metrics = FILES.computeIfAbsent(file, f -> new FileMetrics());
+        for (String prompt : prompts) {
+            long[] usage = USAGE_BY_PROMPT.remove(prompt);
+            if (usage == null) continue;
+            synchronized (metrics) {
+                metrics.promptTokens += usage[0];
+                metrics.completionTokens += usage[1];
+            }
+        }
+    }
+
+    /**
+     * Record that the file got no LLM findings because the run's budget was spent.
+     */
+    public static void skippedByBudget(String file) {
+        FileMetrics metrics = FILES.computeIfAbsent(file, f -> new FileMetrics());
+        synchronized (metrics) {
+            metrics.budgetSkipped = true;
+        }
+    }
+
+    public static long requests() {
+        return REQUESTS.get();
+    }
+
+    public static long promptTokens() {
+        return PROMPT_TOKENS.get();
+    }
+
+    public static long completionTokens() {
+        return COMPLETION_TOKENS.get();
+    }
+
+    public static long requestsSent() {
+        return REQUESTS_SENT.get();
+    }
+
+    public static long unreportedPromptTokens() {
+        return UNREPORTED_PROMPT_TOKENS.get();
+    }
+
+    public static long unreportedCompletionTokens() {
+        return UNREPORTED_COMPLETION_TOKENS.get();
+    }
+
+    /**
+     * Write {@value #JSON_FILE} and {@value #PROMETHEUS_FILE} for the run so far into {@code dir}.
+     */
+    public static void write(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Map<String, FileMetrics> files = new TreeMap<>(FILES);
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("run", runSummary(files));
+        List<Map<String, Object>> perFile = new ArrayList<>();
+        for (Map.Entry<String, FileMetrics> entry : files.entrySet()) {
+            FileMetrics m = entry.getValue();
+            Map<String, Object> file = new LinkedHashMap<>();
+            file.put("file", entry.getKey());
+            synchronized (m) {
+                for (Phase phase : Phase.values()) file.put(phase.label() + "Ms", millis(m.nanos[phase.ordinal()]));
+                file.put("cacheHit", m.cacheHit);
+                file.put("promptTokens", m.promptTokens);
+                file.put("completionTokens", m.completionTokens);
+                file.put("budgetSkipped", m.budgetSkipped);
+            }
+            perFile.add(file);
+        }
+        json.put("files", perFile);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(dir.resolve(JSON_FILE).toFile(), json);
+
+        Files.writeString(dir.resolve(PROMETHEUS_FILE), prometheus(files));
+    }
+
+    private static Map<String, Object> runSummary(Map<String, FileMetrics> files) {
+        long hits = files.values().stream().filter(m -> m.cacheHit).count();
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("wallSeconds", seconds(System.nanoTime() - runStart));
+        run.put("files", files.size());
+        run.put("cacheHits", hits);
+        run.put("cacheHitRatio", files.isEmpty() ? 0.0 : (double) hits / files.size());
+        run.put("requests", REQUESTS.get());
+        run.put("requestsSent", REQUESTS_SENT.get());
+        run.put("promptTokens", PROMPT_TOKENS.get());
+        run.put("completionTokens", COMPLETION_TOKENS.get());
+        run.put("budgetSkippedFiles", files.values().stream().filter(m -> m.budgetSkipped).count());
+        run.put("requestLatency", stats(requestNanos()));
+
+        Map<String, Object> phases = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) phases.put(phase.label(), stats(sortedNanos(files, phase)));
+        run.put("phases", phases);
+        return run;
+    }
+
+    private static Map<String, Object> stats(long[] sorted) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalMs", millis(Arrays.stream(sorted).sum()));
+        stats.put("p50Ms", millis(percentile(sorted, 50)));
+        stats.put("p90Ms", millis(percentile(sorted, 90)));
+        stats.put("p99Ms", millis(percentile(sorted, 99)));
+        stats.put("maxMs", millis(sorted.length > 0 ? sorted[sorted.length - 1] : 0));
+        return stats;
+    }
+
+    private static String prometheus(Map<String, FileMetrics> files) {
+        long hits = files.values().stream().filter(m -> m.cacheHit).count();
+        StringBuilder sb = new StringBuilder();
+        gauge(sb, "checkstyleplus_run_seconds", "Wall-clock time of the run.",
+            seconds(System.nanoTime() - runStart));
+        gauge(sb, "checkstyleplus_files", "Files checked by LlmStyleCheck.", files.size());
+        gauge(sb, "checkstyleplus_cache_hits", "Files answered without a model call.", hits);
+        gauge(sb, "checkstyleplus_cache_hit_ratio", "Share of files answered without a model call.",
+            files.isEmpty() ? 0.0 : (double) hits / files.size());
+        gauge(sb, "checkstyleplus_llm_requests", "Answered requests to the model.", REQUESTS.get());
+        gauge(sb, "checkstyleplus_llm_requests_sent", "Requests sent to the model, answered or not.",
+            REQUESTS_SENT.get());
+        gauge(sb, "checkstyleplus_budget_skipped_files", "Files left without LLM findings by the run budget.",
+            files.values().stream().filter(m -> m.budgetSkipped).count());
+
+        sb.append("# HELP checkstyleplus_llm_tokens Tokens reported by the provider.\n")
+          .append("# TYPE checkstyleplus_llm_tokens gauge\n")
+          .append("checkstyleplus_llm_tokens{kind=\"prompt\"} ").append(PROMPT_TOKENS.get()).append('\n')
+          .append("checkstyleplus_llm_tokens{kind=\"completion\"} ").append(COMPLETION_TOKENS.get()).append('\n');
+
+        sb.append("# HELP checkstyleplus_llm_request_seconds Time from sending a request to the end of its reply.\n")
+          .append("# TYPE checkstyleplus_llm_request_seconds summary\n");
+        summary(sb, "checkstyleplus_llm_request_seconds", "", requestNanos());
+
+        sb.append("# HELP checkstyleplus_file_phase_seconds Time per file spent in each phase.\n")
+          .append("# TYPE checkstyleplus_file_phase_seconds summary\n");
+        for (Phase phase : Phase.values()) {
+            summary(sb, "checkstyleplus_file_phase_seconds", "phase=\"" + phase.label() + "\"",
+                sortedNanos(files, phase));
+        }
+        return sb.toString();
+    }
+
+    private static void summary(StringBuilder sb, String name, String labels, long[] sorted) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        for (int q : new int[]{50, 90, 99}) {
+            sb.append(name).append('{').append(prefix).append("quantile=\"0.").append(q).append("\"} ")
+              .append(seconds(percentile(sorted, q))).append('\n');
+        }
+        String suffix = labels.isEmpty() ? " " : "{" + labels + "} ";
+        sb.append(name).append("_sum").append(suffix).append(seconds(Arrays.stream(sorted).sum())).append('\n')
+          .append(name).append("_count").append(suffix).append(sorted.length).append('\n');
+    }
+
+    private static void gauge(StringBuilder sb, String name, String help, Number value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n')
+          .append("# TYPE ").append(name).append(" gauge\n")
+          .append(name).append(' ').append(value).append('\n');
+    }
+
+    private static long[] requestNanos() {
+        long[] nanos;
+        synchronized (REQUEST_NANOS) {
+            nanos = REQUEST_NANOS.stream().mapToLong(Long::longValue).toArray();
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static long[] sortedNanos(Map<String, FileMetrics> files, Phase phase) {
+        long[] nanos = new long[files.size()];
+        int i = 0;
+        for (FileMetrics m : files.values()) {
+            synchronized (m) {
+                nanos[i++] = m.nanos[phase.ordinal()];
+            }
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private static long[] sum(long[] a, long[] b) {
+        return new long[]{a[0] + b[0], a[1] + b[1]};
+    }
+}
@@ -0,0 +1,125 @@
+package com.checkstyleplus.utils;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Selects the lines of a file the nine guidelines can be about: type, method and constructor headers,
+ * field, parameter, local variable and type parameter declarations, and the comments outside method
+ * bodies (of a block comment only its start, which holds the Javadoc summary, and its end).
+ * Statement-only lines and comments inside method bodies are left out. Sent with
+ * {@link PromptUtils#addLineNumbers(List, BitSet)}, the lines keep their original numbers.
+ */
+public class SourceSkeleton {
+
+    /**
+     * The 1-based numbers of the lines to keep.
+     */
+    public static BitSet lines(DetailAST root, List<String> lines) {
+        BitSet kept = new BitSet();
+        if (lines.isEmpty()) return kept;
+        kept.set(1); // the package line or the file header
+        BitSet bodies = new BitSet();
+        collectDeclarations(root, kept, bodies);
+        markComments(lines, bodies, kept);
+        kept.clear(lines.size() + 1, Integer.MAX_VALUE);
+        return kept;
+    }
+
+    private static void collectDeclarations(DetailAST node, BitSet kept, BitSet bodies) {
+        for (DetailAST c = node; c != null; c = c.getNextSibling()) {
+            switch (c.getType()) {
+                case TokenTypes.PACKAGE_DEF:
+                case TokenTypes.CLASS_DEF:
+                case TokenTypes.INTERFACE_DEF:
+                case TokenTypes.ENUM_DEF:
+                case TokenTypes.RECORD_DEF:
+                case TokenTypes.ANNOTATION_DEF:
+                    keepHeader(c, kept);
+                    break;
+                case TokenTypes.METHOD_DEF:
+                case TokenTypes.CTOR_DEF:
+                case TokenTypes.COMPACT_CTOR_DEF:
+                    keepHeader(c, kept);
+                    markBody(c, bodies);
+                    break;
+                case TokenTypes.VARIABLE_DEF:
+                case TokenTypes.PARAMETER_DEF:
+                case TokenTypes.RECORD_COMPONENT_DEF:
+                case TokenTypes.PATTERN_VARIABLE_DEF:
+                case TokenTypes.TYPE_PARAMETER:
+                case TokenTypes.ENUM_CONSTANT_DEF:
+                    keepUpToName(c, kept);
+                    break;
+                default:
+                    break;
+            }
+            if (c.getFirstChild() != null) collectDeclarations(c.getFirstChild(), kept, bodies);
+        }
+    }
+
+    /**
+     * The lines strictly between a method's braces.
+     */
+    private static void markBody(DetailAST method, BitSet bodies) {
+        DetailAST body = method.findFirstToken(TokenTypes.SLIST);
+        if (body == null) return;
+        int end = AstUtils.lastLineOf(body);
+        if (end > body.getLineNo() + 1) bodies.set(body.getLineNo() + 1, end);
+    }
+
+    /**
+     * From the first modifier or annotation to the opening brace, and the closing brace of types.
+     */
+    private static void keepHeader(DetailAST declaration, BitSet kept) {
+        DetailAST body = declaration.findFirstToken(TokenTypes.OBJBLOCK);
+        boolean isType = body != null;
+        if (body == null) body = declaration.findFirstToken(TokenTypes.SLIST);
+        int end = (body != null) ? body.getLineNo() : AstUtils.lastLineOf(declaration);
+        kept.set(declaration.getLineNo(), end + 1);
+        if (isType) kept.set(AstUtils.lastLineOf(declaration));
+    }
+
+    /**
+     * From the start of the declaration to the line of its name, leaving out long initializers.
+     */
+    private static void keepUpToName(DetailAST declaration, BitSet kept) {
+        DetailAST ident = declaration.findFirstToken(TokenTypes.IDENT);
+        int end = (ident != null) ? ident.getLineNo() : declaration.getLineNo();
+        kept.set(declaration.getLineNo(), Math.max(end, declaration.getLineNo()) + 1);
+    }
+
+    /**
+     * Line comments, and the first two and the last line of block comments, outside method bodies
+     * (a cheap scan, not a full lexer: a "//" inside a string only costs an extra line).
+     */
+    private static void markComments(List<String> lines, BitSet bodies, BitSet kept) {
+        int blockStart = -1;
+        for (int n = 1; n <= lines.size(); n++) {
+            String line = lines.get(n - 1);
+            if (blockStart > 0) {
+                if (line.contains("*/")) {
+                    if (!bodies.get(blockStart)) kept.set(n);
+                    blockStart = -1;
+                } else if (n == blockStart + 1 && !bodies.get(blockStart)) {
+                    kept.set(n);
+                }
+                continue;
+            }
+            if (bodies.get(n)) {
+                if (line.contains("/*") && !line.substring(line.indexOf("/*") + 2).contains("*/")) blockStart = n;
+                continue;
+            }
+            int block = line.indexOf("/*");
+            if (block >= 0) {
+                kept.set(n);
+                if (!line.substring(block + 2).contains("*/")) blockStart = n;
+            } else if (line.contains("//")) {
+                kept.set(n);
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.checkstyleplus.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replies in structured-output mode: the model answers with a JSON document
+ * {@code {"violations": [{"file", "line", "section", "identifier", "severity", "suggestion"}, ...]}}
+ * constrained by {@link #schema(boolean)}. The document is read in one pass with Jackson's streaming parser
+ * and turned into one compact JSON object per finding and line, so the rest of the reply handling
+ * (caching, line remapping, batches, windows) keeps working line by line (see {@link ReplyUtils}).
+ * Each object leads with its {@code line} field, which {@link #lineOf} and {@link #withLineNumber} read
+ * and rewrite in place, so that handling does not parse a finding again for its line number.
+ */
+public class StructuredReply {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final String LINE_FIELD = "{\"line\":";
+    /** Longer line numbers are left to the parser rather than overflowing an int. */
+    private static final int MAX_LINE_DIGITS = 9;
+
+    /**
+     * Appended to every prompt in structured-output mode; replaces the text format of the output rules.
+     */
+    public static final String INSTRUCTIONS = "\n\nIgnore the text format of the OUTPUT RULES and answer with JSON only: "
+        + "an object whose \"violations\" array holds one entry per violation with \"line\" (the line number, "
+        + "or the identifier's number n when identifiers are listed instead of code), \"section\" (the guideline "
+        + "section number, e.g. \"2.2.1\"), \"identifier\" (only the exact offending token), \"severity\" "
+        + "(\"error\" or \"warning\", following the same rules), \"suggestion\" (one sentence: how the token "
+        + "violates the guideline and what it should be) and \"file\" (the file's number n when several files "
+        + "are given, otherwise 1). If no violation is found, answer with an empty \"violations\" array.";
+
+    /**
+     * One reported violation.
+     *
+     * @param file the file's number in a batch prompt, 0 when absent
+     * @param line the source line (or identifier number), null when absent
+     */
+    public record Finding(int file, Integer line, String section, String identifier, String severity,
+                          String suggestion) {
+
+        public boolean isWarning() {
+            return "warning".equalsIgnoreCase(severity) || "warn".equalsIgnoreCase(severity);
+        }
+
+        Finding withLine(int newLine) {
+            return new Finding(file, newLine, section, identifier, severity, suggestion);
+        }
+
+        Finding withoutFile() {
+            return new Finding(0, line, section, identifier, severity, suggestion);
+        }
+
+        /**
+         * The finding as one line of compact JSON, its line number first.
+         */
+        public String toLine() {
+            StringWriter out = new StringWriter();
+            try (JsonGenerator g = JSON.createGenerator(out)) {
+                g.writeStartObject();
+                if (line != null) g.writeNumberField("line", line);
+                if (file > 0) g.writeNumberField("file", file);
+                if (section != null) g.writeStringField("section", section);
+                if (identifier != null) g.writeStringField("identifier", identifier);
+                if (severity != null) g.writeStringField("severity", severity);
+                if (suggestion != null) g.writeStringField("suggestion", suggestion);
+                g.writeEndObject();
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // writing to a StringWriter
+            }
+            return out.toString();
+        }
+    }
+
+    /**
+     * The JSON schema of the reply.
+     *
+     * @param closed whether objects declare {@code additionalProperties: false} (required by strict modes,
+     *               rejected by Gemini's schema dialect)
+     */
+    public static Map<String, Object> schema(boolean closed) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("file", Map.of("type", "integer"));
+        properties.put("line", Map.of("type", "integer"));
+        properties.put("section", Map.of("type", "string"));
+        properties.put("identifier", Map.of("type", "string"));
+        properties.put("severity", Map.of("type", "string", "enum", List.of("error", "warning")));
+        properties.put("suggestion", Map.of("type", "string"));
+
+        Map<String, Object> violation = new LinkedHashMap<>();
+        violation.put("type", "object");
+        violation.put("properties", properties);
+        violation.put("required", List.copyOf(properties.keySet()));
+        if (closed) violation.put("additionalProperties", false);
+
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("type", "object");
+        root.put("properties", Map.of("violations", Map.of("type", "array", "items", violation)));
+        root.put("required", List.of("violations"));
+        if (closed) root.put("additionalProperties", false);
+        return root;
+    }
+
+    /**
+     * Whether a reply line is a structured finding rather than a line of text.
+     */
+    public static boolean isFinding(String replyLine) {
+        for (int i = 0; i < replyLine.length(); i++) {
+            char c = replyLine.charAt(i);
+            if (!Character.isWhitespace(c)) return c == '{';
+        }
+        return false;
+    }
+
+    /**
+     * Turn the model's JSON document into one finding line per violation, or a single space when there are none.
+     *
+     * @throws IOException if the reply is not such a document
+     */
+    public static String toLines(String document) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        try (JsonParser p = JSON.createParser(document)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) throw new IOException("structured reply is not a JSON object");
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                if (!field.equals("violations") || value != JsonToken.START_ARRAY) {
+                    p.skipChildren();
+                    continue;
+                }
+                for (JsonToken item = p.nextToken(); item != JsonToken.END_ARRAY; item = p.nextToken()) {
+                    if (item == null) throw new IOException("structured reply ends inside \"violations\"");
+                    if (item == JsonToken.START_OBJECT) {
+                        lines.append(readFinding(p).toLine()).append('\n');
+                    } else {
+                        p.skipChildren();
+                    }
+                }
+            }
+        }
+        return lines.isEmpty() ? " " : lines.toString();
+    }
+
+    /**
+     * Parse one finding line, or null if it is not one.
+     */
+    public static Finding parse(String replyLine) {
+        try (JsonParser p = JSON.createParser(replyLine)) {
+            return (p.nextToken() == JsonToken.START_OBJECT) ? readFinding(p) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The line number of a finding line, or null if it has none.
+     */
+    public static Integer lineOf(String replyLine) {
+        int end = lineDigitsEnd(replyLine);
+        if (end > 0) return Integer.valueOf(replyLine.substring(LINE_FIELD.length(), end));
+        Finding finding = parse(replyLine);
+        return (finding != null) ? finding.line() : null;
+    }
+
+    /**
+     * The finding line with another line number.
+     */
+    public static String withLineNumber(String replyLine, int newLine) {
+        int end = lineDigitsEnd(replyLine);
+        if (end > 0) return LINE_FIELD + newLine + replyLine.substring(end);
+        Finding finding = parse(replyLine);
+        return (finding != null) ? finding.withLine(newLine).toLine() : replyLine;
+    }
+
+    /**
+     * Split the finding lines of a batch reply per file number. Every file gets a reply, empty when the model
+     * reported nothing in it, since a structured reply always covers the whole batch.
+     */
+    public static String[] splitBatchReply(String reply, int fileCount) {
+        StringBuilder[] parts = new StringBuilder[fileCount];
+        for (int i = 0; i < fileCount; i++) parts[i] = new StringBuilder();
+        for (String line : reply.split("\\R")) {
+            Finding finding = isFinding(line) ? parse(line) : null;
+            if (finding == null || finding.file() < 1 || finding.file() > fileCount) continue;
+            parts[finding.file() - 1].append(finding.withoutFile().toLine()).append('\n');
+        }
+        String[] replies = new String[fileCount];
+        for (int i = 0; i < fileCount; i++) replies[i] = parts[i].toString();
+        return replies;
+    }
+
+    /**
+     * Where the digits of the leading {@code line} field end, as {@link Finding#toLine} writes it,
+     * or -1 when the line does not start that way.
+     */
+    private static int lineDigitsEnd(String replyLine) {
+        if (!replyLine.startsWith(LINE_FIELD)) return -1;
+        int start = LINE_FIELD.length();
+        int end = start;
+        while (end < replyLine.length() && end - start <= MAX_LINE_DIGITS
+                && replyLine.charAt(end) >= '0' && replyLine.charAt(end) <= '9') {
+            end++;
+        }
+        if (end == start || end - start > MAX_LINE_DIGITS || end == replyLine.length()) return -1;
+        char next = replyLine.charAt(end);
+        return (next == ',' || next == '}') ? end : -1;
+    }
+
+    /**
+     * Read the fields of the object the parser is at, up to its end.
+     */
+    private static Finding readFinding(JsonParser p) throws IOException {
+        int file = 0;
+        Integer line = null;
+        String section = null;
+        String identifier = null;
+        String severity = null;
+        String suggestion = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            if (value.isStructStart()) {
+                p.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "file" -> file = p.getValueAsInt(0);
+                case "line" -> line = (value == JsonToken.VALUE_NULL) ? null : p.getValueAsInt(0);
+                case "section" -> section = p.getValueAsString();
+                case "identifier" -> identifier = p.getValueAsString();
+                case "severity" -> severity = p.getValueAsString();
+                case "suggestion" -> suggestion = p.getValueAsString();
+                default -> p.skipChildren();
+            }
+        }
+        return new Finding(file, line, section, identifier, severity, suggestion);
+    }
+}
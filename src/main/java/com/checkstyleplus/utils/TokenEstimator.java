@@ -0,0 +1,22 @@
+package com.checkstyleplus.utils;
+
+/**
+ * Cheap local estimate of how many tokens a text costs, without calling the provider's tokenizer.
+ * Source code averages roughly four characters per token for current BPE tokenizers.
+ */
+public class TokenEstimator {
+
+    private static final double CHARS_PER_TOKEN = 4.0;
+
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) return 0;
+        return estimate(text.length());
+    }
+
+    /**
+     * The estimate for a text of the given length.
+     */
+    public static int estimate(int chars) {
+        return (int) Math.ceil(chars / CHARS_PER_TOKEN);
+    }
+}
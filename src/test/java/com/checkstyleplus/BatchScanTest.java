@@ -0,0 +1,33 @@
+package com.checkstyleplus;
+
+import org.junit.jupiter.api.Test;
+
+import static com.checkstyleplus.BatchScan.MAX_JOB_BYTES;
+import static com.checkstyleplus.BatchScan.MAX_JOB_REQUESTS;
+import static com.checkstyleplus.BatchScan.fitsInJob;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchScanTest {
+
+    @Test
+    void jobIsSplitByRequestCount() {
+        assertTrue(fitsInJob(MAX_JOB_REQUESTS - 3, 1_000, 3, 100));
+        assertFalse(fitsInJob(MAX_JOB_REQUESTS - 3, 1_000, 4, 100));
+        assertFalse(fitsInJob(MAX_JOB_REQUESTS, 1_000, 1, 1));
+    }
+
+    @Test
+    void jobIsSplitByPromptBytes() {
+        assertTrue(fitsInJob(10, MAX_JOB_BYTES - 500, 2, 500));
+        assertFalse(fitsInJob(10, MAX_JOB_BYTES - 500, 2, 501));
+        assertFalse(fitsInJob(1, MAX_JOB_BYTES, 1, 1));
+    }
+
+    @Test
+    void fileOverTheLimitsGetsAJobToItself() {
+        assertTrue(fitsInJob(0, 0, MAX_JOB_REQUESTS + 1, MAX_JOB_BYTES + 1));
+        assertFalse(fitsInJob(1, 10, MAX_JOB_REQUESTS + 1, 10));
+        assertFalse(fitsInJob(1, 10, 1, MAX_JOB_BYTES + 1));
+    }
+}
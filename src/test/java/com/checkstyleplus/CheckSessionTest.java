@@ -0,0 +1,98 @@
+package com.checkstyleplus;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckSessionTest {
+
+    private static final String CONFIG = """
+        <?xml version="1.0"?>
+        <!DOCTYPE module PUBLIC
+                  "-//Checkstyle//DTD Checkstyle Configuration 1.3//EN"
+                  "https://checkstyle.org/dtds/configuration_1_3.dtd">
+        <module name="Checker">
+          <module name="BeforeExecutionExclusionFileFilter">
+            <property name="fileNamePattern" value="Skipped.*\\.java$"/>
+          </module>
+          <module name="TreeWalker">
+            <module name="MethodName"/>
+          </module>
+        </module>
+        """;
+
+    @TempDir
+    Path dir;
+
+    /**
+     * A class with {@code methods} badly named methods, so every file has its own errors.
+     */
+    private File javaFile(String className, int methods) throws Exception {
+        StringBuilder source = new StringBuilder("class " + className + " {\n");
+        for (int m = 0; m < methods; m++) source.append("    void Bad_").append(m).append("() { }\n");
+        source.append("}\n");
+        return Files.writeString(dir.resolve(className + ".java"), source).toFile();
+    }
+
+    private static String run(CheckSession session, List<File> files, int threads, int[] errors) throws Exception {
+        // Errors are printed to the err stream
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        errors[0] = session.check(files, threads, out, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void parallelRunReportsInFileOrder() throws Exception {
+        List<File> files = new ArrayList<>();
+        // The first files are the largest, so later shards finish their first file before shard 0 does
+        for (int i = 0; i < 12; i++) {
+            String name = (i % 5 == 3) ? "Skipped" + i : "Checked" + i;
+            files.add(javaFile(name, (12 - i) * 40));
+        }
+        files.add(files.get(1)); // listed twice
+
+        Path config = Files.writeString(dir.resolve("checkstyle.xml"), CONFIG);
+        try (CheckSession session = CheckSession.open(config)) {
+            int[] sequentialErrors = new int[1];
+            int[] parallelErrors = new int[1];
+            String sequential = run(session, files, 1, sequentialErrors);
+            String parallel = run(session, files, 4, parallelErrors);
+
+            assertEquals(sequential, parallel);
+            assertEquals(sequentialErrors[0], parallelErrors[0]);
+            assertTrue(sequentialErrors[0] > 0);
+        }
+    }
+
+    @Test
+    void errorsFollowTheFileList() throws Exception {
+        List<File> files = List.of(javaFile("Third", 1), javaFile("First", 30), javaFile("Second", 2));
+        Path config = Files.writeString(dir.resolve("checkstyle.xml"), CONFIG);
+        try (CheckSession session = CheckSession.open(config)) {
+            int[] errors = new int[1];
+            String output = run(session, files, 3, errors);
+
+            List<String> order = new ArrayList<>();
+            for (String line : output.split("\\R")) {
+                for (File f : files) {
+                    String name = f.getName();
+                    if (line.contains(name) && (order.isEmpty() || !order.get(order.size() - 1).equals(name))) {
+                        order.add(name);
+                    }
+                }
+            }
+            assertEquals(List.of("Third.java", "First.java", "Second.java"), order);
+            assertEquals(33, errors[0]);
+        }
+    }
+}
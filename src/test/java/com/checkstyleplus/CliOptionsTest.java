@@ -0,0 +1,70 @@
+package com.checkstyleplus;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CliOptionsTest {
+
+    @Test
+    void configFlagIsReadByCheckstylePlus() {
+        CliOptions options = CliOptions.parse(new String[]{"-c", "cfg/style.xml", "src"});
+        assertFalse(options.delegateToCheckstyle);
+        assertEquals(Paths.get("cfg/style.xml"), options.config);
+        assertEquals(List.of("src"), options.paths);
+
+        assertEquals(Paths.get("other.xml"), CliOptions.parse(new String[]{"--config", "other.xml"}).config);
+    }
+
+    @Test
+    void checkstyleOptionsAreDelegated() {
+        assertTrue(CliOptions.parse(new String[]{"-c", "style.xml", "-f", "xml", "src"}).delegateToCheckstyle);
+        assertTrue(CliOptions.parse(new String[]{"-E", "src"}).delegateToCheckstyle);
+    }
+
+    @Test
+    void checkstylePlusOptionsAreNotDelegated() {
+        CliOptions options = CliOptions.parse(new String[]{
+            "-c", "style.xml", "--since", "origin/main", "--threads", "4", "--llm-deadline", "10m",
+            "--metrics", "out", "--batch-submit", "src"});
+        assertFalse(options.delegateToCheckstyle);
+        assertEquals("origin/main", options.sinceRef);
+        assertEquals(4, options.threads);
+        assertEquals(600, options.llmDeadlineSeconds);
+        assertEquals(Paths.get("out"), options.metricsDir);
+        assertTrue(options.batchSubmit);
+        assertEquals(List.of("src"), options.paths);
+    }
+
+    @Test
+    void checkstyleAndCheckstylePlusOptionsCannotBeCombined() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> CliOptions.parse(new String[]{"--threads", "4", "-f", "xml", "src"}));
+        assertTrue(e.getMessage().contains("--threads"), e.getMessage());
+        assertTrue(e.getMessage().contains("-f"), e.getMessage());
+        assertThrows(IllegalArgumentException.class,
+            () -> CliOptions.parse(new String[]{"-o", "report.txt", "--since", "HEAD~1"}));
+    }
+
+    @Test
+    void badNumbersAreUsageErrors() {
+        IllegalArgumentException threads = assertThrows(IllegalArgumentException.class,
+            () -> CliOptions.parse(new String[]{"--threads", "many"}));
+        assertEquals("--threads expects a number, not 'many'", threads.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> CliOptions.parse(new String[]{"--llm-deadline", "soon"}));
+        assertThrows(IllegalArgumentException.class, () -> CliOptions.parse(new String[]{"--threads"}));
+    }
+
+    @Test
+    void deadlineUnits() {
+        assertEquals(90, CliOptions.parse(new String[]{"--llm-deadline", "90"}).llmDeadlineSeconds);
+        assertEquals(45, CliOptions.parse(new String[]{"--llm-deadline", "45s"}).llmDeadlineSeconds);
+        assertEquals(7200, CliOptions.parse(new String[]{"--llm-deadline", "2h"}).llmDeadlineSeconds);
+    }
+}
@@ -0,0 +1,96 @@
+package com.checkstyleplus;
+
+import com.checkstyleplus.utils.CacheUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileScheduleTest {
+
+    private static final long DAY_MILLIS = 24 * 3_600_000L;
+
+    @TempDir
+    Path dir;
+
+    private String userHome;
+    private long now;
+
+    @BeforeEach
+    void useTemporaryHome() {
+        userHome = System.getProperty("user.home");
+        System.setProperty("user.home", dir.resolve("home").toString());
+        CacheUtils.close();
+        now = System.currentTimeMillis();
+    }
+
+    @AfterEach
+    void restoreHome() {
+        CacheUtils.close();
+        System.setProperty("user.home", userHome);
+    }
+
+    /**
+     * A file of {@code lines} lines, last modified {@code daysAgo} days ago.
+     */
+    private File javaFile(String name, int lines, int daysAgo) throws Exception {
+        File file = Files.writeString(dir.resolve(name), "// line\n".repeat(lines)).toFile();
+        assertTrue(file.setLastModified(now - daysAgo * DAY_MILLIS));
+        return file;
+    }
+
+    private static List<Integer> rank(List<File> files) {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) indexes.add(i);
+        return FileSchedule.rank(files, indexes);
+    }
+
+    @Test
+    void filesNotSeenBeforeComeFirst() throws Exception {
+        File seen = javaFile("Seen.java", 10, 0);
+        File changed = javaFile("Changed.java", 10, 10);
+        File unseen = javaFile("Unseen.java", 10, 10);
+        FileSchedule.record(seen.getAbsolutePath(), 10, 5);
+        FileSchedule.record(changed.getAbsolutePath(), 10, 5);
+        Files.writeString(changed.toPath(), "// edited\n", StandardOpenOption.APPEND);
+
+        assertEquals(List.of(1, 2, 0), rank(List.of(seen, changed, unseen)));
+    }
+
+    @Test
+    void recentFilesAndFilesWithManyViolationsRankHigher() throws Exception {
+        File old = javaFile("Old.java", 100, 30);
+        File recent = javaFile("Recent.java", 100, 0);
+        List<File> byAge = List.of(old, recent);
+        for (File f : byAge) FileSchedule.record(f.getAbsolutePath(), 100, 0);
+        assertEquals(List.of(1, 0), rank(byAge));
+
+        File clean = javaFile("Clean.java", 100, 3);
+        File messy = javaFile("Messy.java", 100, 3);
+        FileSchedule.record(clean.getAbsolutePath(), 100, 0);
+        FileSchedule.record(messy.getAbsolutePath(), 100, 8);
+        assertEquals(List.of(1, 0), rank(List.of(clean, messy)));
+    }
+
+    @Test
+    void smallFilesRankHigherAndTiesKeepTheirOrder() throws Exception {
+        File large = javaFile("Large.java", 20_000, 3);
+        File small = javaFile("Small.java", 10, 3);
+        assertEquals(List.of(1, 0), rank(List.of(large, small)));
+
+        File first = javaFile("First.java", 10, 3);
+        File second = javaFile("Second.java", 10, 3);
+        assertTrue(second.setLastModified(first.lastModified()));
+        assertEquals(List.of(0, 1), rank(List.of(first, second)));
+    }
+}
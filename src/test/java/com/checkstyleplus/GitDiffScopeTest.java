@@ -0,0 +1,87 @@
+package com.checkstyleplus;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GitDiffScopeTest {
+
+    private static final Path TOP = Paths.get("/repo").toAbsolutePath();
+
+    private static String pathOf(String name) {
+        return TOP.resolve(name).normalize().toString();
+    }
+
+    private static BitSet lines(int... numbers) {
+        BitSet set = new BitSet();
+        for (int n : numbers) set.set(n);
+        return set;
+    }
+
+    @Test
+    void readsHunkRangesOfEachFile() {
+        String diff = String.join("\n",
+            "diff --git a/src/A.java b/src/A.java",
+            "index 1111111..2222222 100644",
+            "--- a/src/A.java",
+            "+++ b/src/A.java",
+            "@@ -3 +3 @@ class A {",
+            "-old",
+            "+new",
+            "@@ -10,0 +11,3 @@",
+            "+a",
+            "+b",
+            "+c",
+            "diff --git a/B.java b/B.java",
+            "--- a/B.java",
+            "+++ b/B.java",
+            "@@ -1,2 +1,2 @@");
+        Map<String, BitSet> changed = GitDiffScope.parseDiff(TOP, diff);
+        assertEquals(List.of(pathOf("src/A.java"), pathOf("B.java")), List.copyOf(changed.keySet()));
+        assertEquals(lines(3, 11, 12, 13), changed.get(pathOf("src/A.java")));
+        assertEquals(lines(1, 2), changed.get(pathOf("B.java")));
+    }
+
+    @Test
+    void pureDeletionHunkChangesNoLine() {
+        String diff = "diff --git a/A.java b/A.java\n--- a/A.java\n+++ b/A.java\n@@ -5,2 +4,0 @@\n-x\n-y\n";
+        assertTrue(GitDiffScope.parseDiff(TOP, diff).get(pathOf("A.java")).isEmpty());
+    }
+
+    @Test
+    void skipsDeletedFiles() {
+        String diff = "diff --git a/Gone.java b/Gone.java\n--- a/Gone.java\n+++ /dev/null\n@@ -1,3 +0,0 @@\n"
+            + "diff --git a/A.java b/A.java\n--- a/A.java\n+++ b/A.java\n@@ -1 +1 @@\n";
+        Map<String, BitSet> changed = GitDiffScope.parseDiff(TOP, diff);
+        assertEquals(List.of(pathOf("A.java")), List.copyOf(changed.keySet()));
+    }
+
+    @Test
+    void readsNamesWithSpacesAndQuotedNames() {
+        String diff = "diff --git a/sp ace.java b/sp ace.java\n+++ b/sp ace.java\t\n@@ -1 +2 @@\n"
+            + "diff --git \"a/tab\\tname.java\" \"b/tab\\tname.java\"\n+++ \"b/tab\\tname.java\"\n@@ -1 +3 @@\n"
+            + "diff --git \"a/q\\042u\\\"ote.java\" \"b/q\\042u\\\"ote.java\"\n"
+            + "+++ \"b/q\\042u\\\"ote.java\"\n@@ -1 +4 @@\n";
+        Map<String, BitSet> changed = GitDiffScope.parseDiff(TOP, diff);
+        assertEquals(lines(2), changed.get(pathOf("sp ace.java")));
+        assertEquals(lines(3), changed.get(pathOf("tab\tname.java")));
+        assertEquals(lines(4), changed.get(pathOf("q\"u\"ote.java")));
+    }
+
+    @Test
+    void addedLinesThatLookLikeHeadersAreContent() {
+        // An added line "++ count;" shows up as "+++ count;" in the hunk
+        String diff = "diff --git a/A.java b/A.java\n--- a/A.java\n+++ b/A.java\n@@ -1 +1,2 @@\n"
+            + "+++ count;\n+first\n@@ -8 +9 @@\n";
+        Map<String, BitSet> changed = GitDiffScope.parseDiff(TOP, diff);
+        assertEquals(List.of(pathOf("A.java")), List.copyOf(changed.keySet()));
+        assertEquals(lines(1, 2, 9), changed.get(pathOf("A.java")));
+    }
+}
@@ -0,0 +1,135 @@
+package com.checkstyleplus;
+
+import com.checkstyleplus.utils.CacheUtils;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.api.Violation;
+import com.puppycrawl.tools.checkstyle.checks.naming.MethodNameCheck;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ResultCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private String userHome;
+
+    @BeforeEach
+    void useTemporaryHome() {
+        userHome = System.getProperty("user.home");
+        System.setProperty("user.home", dir.resolve("home").toString());
+        CacheUtils.close();
+        GitDiffScope.clear();
+    }
+
+    @AfterEach
+    void restoreHome() {
+        CacheUtils.close();
+        CacheUtils.configure("directory", 256L << 20, "", 2000);
+        System.setProperty("user.home", userHome);
+    }
+
+    private static DefaultConfiguration config(String suppressions, String format) {
+        DefaultConfiguration checker = new DefaultConfiguration("Checker");
+        DefaultConfiguration filter = new DefaultConfiguration("SuppressionFilter");
+        filter.addProperty("file", suppressions);
+        checker.addChild(filter);
+        DefaultConfiguration treeWalker = new DefaultConfiguration("TreeWalker");
+        DefaultConfiguration methodName = new DefaultConfiguration("MethodName");
+        methodName.addProperty("format", format);
+        treeWalker.addChild(methodName);
+        checker.addChild(treeWalker);
+        return checker;
+    }
+
+    @Test
+    void keyChangesWithTheFileAndTheConfiguration() throws Exception {
+        Path suppressions = Files.writeString(dir.resolve("suppressions.xml"), "<suppressions/>");
+        File file = Files.writeString(dir.resolve("A.java"), "class A { }\n").toFile();
+        String key = new ResultCache(config(suppressions.toString(), "^[a-z]+$")).keyOf(file);
+        assertNotNull(key);
+        assertEquals(key, new ResultCache(config(suppressions.toString(), "^[a-z]+$")).keyOf(file));
+
+        assertNotEquals(key, new ResultCache(config(suppressions.toString(), "^[a-z0-9]+$")).keyOf(file));
+
+        Files.writeString(suppressions, "<suppressions><suppress checks=\"MethodName\" files=\".*\"/></suppressions>");
+        assertNotEquals(key, new ResultCache(config(suppressions.toString(), "^[a-z]+$")).keyOf(file));
+    }
+
+    @Test
+    void keyChangesWithTheContentAndThePath() throws Exception {
+        ResultCache cache = new ResultCache(config("none", "^[a-z]+$"));
+        File a = Files.writeString(dir.resolve("A.java"), "class A { }\n").toFile();
+        String key = cache.keyOf(a);
+
+        Files.writeString(a.toPath(), "class A { void b() { } }\n");
+        assertNotEquals(key, cache.keyOf(a));
+
+        Files.createDirectories(dir.resolve("other"));
+        File copy = Files.writeString(dir.resolve("other/A.java"), "class A { }\n").toFile();
+        assertNotEquals(key, cache.keyOf(copy));
+
+        assertNull(cache.keyOf(dir.resolve("Missing.java").toFile()));
+    }
+
+    @Test
+    void checkerCacheFileIsNotPartOfTheKey() throws Exception {
+        File file = Files.writeString(dir.resolve("A.java"), "class A { }\n").toFile();
+        DefaultConfiguration first = config("none", "^[a-z]+$");
+        first.addProperty("cacheFile", "shard-0.cache");
+        DefaultConfiguration second = config("none", "^[a-z]+$");
+        second.addProperty("cacheFile", "shard-1.cache");
+        assertEquals(new ResultCache(first).keyOf(file), new ResultCache(second).keyOf(file));
+    }
+
+    @Test
+    void storedViolationsAreReplayedAsReported() throws Exception {
+        ResultCache cache = new ResultCache(config("none", "^[a-z]+$"));
+        String key = cache.keyOf(Files.writeString(dir.resolve("A.java"), "class A { }\n").toFile());
+        assertNull(cache.lookup(key));
+
+        Violation reported = new Violation(3, 7, 6, 58, "com.puppycrawl.tools.checkstyle.checks.naming.messages",
+            "name.invalidPattern", new Object[]{"Bad_1", "^[a-z]+$"}, SeverityLevel.WARNING, "naming",
+            MethodNameCheck.class, null);
+        cache.store(key, List.of(reported));
+
+        List<Violation> replayed = cache.lookup(key);
+        assertEquals(1, replayed.size());
+        Violation v = replayed.get(0);
+        assertEquals(3, v.getLineNo());
+        assertEquals(7, v.getColumnNo());
+        assertEquals(SeverityLevel.WARNING, v.getSeverityLevel());
+        assertEquals("naming", v.getModuleId());
+        assertEquals(reported.getSourceName(), v.getSourceName());
+        assertEquals(reported.getViolation(), v.getViolation());
+    }
+
+    @Test
+    void entriesStayOutOfASharedCache() throws Exception {
+        Path shared = Files.createDirectories(dir.resolve("shared"));
+        CacheUtils.configure("directory", 256L << 20, shared.toString(), 2000);
+        ResultCache cache = new ResultCache(config("none", "^[a-z]+$"));
+        String key = cache.keyOf(Files.writeString(dir.resolve("A.java"), "class A { }\n").toFile());
+        cache.store(key, List.of());
+        CacheUtils.writeCache(CacheUtils.sha256("a reply"), "reply");
+        CacheUtils.close();
+
+        assertNotNull(cache.lookup(key));
+        try (var entries = Files.list(shared)) {
+            assertEquals(1, entries.count()); // only the reply
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.checkstyleplus;
+
+import com.checkstyleplus.adapters.LlmClient;
+import com.checkstyleplus.utils.RunMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RunBudgetTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final LlmClient model = prompt -> "reply " + calls.incrementAndGet();
+
+    @BeforeEach
+    void startRun() {
+        RunMetrics.reset();
+        RunBudget.reset();
+    }
+
+    @AfterEach
+    void removeLimits() {
+        RunBudget.configure(0, 0, 0, 0, 0);
+        RunBudget.setDeadline(0);
+        RunBudget.reset();
+    }
+
+    private static String report() {
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        RunBudget.report(new PrintStream(err, true, StandardCharsets.UTF_8));
+        return err.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void unlimitedRunsUseTheClientAsIs() {
+        assertFalse(RunBudget.isLimited());
+        assertSame(model, RunBudget.guard(model));
+        assertEquals("", report());
+    }
+
+    @Test
+    void requestLimitRefusesTheRestOfTheRun() throws Exception {
+        RunBudget.configure(0, 2, 0, 0, 0);
+        LlmClient guarded = RunBudget.guard(model);
+        assertEquals("reply 1", guarded.generateResponse("first"));
+        assertEquals("reply 2", guarded.generateResponse("second"));
+
+        assertThrows(RunBudget.ExceededException.class, () -> guarded.generateResponse("third"));
+        assertThrows(RunBudget.ExceededException.class, () -> guarded.streamResponse("fourth", line -> true));
+        assertEquals(2, calls.get());
+        assertTrue(RunBudget.isExhausted());
+        assertTrue(RunBudget.wasRefused(List.of("first", "third")));
+        assertFalse(RunBudget.wasRefused(List.of("first", "second")));
+
+        RunBudget.skipped("/src/A.java");
+        RunBudget.skipped("/src/A.java");
+        assertEquals("LlmStyleCheck: run budget reached (maxRequestsPerRun 2), 1 file(s) skipped the model"
+            + " and were left to the built-in checks\n", report().replace("\r\n", "\n"));
+
+        RunBudget.reset();
+        RunMetrics.reset();
+        assertEquals("reply 3", guarded.generateResponse("next run"));
+    }
+
+    @Test
+    void promptTokensCountBeforeTheRequestIsSent() {
+        RunBudget.configure(100, 0, 0, 0, 0);
+        LlmClient guarded = RunBudget.guard(model);
+        assertThrows(RunBudget.ExceededException.class, () -> guarded.generateResponse("x".repeat(4000)));
+        assertEquals(0, calls.get());
+        assertTrue(report().contains("maxTokensPerRun 100"));
+    }
+
+    @Test
+    void costLimitUsesTheEstimatedPromptTokens() throws Exception {
+        RunBudget.configure(0, 0, 0.005, 10, 30);
+        LlmClient guarded = RunBudget.guard(model);
+        assertEquals("reply 1", guarded.generateResponse("short prompt"));
+        assertThrows(RunBudget.ExceededException.class, () -> guarded.generateResponse("x".repeat(4000)));
+        assertTrue(report().contains("maxCostPerRun 0.005"));
+    }
+
+    @Test
+    void replyStillAwaitedAtTheDeadlineIsGivenUp() {
+        RunBudget.setDeadline(1);
+        RunBudget.reset();
+        LlmClient slow = prompt -> {
+            Thread.sleep(5_000);
+            return "late";
+        };
+        LlmClient guarded = RunBudget.guard(slow);
+        long start = System.nanoTime();
+        assertThrows(RunBudget.ExceededException.class, () -> guarded.generateResponse("slow"));
+        assertTrue(System.nanoTime() - start < 4_000_000_000L);
+        assertTrue(RunBudget.wasRefused(List.of("slow")));
+
+        assertThrows(RunBudget.ExceededException.class, () -> RunBudget.guard(model).generateResponse("after"));
+        assertEquals(0, calls.get());
+        assertTrue(report().contains("llm-deadline 1s"));
+    }
+}
@@ -0,0 +1,54 @@
+package com.checkstyleplus.adapters;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private static final long LONG_COOLDOWN = 60_000;
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, LONG_COOLDOWN);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess(); // resets the count
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertTrue(breaker.allowRequest());
+
+        breaker.recordFailure();
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    void letsOneTrialThroughAfterTheCooldown() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, 0);
+        breaker.recordFailure();
+
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest()); // the trial is still in flight
+        breaker.recordSuccess();
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void failedTrialReopens() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 5, 50);
+        for (int i = 0; i < 5; i++) breaker.recordFailure();
+        assertFalse(breaker.allowRequest());
+
+        Thread.sleep(80);
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure(); // one failed trial is enough, below the threshold
+        assertFalse(breaker.allowRequest());
+
+        Thread.sleep(80);
+        assertTrue(breaker.allowRequest());
+        breaker.recordSuccess();
+        assertTrue(breaker.allowRequest());
+    }
+}
@@ -0,0 +1,151 @@
+package com.checkstyleplus.adapters;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    private static HttpHeaders headers(String name, String value) {
+        return HttpHeaders.of(Map.of(name, List.of(value)), (n, v) -> true);
+    }
+
+    private static Thread acquireInBackground(RateLimiter limiter) {
+        return Thread.ofVirtual().start(() -> {
+            try {
+                limiter.acquire(0);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    @Test
+    void configuringAgainKeepsTheLimiterAndItsRequestsInFlight() throws Exception {
+        String endpoint = "http://again.test/v1/messages";
+        RateLimiter.configure(endpoint, 0, 0, 2, 2, 3);
+        RateLimiter limiter = RateLimiter.forRequest(URI.create(endpoint));
+        limiter.acquire(0);
+        limiter.acquire(0);
+
+        RateLimiter.configure(endpoint, 0, 0, 2, 2, 5);
+        assertSame(limiter, RateLimiter.forRequest(URI.create(endpoint)));
+        assertEquals(5, limiter.maxRetries());
+
+        Thread third = acquireInBackground(limiter);
+        third.join(200);
+        assertTrue(third.isAlive(), "both slots are still taken");
+        limiter.release(200, null, TimeUnit.MILLISECONDS.toNanos(10), 0);
+        third.join(2000);
+        assertFalse(third.isAlive());
+    }
+
+    @Test
+    void configuringAgainKeepsTheAdaptedLimit() {
+        String endpoint = "http://adapted.test/v1/messages";
+        RateLimiter.configure(endpoint, 0, 0, 4, 8, 3);
+        RateLimiter limiter = RateLimiter.forRequest(URI.create(endpoint));
+        limiter.release(429, headers("retry-after-ms", "0"), 0, 0);
+        assertEquals(2, limiter.concurrencyLimit());
+
+        RateLimiter.configure(endpoint, 0, 0, 4, 8, 3);
+        assertEquals(2, limiter.concurrencyLimit());
+        RateLimiter.configure(endpoint, 0, 0, 1, 1, 3);
+        assertEquals(1, limiter.concurrencyLimit());
+    }
+
+    @Test
+    void configuringAgainKeepsThePause() throws Exception {
+        String endpoint = "http://paused.test/v1/messages";
+        RateLimiter.configure(endpoint, 0, 0, 4, 4, 3);
+        RateLimiter limiter = RateLimiter.forRequest(URI.create(endpoint));
+        limiter.release(429, headers("retry-after-ms", "300"), 0, 0);
+
+        RateLimiter.configure(endpoint, 0, 0, 4, 4, 3);
+        long start = System.nanoTime();
+        limiter.acquire(0);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(280));
+    }
+
+    @Test
+    void limitGrowsWhileLatencyStaysLowAndHalvesOnThrottling() throws Exception {
+        String endpoint = "http://aimd.test/v1/messages";
+        RateLimiter.configure(endpoint, 0, 0, 4, 8, 3);
+        RateLimiter limiter = RateLimiter.forRequest(URI.create(endpoint));
+        for (int i = 0; i < 60; i++) {
+            limiter.acquire(0);
+            limiter.release(200, null, TimeUnit.MILLISECONDS.toNanos(20), 0);
+        }
+        assertEquals(8, limiter.concurrencyLimit());
+
+        limiter.acquire(0);
+        assertTrue(limiter.release(503, headers("retry-after-ms", "0"), 0, 0));
+        assertEquals(4, limiter.concurrencyLimit());
+    }
+
+    @Test
+    void limitShrinksWhenLatencyClimbs() throws Exception {
+        String endpoint = "http://slow.test/v1/messages";
+        RateLimiter.configure(endpoint, 0, 0, 8, 8, 3);
+        RateLimiter limiter = RateLimiter.forRequest(URI.create(endpoint));
+        limiter.acquire(0);
+        limiter.release(200, null, TimeUnit.MILLISECONDS.toNanos(10), 0);
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire(0);
+            limiter.release(200, null, TimeUnit.MILLISECONDS.toNanos(500), 0);
+        }
+        assertTrue(limiter.concurrencyLimit() < 8, "limit " + limiter.concurrencyLimit());
+    }
+
+    @Test
+    void concurrencyLimitHoldsBackFurtherRequests() throws Exception {
+        String endpoint = "http://slots.test/v1/messages";
+        RateLimiter.configure(endpoint, 0, 0, 1, 1, 3);
+        RateLimiter limiter = RateLimiter.forRequest(URI.create(endpoint));
+        limiter.acquire(0);
+        Thread second = acquireInBackground(limiter);
+        second.join(200);
+        assertTrue(second.isAlive());
+        assertFalse(limiter.release(500, null, 0, 0), "a server error is not throttling");
+        second.join(2000);
+        assertFalse(second.isAlive());
+    }
+
+    @Test
+    void retryAfterPausesTheProvider() throws Exception {
+        String endpoint = "http://retry-after.test/v1/messages";
+        RateLimiter.configure(endpoint, 0, 0, 4, 4, 3);
+        RateLimiter limiter = RateLimiter.forRequest(URI.create(endpoint));
+        limiter.acquire(0);
+        assertTrue(limiter.release(429, headers("retry-after", "1"), 0, 0));
+
+        long start = System.nanoTime();
+        limiter.acquire(0);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(950));
+    }
+
+    @Test
+    void exhaustedQuotaHeaderPausesUntilTheReset() throws Exception {
+        String endpoint = "http://quota.test/v1/messages";
+        RateLimiter.configure(endpoint, 0, 0, 4, 4, 3);
+        RateLimiter limiter = RateLimiter.forRequest(URI.create(endpoint));
+        limiter.acquire(0);
+        HttpHeaders quota = HttpHeaders.of(Map.of(
+            "x-ratelimit-remaining-requests", List.of("0"),
+            "x-ratelimit-reset-requests", List.of("300ms")), (n, v) -> true);
+        assertFalse(limiter.release(200, quota, TimeUnit.MILLISECONDS.toNanos(10), 0));
+
+        long start = System.nanoTime();
+        limiter.acquire(0);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(280));
+    }
+}
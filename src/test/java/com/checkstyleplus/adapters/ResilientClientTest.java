@@ -0,0 +1,114 @@
+package com.checkstyleplus.adapters;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResilientClientTest {
+
+    private static final long DEADLINE_MILLIS = 5_000;
+
+    private static ResilientClient client(LlmClient primary, LlmClient secondary, double hedgePercentile,
+                                          int breakerFailureThreshold) {
+        return ResilientClient.of("test", primary, secondary, DEADLINE_MILLIS, hedgePercentile,
+            breakerFailureThreshold, 60_000);
+    }
+
+    private static String sleepThenReply(long millis, String reply) throws InterruptedException {
+        Thread.sleep(millis);
+        return reply;
+    }
+
+    @Test
+    void failedOrEmptyPrimaryCallIsRetriedOnTheSecondary() throws Exception {
+        LlmClient failing = prompt -> {
+            throw new IllegalStateException("down");
+        };
+        assertEquals("secondary", client(failing, prompt -> "secondary", 0, 5).generateResponse("p"));
+        assertEquals("secondary", client(prompt -> null, prompt -> "secondary", 0, 5).generateResponse("p"));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+            () -> client(failing, null, 0, 5).generateResponse("p"));
+        assertEquals("down", e.getMessage());
+    }
+
+    @Test
+    void slowCallIsHedgedOnceEnoughLatenciesAreKnown() throws Exception {
+        AtomicBoolean slow = new AtomicBoolean();
+        LlmClient primary = prompt -> slow.get() ? sleepThenReply(3_000, "primary") : "primary";
+        ResilientClient client = client(primary, prompt -> "secondary", 90, 5);
+
+        // Twenty quick calls put the 90th percentile well under a millisecond
+        for (int i = 0; i < 20; i++) assertEquals("primary", client.generateResponse("p"));
+
+        slow.set(true);
+        long start = System.nanoTime();
+        assertEquals("secondary", client.generateResponse("p"));
+        assertTrue(System.nanoTime() - start < 2_000_000_000L, "hedged call waited for the slow primary");
+    }
+
+    @Test
+    void callWithoutReplyTimesOutAtTheDeadline() {
+        ResilientClient client = ResilientClient.of("test", prompt -> sleepThenReply(3_000, "late"), null,
+            100, 0, 5, 60_000);
+        long start = System.nanoTime();
+        assertThrows(TimeoutException.class, () -> client.generateResponse("p"));
+        assertTrue(System.nanoTime() - start < 2_000_000_000L);
+    }
+
+    @Test
+    void openBreakerRefusesCallsWithoutReachingTheProvider() {
+        AtomicInteger calls = new AtomicInteger();
+        LlmClient failing = prompt -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("down");
+        };
+        ResilientClient client = client(failing, null, 0, 3);
+        for (int i = 0; i < 3; i++) assertThrows(IllegalStateException.class, () -> client.generateResponse("p"));
+
+        assertThrows(ResilientClient.CircuitBreakerOpenException.class, () -> client.generateResponse("p"));
+        assertThrows(ResilientClient.CircuitBreakerOpenException.class,
+            () -> client.streamResponse("p", line -> true));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void streamIsRetriedOnTheSecondaryOnlyBeforeTheFirstLine() throws Exception {
+        LlmClient failing = prompt -> {
+            throw new IllegalStateException("down");
+        };
+        List<String> lines = new ArrayList<>();
+        assertEquals("a\nb\n", client(failing, prompt -> "a\nb", 0, 5).streamResponse("p", lines::add));
+        assertEquals(List.of("a", "b"), lines);
+
+        LlmClient failsAfterOneLine = new LlmClient() {
+            @Override
+            public String generateResponse(String prompt) {
+                return "unused";
+            }
+
+            @Override
+            public String streamResponse(String prompt, Predicate<String> onLine) {
+                onLine.test("partial");
+                throw new IllegalStateException("cut off");
+            }
+        };
+        AtomicInteger secondaryCalls = new AtomicInteger();
+        LlmClient secondary = prompt -> {
+            secondaryCalls.incrementAndGet();
+            return "other";
+        };
+        assertThrows(IllegalStateException.class,
+            () -> client(failsAfterOneLine, secondary, 0, 5).streamResponse("p", line -> true));
+        assertEquals(0, secondaryCalls.get());
+    }
+}
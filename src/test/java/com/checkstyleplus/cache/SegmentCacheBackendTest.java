@@ -0,0 +1,139 @@
+package com.checkstyleplus.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentCacheBackendTest {
+
+    private static final long UNBOUNDED = Long.MAX_VALUE;
+
+    @TempDir
+    Path dir;
+
+    private Path segment() {
+        return dir.resolve("cache.seg");
+    }
+
+    private static int recordBytes(String key, String value) {
+        return 16 + key.getBytes(StandardCharsets.UTF_8).length + value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static String value(int index, int length) {
+        return String.valueOf((char) ('a' + index % 26)).repeat(length);
+    }
+
+    @Test
+    void tornTailIsIgnoredThenCutOffByTheNextWrite() throws Exception {
+        SegmentCacheBackend backend = new SegmentCacheBackend(dir, UNBOUNDED);
+        backend.put("a", "first");
+        backend.put("b", "second");
+        backend.close();
+
+        long valid = Files.size(segment());
+        // A writer that crashed after the first bytes of a record
+        Files.write(segment(), new byte[]{0x4C, 0x4C, 0x4D, 0x43, 0, 0, 0, 9, 0}, StandardOpenOption.APPEND);
+
+        backend = new SegmentCacheBackend(dir, UNBOUNDED);
+        assertEquals(Optional.of("first"), backend.get("a"));
+        assertEquals(Optional.of("second"), backend.get("b"));
+        backend.put("c", "third");
+        backend.close();
+        assertEquals(valid + recordBytes("c", "third"), Files.size(segment()));
+
+        backend = new SegmentCacheBackend(dir, UNBOUNDED);
+        assertEquals(Optional.of("first"), backend.get("a"));
+        assertEquals(Optional.of("second"), backend.get("b"));
+        assertEquals(Optional.of("third"), backend.get("c"));
+        backend.close();
+    }
+
+    @Test
+    void recordFailingItsChecksumEndsTheSegment() throws Exception {
+        SegmentCacheBackend backend = new SegmentCacheBackend(dir, UNBOUNDED);
+        backend.put("a", "first");
+        backend.put("b", "second");
+        backend.close();
+        byte[] bytes = Files.readAllBytes(segment());
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(segment(), bytes);
+
+        backend = new SegmentCacheBackend(dir, UNBOUNDED);
+        assertEquals(Optional.of("first"), backend.get("a"));
+        assertEquals(Optional.empty(), backend.get("b"));
+        backend.put("b", "again");
+        backend.close();
+
+        backend = new SegmentCacheBackend(dir, UNBOUNDED);
+        assertEquals(Optional.of("again"), backend.get("b"));
+        backend.close();
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedAndCompactionShrinksTheFile() throws Exception {
+        int valueLength = 4096;
+        int recordLength = recordBytes("k00", value(0, valueLength));
+        SegmentCacheBackend backend = new SegmentCacheBackend(dir, 10L * recordLength);
+        for (int i = 0; i < 10; i++) backend.put("k0" + i, value(i, valueLength));
+        backend.get("k00"); // now the most recently used
+        for (int i = 10; i < 15; i++) backend.put("k" + i, value(i, valueLength));
+
+        assertEquals(Optional.of(value(0, valueLength)), backend.get("k00"));
+        for (int i = 1; i < 6; i++) assertEquals(Optional.empty(), backend.get("k0" + i));
+        assertEquals(Optional.of(value(14, valueLength)), backend.get("k14"));
+        assertEquals(15L * recordLength, Files.size(segment()));
+
+        backend.compactNow().get();
+        assertEquals(10L * recordLength, Files.size(segment()));
+        assertEquals(Optional.of(value(6, valueLength)), backend.get("k06"));
+        backend.close();
+
+        backend = new SegmentCacheBackend(dir, 10L * recordLength);
+        assertEquals(Optional.of(value(0, valueLength)), backend.get("k00"));
+        assertEquals(Optional.empty(), backend.get("k01"));
+        assertEquals(Optional.of(value(14, valueLength)), backend.get("k14"));
+        backend.close();
+    }
+
+    @Test
+    void writesDuringCompactionAreKept() throws Exception {
+        int valueLength = 2048;
+        SegmentCacheBackend backend = new SegmentCacheBackend(dir, UNBOUNDED);
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 500; i++) backend.put("old" + i, round + value(i, valueLength));
+        }
+        Future<?> compaction = backend.compactNow();
+        for (int i = 0; i < 500; i++) backend.put("new" + i, value(i, valueLength));
+        compaction.get();
+
+        for (int i = 0; i < 500; i++) {
+            assertEquals(Optional.of("1" + value(i, valueLength)), backend.get("old" + i));
+            assertEquals(Optional.of(value(i, valueLength)), backend.get("new" + i));
+        }
+        backend.close();
+
+        backend = new SegmentCacheBackend(dir, UNBOUNDED);
+        assertEquals(Optional.of("1" + value(499, valueLength)), backend.get("old499"));
+        assertEquals(Optional.of(value(0, valueLength)), backend.get("new0"));
+        backend.close();
+
+        long live = 0;
+        for (int i = 0; i < 500; i++) {
+            live += recordBytes("old" + i, "1" + value(i, valueLength));
+            live += recordBytes("new" + i, value(i, valueLength));
+        }
+        assertEquals(live, Files.size(segment()));
+        try (var files = Files.list(dir)) {
+            assertTrue(files.noneMatch(p -> p.toString().endsWith(".compact")));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.checkstyleplus.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NormalizedSourceTest {
+
+    private static final List<String> FILE = List.of(
+        "// license header",
+        "package com.example;",
+        "",
+        "import java.util.List;",
+        "class A {",
+        "    int   x;",
+        "}");
+
+    /** The same code with a longer header, one more import and a blank line. */
+    private static final List<String> SHIFTED = List.of(
+        "// license header",
+        "// second header line",
+        "package com.example;",
+        "",
+        "import java.util.List;",
+        "import java.util.Map;",
+        "",
+        "class A {",
+        "  int x;",
+        "}");
+
+    @Test
+    void dropsHeaderImportsAndBlankLines() {
+        assertEquals("class A {\nint x;\n}\n", NormalizedSource.of(FILE, null).text());
+    }
+
+    @Test
+    void reformattedCodeNormalizesTheSame() {
+        assertEquals(NormalizedSource.of(FILE, null).text(), NormalizedSource.of(SHIFTED, null).text());
+    }
+
+    @Test
+    void mapsReplyLinesToNormalizedIndexes() {
+        NormalizedSource source = NormalizedSource.of(FILE, null);
+        assertEquals("[ERROR] (2) 'x' is bad\n", source.toNormalized("[ERROR] (6) 'x' is bad"));
+    }
+
+    @Test
+    void mapsCachedReplyOntoShiftedLines() {
+        String cached = NormalizedSource.of(FILE, null).toNormalized("[ERROR] (5) 'A' is bad\n[ERROR] (6) 'x' is bad");
+        assertEquals("[ERROR] (8) 'A' is bad\n[ERROR] (9) 'x' is bad\n",
+            NormalizedSource.of(SHIFTED, null).toOriginal(cached));
+    }
+
+    @Test
+    void dropsFindingsOnLinesNormalizedAway() {
+        NormalizedSource source = NormalizedSource.of(FILE, null);
+        assertEquals("[ERROR] (3) '}' is bad\n",
+            source.toNormalized("[ERROR] (4) 'List' is unused\n[ERROR] (7) '}' is bad"));
+        assertEquals("", source.toNormalized("[ERROR] (99) 'y' is bad"));
+    }
+
+    @Test
+    void keepsLinesWithoutLineNumber() {
+        assertEquals("no line here\n", NormalizedSource.of(FILE, null).toNormalized("no line here"));
+    }
+
+    @Test
+    void remapsStructuredFindings() {
+        NormalizedSource source = NormalizedSource.of(FILE, null);
+        String normalized = source.toNormalized("{\"line\":6,\"section\":\"5.2.5\",\"identifier\":\"x\"}");
+        assertEquals("{\"line\":2,\"section\":\"5.2.5\",\"identifier\":\"x\"}\n", normalized);
+        assertEquals("{\"line\":9,\"section\":\"5.2.5\",\"identifier\":\"x\"}\n",
+            NormalizedSource.of(SHIFTED, null).toOriginal(normalized));
+    }
+
+    @Test
+    void normalizesOnlyIncludedLines() {
+        BitSet included = new BitSet();
+        included.set(6);
+        NormalizedSource source = NormalizedSource.of(FILE, included);
+        assertEquals("int x;\n", source.text());
+        assertEquals("[ERROR] (1) 'x' is bad\n", source.toNormalized("[ERROR] (6) 'x' is bad"));
+        assertEquals("[ERROR] (6) 'x' is bad\n", source.toOriginal("[ERROR] (1) 'x' is bad"));
+        assertTrue(source.toNormalized("[ERROR] (5) 'A' is bad").isEmpty());
+    }
+}
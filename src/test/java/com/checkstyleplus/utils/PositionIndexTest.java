@@ -0,0 +1,85 @@
+package com.checkstyleplus.utils;
+
+import com.puppycrawl.tools.checkstyle.JavaParser;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PositionIndexTest {
+
+    private static final List<String> LINES = List.of(
+        "class A {",
+        "\tint count;",
+        "\t\tint x = count;",
+        "  int\tafter_tab;",
+        "    int spaces;",
+        "}");
+
+    @Test
+    void columnWithoutTabsIsTheRawIndex() {
+        PositionIndex index = new PositionIndex(null, LINES);
+        assertEquals(8, index.visualColumn(5, index.columnOf(5, "spaces"), 4));
+    }
+
+    @Test
+    void leadingTabsExpandToTabWidth() {
+        PositionIndex index = new PositionIndex(null, LINES);
+        int raw = index.columnOf(2, "count");
+        assertEquals(5, raw);
+        assertEquals(8, index.visualColumn(2, raw, 4));
+        assertEquals(12, index.visualColumn(2, raw, 8));
+        assertEquals(16, index.visualColumn(3, 2, 8));
+    }
+
+    @Test
+    void innerTabAdvancesToTheNextTabStop() {
+        PositionIndex index = new PositionIndex(null, LINES);
+        int raw = index.columnOf(4, "after_tab");
+        assertEquals(6, raw);
+        assertEquals(8, index.visualColumn(4, raw, 4));
+        assertEquals(8, index.visualColumn(4, raw, 8));
+        assertEquals(6, index.visualColumn(4, raw, 3));
+    }
+
+    @Test
+    void prefersWholeWordOccurrence() {
+        PositionIndex index = new PositionIndex(null, List.of("int counter = count;"));
+        assertEquals(14, index.columnOf(1, "count"));
+        assertEquals(4, index.columnOf(1, "counte"));
+        assertNull(index.columnOf(1, "missing"));
+        assertNull(index.columnOf(2, "count"));
+    }
+
+    @Test
+    void columnPastTheLineStopsAtItsEnd() {
+        PositionIndex index = new PositionIndex(null, LINES);
+        assertEquals(15, index.visualColumn(5, 99, 4));
+        assertEquals(0, index.visualColumn(9, 3, 4));
+    }
+
+    @Test
+    void findsIdentifierNodesOnTheirLine() throws Exception {
+        DetailAST root = JavaParser.parse(new FileContents(new FileText(new File("A.java"), LINES)));
+        PositionIndex index = new PositionIndex(root, LINES);
+
+        DetailAST count = index.identAt(2, "count");
+        assertNotNull(count);
+        assertEquals(TokenTypes.IDENT, count.getType());
+        assertEquals(5, count.getColumnNo());
+
+        DetailAST usage = index.identAt(3, "count");
+        assertNotNull(usage);
+        assertEquals(3, usage.getLineNo());
+        assertNull(index.identAt(3, "missing"));
+        assertNull(index.identAt(2, null));
+    }
+}
@@ -0,0 +1,23 @@
+package com.checkstyleplus.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptUtilsTest {
+
+    @Test
+    void namesPromptCarriesOnlyTheNamingRules() {
+        String prompt = PromptUtils.buildNamesPrompt(List.of("class fooBar", "parameter mName"));
+        assertTrue(prompt.contains("2.1.1- Class names"));
+        assertTrue(prompt.contains("2.6.1- Each type variable"));
+        assertTrue(prompt.contains("Special prefixes"));
+        assertFalse(prompt.contains("1.1.1- Each Javadoc block"));
+        assertFalse(prompt.contains("JAVA CODE:"));
+        assertTrue(prompt.endsWith("Identifiers:\n1. class fooBar\n2. parameter mName\n"), prompt);
+        assertTrue(prompt.length() < PromptUtils.loadPromptTemplate().length() / 2, "length " + prompt.length());
+    }
+}
@@ -0,0 +1,102 @@
+package com.checkstyleplus.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ReplyUtilsTest {
+
+    @Test
+    void lineNumberIsTheFirstParenthesisedNumber() {
+        assertEquals(12, ReplyUtils.lineNumberOf("[ERROR] (12) 'foo' should be 'Foo' (5.2.2)"));
+        assertEquals(3, ReplyUtils.lineNumberOf("  [WARN] Line (3): 'x' (7)"));
+    }
+
+    @Test
+    void lineNumberIsNullWithoutOne() {
+        assertNull(ReplyUtils.lineNumberOf("[ERROR] 'foo' should be 'Foo' (section)"));
+        assertNull(ReplyUtils.lineNumberOf(""));
+    }
+
+    @Test
+    void lineNumberOfStructuredFinding() {
+        assertEquals(7, ReplyUtils.lineNumberOf("{\"line\":7,\"section\":\"5.2.2\",\"identifier\":\"foo\"}"));
+        assertEquals(7, ReplyUtils.lineNumberOf("{\"section\":\"5.2.2\",\"line\":7}"));
+        assertNull(ReplyUtils.lineNumberOf("{\"section\":\"5.2.2\",\"identifier\":\"foo\"}"));
+        assertNull(ReplyUtils.lineNumberOf("{not json"));
+    }
+
+    @Test
+    void rewritesLineNumber() {
+        assertEquals("[ERROR] (40) 'foo' (5.2.2)", ReplyUtils.withLineNumber("[ERROR] (12) 'foo' (5.2.2)", 40));
+        assertEquals("no number", ReplyUtils.withLineNumber("no number", 40));
+        assertEquals("{\"line\":40,\"identifier\":\"foo\"}",
+            ReplyUtils.withLineNumber("{\"line\":12,\"identifier\":\"foo\"}", 40));
+        assertEquals("{\"line\":40,\"identifier\":\"foo\"}",
+            ReplyUtils.withLineNumber("{\"identifier\":\"foo\",\"line\":12}", 40));
+    }
+
+    @Test
+    void mergeKeepsOneFindingPerLineAndIdentifier() {
+        String first = "[ERROR] (10) 'foo' should be 'Foo' (5.2.2)\n[ERROR] (12) 'bar' is bad (4.1)\n";
+        String second = "[ERROR] (12) 'bar' is bad, reworded (4.1)\n[ERROR] (20) 'baz' is bad (4.1)\n";
+        assertEquals("[ERROR] (10) 'foo' should be 'Foo' (5.2.2)\n"
+                + "[ERROR] (12) 'bar' is bad (4.1)\n"
+                + "[ERROR] (20) 'baz' is bad (4.1)\n",
+            ReplyUtils.mergeReplies(List.of(first, second)));
+    }
+
+    @Test
+    void mergeKeepsDifferentIdentifiersOnOneLine() {
+        String merged = ReplyUtils.mergeReplies(List.of("[ERROR] (10) 'foo' is bad\n", "[ERROR] (10) 'bar' is bad\n"));
+        assertEquals("[ERROR] (10) 'foo' is bad\n[ERROR] (10) 'bar' is bad\n", merged);
+    }
+
+    @Test
+    void mergeDropsBlankAndRepeatedLines() {
+        assertEquals("no violations\n", ReplyUtils.mergeReplies(List.of("\n  \nno violations\n", " no violations ")));
+    }
+
+    @Test
+    void mergeStructuredFindings() {
+        String first = "{\"line\":10,\"section\":\"5.2.2\",\"identifier\":\"foo\"}\n";
+        String second = "{\"line\":10,\"section\":\"5.2.3\",\"identifier\":\"foo\",\"suggestion\":\"again\"}\n"
+            + "{\"line\":11,\"identifier\":\"foo\"}\n";
+        assertEquals("{\"line\":10,\"section\":\"5.2.2\",\"identifier\":\"foo\"}\n"
+                + "{\"line\":11,\"identifier\":\"foo\"}\n",
+            ReplyUtils.mergeReplies(List.of(first, second)));
+    }
+
+    @Test
+    void splitsBatchReplyAtFileMarkers() {
+        String reply = "preamble is dropped\n"
+            + "=== FILE 2 ===\n"
+            + "[ERROR] (3) 'b' is bad\n"
+            + "\n"
+            + "=== FILE 1 ===\n"
+            + "[ERROR] (1) 'a' is bad\n"
+            + "[ERROR] (2) 'a2' is bad\n";
+        String[] replies = ReplyUtils.splitBatchReply(reply, 3);
+        assertEquals("[ERROR] (1) 'a' is bad\n[ERROR] (2) 'a2' is bad\n", replies[0]);
+        assertEquals("[ERROR] (3) 'b' is bad\n", replies[1]);
+        assertNull(replies[2]);
+    }
+
+    @Test
+    void batchFileWithoutFindingsGetsEmptyReply() {
+        String reply = "=== FILE 1 ===\n  ===  FILE 2 (Foo.java) ===\n[ERROR] (4) 'x'\n";
+        String[] replies = ReplyUtils.splitBatchReply(reply, 2);
+        assertEquals("", replies[0]);
+        assertEquals("[ERROR] (4) 'x'\n", replies[1]);
+    }
+
+    @Test
+    void dropsLinesUnderUnknownFileNumber() {
+        String reply = "=== FILE 1 ===\n[ERROR] (1) 'a'\n=== FILE 9 ===\n[ERROR] (2) 'b'\n";
+        String[] replies = ReplyUtils.splitBatchReply(reply, 1);
+        assertEquals("[ERROR] (1) 'a'\n", replies[0]);
+    }
+}
@@ -0,0 +1,74 @@
+package com.checkstyleplus.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StructuredReplyTest {
+
+    @Test
+    void turnsDocumentIntoFindingLines() throws IOException {
+        String document = "{\"violations\": [{\"file\": 2, \"line\": 12, \"section\": \"5.2.2\","
+            + " \"identifier\": \"foo\", \"severity\": \"error\", \"suggestion\": \"Rename to 'Foo'.\"},"
+            + " {\"identifier\": \"bar\"}], \"note\": {\"ignored\": true}}";
+        assertEquals("{\"line\":12,\"file\":2,\"section\":\"5.2.2\",\"identifier\":\"foo\",\"severity\":\"error\","
+                + "\"suggestion\":\"Rename to 'Foo'.\"}\n"
+                + "{\"identifier\":\"bar\"}\n",
+            StructuredReply.toLines(document));
+    }
+
+    @Test
+    void noViolationsIsOneSpace() throws IOException {
+        assertEquals(" ", StructuredReply.toLines("{\"violations\": []}"));
+    }
+
+    @Test
+    void rejectsWhatIsNotADocument() {
+        assertThrows(IOException.class, () -> StructuredReply.toLines("[]"));
+        assertThrows(IOException.class, () -> StructuredReply.toLines("{\"violations\": [{\"line\": 1}"));
+    }
+
+    @Test
+    void findingLinesStartWithABrace() {
+        assertTrue(StructuredReply.isFinding("  {\"line\":1}"));
+        assertFalse(StructuredReply.isFinding("[ERROR] (1) {x}"));
+        assertFalse(StructuredReply.isFinding("   "));
+    }
+
+    @Test
+    void parsesFindingLine() {
+        StructuredReply.Finding finding =
+            StructuredReply.parse("{\"line\":3,\"section\":\"4.1\",\"severity\":\"warn\"}");
+        assertEquals(3, finding.line());
+        assertEquals("4.1", finding.section());
+        assertNull(finding.identifier());
+        assertTrue(finding.isWarning());
+        assertNull(StructuredReply.parse("{broken"));
+    }
+
+    @Test
+    void splitsBatchReplyByFileNumber() {
+        String reply = "{\"line\":1,\"file\":2,\"identifier\":\"b\"}\n"
+            + "{\"line\":5,\"file\":1,\"identifier\":\"a\"}\n"
+            + "{\"line\":6,\"identifier\":\"no file\"}\n"
+            + "{\"line\":7,\"file\":4,\"identifier\":\"unknown file\"}\n"
+            + "not a finding\n";
+        assertArrayEquals(new String[]{
+            "{\"line\":5,\"identifier\":\"a\"}\n",
+            "{\"line\":1,\"identifier\":\"b\"}\n",
+            ""
+        }, StructuredReply.splitBatchReply(reply, 3));
+    }
+
+    @Test
+    void everyBatchFileGetsAReply() {
+        assertArrayEquals(new String[]{"", ""}, StructuredReply.splitBatchReply(" ", 2));
+    }
+}